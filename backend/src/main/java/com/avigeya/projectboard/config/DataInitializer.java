@@ -1,11 +1,15 @@
 package com.avigeya.projectboard.config;
 
 import com.avigeya.projectboard.domain.*;
+import com.avigeya.projectboard.event.ReferenceDataChangedEvent;
 import com.avigeya.projectboard.repository.*;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.boot.CommandLineRunner;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.BufferedReader;
 import java.io.InputStream;
@@ -16,9 +20,17 @@ import java.time.format.DateTimeParseException;
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * Загружает данные из CSV в пустую БД. Выполняется при создании бина, после
+ * {@link IdSequenceAligner}, то есть до запуска веб-сервера: первые запросы уже
+ * видят загруженные данные, а сверка видимости задач
+ * ({@link com.avigeya.projectboard.service.TaskVisibilityService}) идет после
+ * импорта.
+ */
 @Component
+@DependsOn("idSequenceAligner")
 @Slf4j
-public class DataInitializer implements CommandLineRunner {
+public class DataInitializer implements InitializingBean {
 
     private final Map<Long, User> userMap = new HashMap<>();
     private final Map<Long, Project> projectMap = new HashMap<>();
@@ -34,9 +46,12 @@ public class DataInitializer implements CommandLineRunner {
     private final ProjectMemberRepository projectMemberRepository;
     private final TaskMemberRepository taskMemberRepository;
     private final ProjectStageRepository projectStageRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PlatformTransactionManager transactionManager;
 
     public DataInitializer(UserRepository u, ProjectRepository p, TaskRepository t, StatusRepository s,
-            StageRepository st, ProjectMemberRepository pm, TaskMemberRepository tm, ProjectStageRepository psr) {
+            StageRepository st, ProjectMemberRepository pm, TaskMemberRepository tm, ProjectStageRepository psr,
+            ApplicationEventPublisher ep, PlatformTransactionManager txm) {
         this.userRepository = u;
         this.projectRepository = p;
         this.taskRepository = t;
@@ -45,16 +60,27 @@ public class DataInitializer implements CommandLineRunner {
         this.projectMemberRepository = pm;
         this.taskMemberRepository = tm;
         this.projectStageRepository = psr;
+        this.eventPublisher = ep;
+        this.transactionManager = txm;
     }
 
     @Override
-    @Transactional
-    public void run(String... args) throws Exception {
+    public void afterPropertiesSet() {
         if (userRepository.count() > 0) {
             log.warn("База данных уже содержит данные. Инициализация пропущена.");
             return;
         }
+        // Транзакционный прокси при создании бина еще не действует
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            try {
+                importCsv();
+            } catch (Exception e) {
+                throw new IllegalStateException("Не удалось загрузить данные из CSV", e);
+            }
+        });
+    }
 
+    private void importCsv() throws Exception {
         log.info("Начата загрузка реальных данных из CSV...");
 
         loadUsers();
@@ -65,6 +91,7 @@ public class DataInitializer implements CommandLineRunner {
         loadTasks();
         loadProjectMembers();
         loadTaskMembers();
+        eventPublisher.publishEvent(new ReferenceDataChangedEvent("initial CSV import"));
 
         log.info("Загрузка всех данных успешно завершена!");
     }
@@ -0,0 +1,55 @@
+package com.avigeya.projectboard.config;
+
+import com.avigeya.projectboard.domain.Task;
+import com.avigeya.projectboard.domain.TaskMember;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Подтягивает последовательности ID вперед, если в таблице уже есть строки с
+ * большими ID.
+ * <p>
+ * Задачи и их участники раньше получали ID через IDENTITY, а последовательности
+ * tasks_seq и task_members_seq создаются схемой с единицы. Без выравнивания
+ * первые вставки после перехода конфликтовали бы с существующими строками.
+ * <p>
+ * Выполняется при создании бина, после фабрики EntityManager (схема уже
+ * готова): то есть до запуска веб-сервера и первого запроса.
+ * {@link DataInitializer} зависит от этого бина и загружает CSV уже после
+ * выравнивания. ApplicationRunner для этого не годится — он вызывается, когда
+ * сервер уже принимает запросы.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+@Slf4j
+public class IdSequenceAligner implements InitializingBean {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void afterPropertiesSet() {
+        align("tasks", "tasks_seq", Task.ID_ALLOCATION_SIZE);
+        align("task_members", "task_members_seq", TaskMember.ID_ALLOCATION_SIZE);
+    }
+
+    private void align(String table, String sequence, int allocationSize) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + table, Long.class);
+        if (maxId == null) {
+            return;
+        }
+        // Hibernate (оптимизатор pooled) считает значение последовательности верхней
+        // границей блока, поэтому оно должно быть не меньше maxId + allocationSize
+        long required = maxId + allocationSize;
+        Long next = jdbcTemplate.queryForObject("SELECT nextval('" + sequence + "')", Long.class);
+        if (next != null && next >= required) {
+            return;
+        }
+        jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + required);
+        log.info("Последовательность {} сдвинута до {} (максимальный ID в {}: {}).", sequence, required, table, maxId);
+    }
+}
@@ -0,0 +1,28 @@
+package com.avigeya.projectboard.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class JpaConfig {
+
+    // Размер JDBC-пакета для INSERT/UPDATE. Совпадает с @BatchSize на связях.
+    static final int JDBC_BATCH_SIZE = 100;
+
+    /**
+     * Включает пакетную запись: изменения нескольких сущностей одного типа
+     * отправляются одним JDBC-пакетом, а сортировка по типу и ID не дает
+     * пакетам рваться и уменьшает риск взаимных блокировок.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer jdbcBatchingCustomizer() {
+        return properties -> {
+            properties.putIfAbsent(AvailableSettings.STATEMENT_BATCH_SIZE, JDBC_BATCH_SIZE);
+            properties.putIfAbsent(AvailableSettings.ORDER_UPDATES, true);
+            properties.putIfAbsent(AvailableSettings.ORDER_INSERTS, true);
+            properties.putIfAbsent(AvailableSettings.BATCH_VERSIONED_DATA, true);
+        };
+    }
+}
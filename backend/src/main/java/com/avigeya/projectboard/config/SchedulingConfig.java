@@ -0,0 +1,12 @@
+package com.avigeya.projectboard.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Включает фоновые задачи (@Scheduled), например перебалансировку рангов.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
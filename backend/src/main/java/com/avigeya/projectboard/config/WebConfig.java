@@ -1,6 +1,12 @@
 package com.avigeya.projectboard.config;
 
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
@@ -11,7 +17,26 @@ public class WebConfig implements WebMvcConfigurer {
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/api/**") // Применяем ко всем эндпоинтам, начинающимся с /api/
                 .allowedOrigins("*")       // Разрешаем запросы с любого источника
-                .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS") // Разрешаем все основные методы
-                .allowedHeaders("*");      // Разрешаем все заголовки
+                .allowedMethods("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS") // Разрешаем все основные методы
+                .allowedHeaders("*")       // Разрешаем все заголовки
+                .exposedHeaders("ETag");   // Клиент должен видеть ETag для условных запросов
+    }
+
+    /*
+     * Бинарные форматы для клиентов на медленных сетях: выбираются по заголовку
+     * Accept (application/cbor или application/x-jackson-smile). Конвертеры
+     * заменяют стандартные на тех же местах — после JSON, поэтому без явного
+     * Accept ответ остается в JSON. Маппер строится из общего билдера Spring Boot,
+     * чтобы даты и прочие настройки сериализовались так же, как в JSON.
+     */
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
     }
 }
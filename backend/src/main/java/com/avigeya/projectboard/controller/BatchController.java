@@ -0,0 +1,51 @@
+package com.avigeya.projectboard.controller;
+
+import com.avigeya.projectboard.dto.BatchOperation;
+import com.avigeya.projectboard.dto.BatchOperationResult;
+import com.avigeya.projectboard.dto.BatchResponse;
+import com.avigeya.projectboard.service.BatchService;
+import com.avigeya.projectboard.service.SessionUser;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/batch")
+@RequiredArgsConstructor
+public class BatchController {
+
+    private final BatchService batchService;
+    private final SessionUserResolver sessionUserResolver;
+
+    /**
+     * Выполняет несколько операций над задачами и проектами за один запрос и в
+     * одной транзакции, например PATCH задачи и новый порядок колонки.
+     *
+     * @param operations  Операции в порядке выполнения: [{type, taskId,
+     *                    projectId, version, body}].
+     * @param initData    window.Telegram.WebApp.initData.
+     * @param debugUserId ID пользователя для режима отладки.
+     * @return 200, если все операции выполнены и зафиксированы; иначе статус
+     *         первой неудачной операции (400, 404, 409...) и committed = false.
+     *         В обоих случаях — результат по каждой операции.
+     */
+    @PostMapping
+    public ResponseEntity<BatchResponse> executeBatch(@RequestBody List<BatchOperation> operations,
+            @RequestHeader(name = SessionUserResolver.INIT_DATA_HEADER, required = false) String initData,
+            @RequestHeader(name = SessionUserResolver.DEBUG_USER_ID_HEADER, required = false) Long debugUserId) {
+        SessionUser user = sessionUserResolver.resolve(debugUserId, initData);
+        BatchResponse response = batchService.execute(operations, user);
+        if (response.isCommitted()) {
+            return ResponseEntity.ok(response);
+        }
+        int status = response.getResults().stream()
+                .filter(r -> r.getOutcome() == BatchOperationResult.Outcome.FAILED)
+                .mapToInt(BatchOperationResult::getStatus)
+                .findFirst()
+                .orElse(HttpStatus.INTERNAL_SERVER_ERROR.value());
+        return ResponseEntity.status(status).body(response);
+    }
+}
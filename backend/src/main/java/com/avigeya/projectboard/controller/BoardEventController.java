@@ -0,0 +1,41 @@
+package com.avigeya.projectboard.controller;
+
+import com.avigeya.projectboard.service.BoardEventStream;
+import com.avigeya.projectboard.service.SessionUser;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/board")
+@RequiredArgsConstructor
+public class BoardEventController {
+
+    private final BoardEventStream boardEventStream;
+    private final SessionUserResolver sessionUserResolver;
+
+    /**
+     * Поток изменений доски (text/event-stream). События:
+     * <ul>
+     * <li>ready — подписка открыта, данные — ID проектов подписки;</li>
+     * <li>change — {type, projectId, ids, deleted}; за содержимым задач и связей
+     * клиент идет в /app-data/changes со своим курсором;</li>
+     * <li>resync — клиент отстал и часть событий потеряна: нужно догнать доску
+     * через /app-data/changes (или перезагрузить ее).</li>
+     * </ul>
+     *
+     * @param projectIds  Проекты подписки; если не указаны — все доступные.
+     * @param initData    window.Telegram.WebApp.initData.
+     * @param debugUserId ID пользователя для режима отладки.
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@RequestParam(required = false) List<Long> projectIds,
+            @RequestHeader(name = SessionUserResolver.INIT_DATA_HEADER, required = false) String initData,
+            @RequestHeader(name = SessionUserResolver.DEBUG_USER_ID_HEADER, required = false) Long debugUserId) {
+        SessionUser user = sessionUserResolver.resolve(debugUserId, initData);
+        return boardEventStream.subscribe(projectIds, user);
+    }
+}
@@ -1,67 +1,140 @@
 package com.avigeya.projectboard.controller;
 
+import com.avigeya.projectboard.dto.AppDataChangesDto;
 import com.avigeya.projectboard.dto.AppDataDto;
+import com.avigeya.projectboard.dto.AppDataV2Dto;
 import com.avigeya.projectboard.service.AppDataService;
-import com.avigeya.projectboard.service.TelegramValidationService;
+import com.avigeya.projectboard.service.SessionUser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-
-import java.util.Map;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
-@RequestMapping("/api/v1")
+@RequestMapping("/api")
 public class InitialDataController {
 
     private static final Logger log = LoggerFactory.getLogger(InitialDataController.class);
 
     private final AppDataService appDataService;
-    private final TelegramValidationService telegramValidationService;
+    private final SessionUserResolver sessionUserResolver;
 
-    public InitialDataController(AppDataService appDataService, TelegramValidationService telegramValidationService) {
+    public InitialDataController(AppDataService appDataService, SessionUserResolver sessionUserResolver) {
         this.appDataService = appDataService;
-        this.telegramValidationService = telegramValidationService;
+        this.sessionUserResolver = sessionUserResolver;
         log.info("InitialDataController has been successfully initialized.");
     }
 
-    @PostMapping("/app-data")
+    @PostMapping("/v1/app-data")
     public ResponseEntity<AppDataDto> getInitialData(@RequestBody InitialDataRequest request) {
         log.info("Received request for /app-data. Debug user: {}, Init data present: {}",
                 request.getDebugUserId(), request.getInitData() != null && !request.getInitData().isEmpty());
 
-        Long userId = null;
-
-        if (request.getDebugUserId() != null) {
-            userId = request.getDebugUserId();
-            log.info("Using debug mode. UserId set to: {}", userId);
-        } else if (request.getInitData() != null) {
-            String initData = request.getInitData();
-            log.info("Validating initData from Telegram...");
-            if (!telegramValidationService.isDataSafe(initData)) {
-                log.warn("Validation failed for initData. Returning 403 Forbidden.");
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
-            }
-            Map<String, String> userData = telegramValidationService.parseInitData(initData);
-            String userIdStr = userData.get("id");
-            if (userIdStr != null) {
-                userId = Long.parseLong(userIdStr);
-                log.info("Successfully parsed userId from initData: {}", userId);
-            }
-        }
+        SessionUser user = resolveUser(request);
 
-        if (userId == null) {
-            log.error("Could not determine userId from the request. Returning 400 Bad Request.");
-            return ResponseEntity.badRequest().build();
-        }
-
-        log.info("Fetching app data for userId: {}", userId);
-        AppDataDto appData = appDataService.getAppData(userId);
+        log.info("Fetching app data for userId: {}", user.getTgUserId());
+        AppDataDto appData = appDataService.getAppData(user);
         log.info("Successfully fetched app data. Returning 200 OK.");
         return ResponseEntity.ok(appData);
     }
+
+    /**
+     * GET-вариант /app-data с поддержкой условных запросов.
+     * Авторизационные данные передаются в заголовках, а не в теле. Если ETag из
+     * If-None-Match совпадает с текущей версией доски, возвращается 304 без
+     * построения ответа. Формат тела (JSON, CBOR, Smile) выбирается по Accept,
+     * поэтому ответ помечается Vary: Accept.
+     *
+     * @param initData    window.Telegram.WebApp.initData.
+     * @param debugUserId ID пользователя для режима отладки.
+     * @param webRequest  Текущий запрос (для проверки If-None-Match).
+     * @return Данные доски с заголовком ETag или 304 Not Modified.
+     */
+    @GetMapping("/v1/app-data")
+    public ResponseEntity<AppDataDto> getInitialDataConditional(
+            @RequestHeader(name = SessionUserResolver.INIT_DATA_HEADER, required = false) String initData,
+            @RequestHeader(name = SessionUserResolver.DEBUG_USER_ID_HEADER, required = false) Long debugUserId,
+            WebRequest webRequest) {
+        SessionUser user = resolveUser(debugUserId, initData);
+
+        String etag = "\"" + appDataService.getAppDataETag(user) + "\"";
+        if (webRequest.checkNotModified(etag)) {
+            log.info("App data for userId: {} not modified ({}). Returning 304.", user.getTgUserId(), etag);
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).varyBy(HttpHeaders.ACCEPT).build();
+        }
+
+        AppDataDto appData = appDataService.getAppData(user);
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(appData);
+    }
+
+    /**
+     * Нормализованная версия /app-data: задачи ссылаются на статусы, этапы и
+     * пользователей по ID вместо вложенных DTO, что заметно уменьшает ответ.
+     *
+     * @param request initData или debugUserId, как и для /v1/app-data.
+     * @return Данные доски в формате v2.
+     */
+    @PostMapping("/v2/app-data")
+    public ResponseEntity<AppDataV2Dto> getInitialDataV2(@RequestBody InitialDataRequest request) {
+        SessionUser user = resolveUser(request);
+        log.info("Fetching v2 app data for userId: {}", user.getTgUserId());
+        return ResponseEntity.ok(appDataService.getAppDataV2(user));
+    }
+
+    /**
+     * Потоковый вариант /app-data: тот же JSON, но задачи сериализуются по мере
+     * чтения из БД, и ответ не собирается в памяти целиком.
+     *
+     * @param request initData или debugUserId, как и для /app-data.
+     * @return Тело ответа, которое пишется в отдельном потоке.
+     */
+    @PostMapping("/v1/app-data/stream")
+    public ResponseEntity<StreamingResponseBody> streamInitialData(@RequestBody InitialDataRequest request) {
+        SessionUser user = resolveUser(request);
+        log.info("Streaming app data for userId: {}", user.getTgUserId());
+        StreamingResponseBody body = out -> appDataService.writeAppData(user, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * Возвращает изменения доски после указанного курсора.
+     * Начальный курсор приходит в поле changeCursor ответа /app-data.
+     *
+     * @param since   Курсор из предыдущего ответа.
+     * @param request initData или debugUserId, как и для /app-data.
+     * @return Измененные задачи, "надгробия" и связи проектов.
+     */
+    @PostMapping("/v1/app-data/changes")
+    public ResponseEntity<AppDataChangesDto> getChanges(@RequestParam long since,
+            @RequestBody InitialDataRequest request) {
+        SessionUser user = resolveUser(request);
+        AppDataChangesDto changes = appDataService.getChanges(user, since);
+        log.info("Returning {} changed and {} deleted tasks since cursor {} for userId: {}",
+                changes.getTasks().size(), changes.getDeletedTaskIds().size(), since, user.getTgUserId());
+        return ResponseEntity.ok(changes);
+    }
+
+    private SessionUser resolveUser(InitialDataRequest request) {
+        return resolveUser(request.getDebugUserId(), request.getInitData());
+    }
+
+    private SessionUser resolveUser(Long debugUserId, String initData) {
+        return sessionUserResolver.resolve(debugUserId, initData);
+    }
 }
@@ -1,6 +1,7 @@
 package com.avigeya.projectboard.controller;
 
 import com.avigeya.projectboard.dto.ProjectMemberUpdateRequest;
+import com.avigeya.projectboard.service.PermissionIndex;
 import com.avigeya.projectboard.service.ProjectService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -14,23 +15,32 @@ import java.util.List;
 public class ProjectController {
 
     private final ProjectService projectService;
+    private final PermissionIndex permissionIndex;
+    private final SessionUserResolver sessionUserResolver;
 
     /**
      * Обновляет список активных этапов для конкретного проекта.
      *
      * @param projectId ID проекта.
      * @param stageIds  Список ID этапов, которые должны быть активны.
-     * @return ResponseEntity с сообщением об успехе.
+     * @return ResponseEntity с сообщением об успехе; 403, если пользователь не
+     *         владелец и не администратор.
      */
     @PutMapping("/{projectId}/stages")
-    public ResponseEntity<Void> updateProjectStages(@PathVariable Long projectId, @RequestBody List<Long> stageIds) {
+    public ResponseEntity<Void> updateProjectStages(@PathVariable Long projectId, @RequestBody List<Long> stageIds,
+            @RequestHeader(name = SessionUserResolver.INIT_DATA_HEADER, required = false) String initData,
+            @RequestHeader(name = SessionUserResolver.DEBUG_USER_ID_HEADER, required = false) Long debugUserId) {
+        permissionIndex.checkManageProjects(sessionUserResolver.resolve(debugUserId, initData));
         projectService.updateProjectStages(projectId, stageIds);
         return ResponseEntity.ok().build();
     }
 
     @PutMapping("/{projectId}/members")
     public ResponseEntity<Void> updateProjectMembers(@PathVariable Long projectId,
-            @RequestBody ProjectMemberUpdateRequest request) {
+            @RequestBody ProjectMemberUpdateRequest request,
+            @RequestHeader(name = SessionUserResolver.INIT_DATA_HEADER, required = false) String initData,
+            @RequestHeader(name = SessionUserResolver.DEBUG_USER_ID_HEADER, required = false) Long debugUserId) {
+        permissionIndex.checkManageProjects(sessionUserResolver.resolve(debugUserId, initData));
         projectService.updateProjectMembers(projectId, request.getMemberIds(), request.getModifierName());
         return ResponseEntity.ok().build();
     }
@@ -0,0 +1,60 @@
+package com.avigeya.projectboard.controller;
+
+import com.avigeya.projectboard.service.SessionService;
+import com.avigeya.projectboard.service.SessionUser;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Определяет пользователя запроса по initData или debugUserId. Проверенные
+ * сессии кэшируются в {@link SessionService}.
+ * <p>
+ * debugUserId подписью не защищен: любой клиент может назваться любым
+ * пользователем. Поэтому режим отладки включается только явно
+ * (board.session.debug-enabled=true), а без него такой запрос получает 403.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+class SessionUserResolver {
+
+    static final String INIT_DATA_HEADER = "X-Telegram-Init-Data";
+    static final String DEBUG_USER_ID_HEADER = "X-Debug-User-Id";
+
+    private final SessionService sessionService;
+
+    @Value("${board.session.debug-enabled:false}")
+    private boolean debugEnabled;
+
+    /**
+     * @throws ResponseStatusException 403, если initData не прошли проверку или
+     *                                 передан debugUserId при выключенном
+     *                                 режиме отладки; 400, если пользователя
+     *                                 определить не удалось.
+     */
+    SessionUser resolve(Long debugUserId, String initData) {
+        if (debugUserId != null) {
+            if (!debugEnabled) {
+                log.warn("Debug mode is disabled, rejecting debugUserId: {}. Returning 403 Forbidden.", debugUserId);
+                throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+            }
+            log.info("Using debug mode. UserId set to: {}", debugUserId);
+            return sessionService.getDebugSession(debugUserId);
+        }
+        if (initData != null && !initData.isEmpty()) {
+            SessionUser user = sessionService.getSession(initData);
+            if (user == null) {
+                log.warn("Validation failed for initData. Returning 403 Forbidden.");
+                throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+            }
+            return user;
+        }
+
+        log.error("Could not determine userId from the request. Returning 400 Bad Request.");
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST);
+    }
+}
@@ -1,14 +1,32 @@
 package com.avigeya.projectboard.controller;
 
 import com.avigeya.projectboard.dto.TaskBatchUpdateRequest;
+import com.avigeya.projectboard.dto.TaskBatchUpdateResult;
 import com.avigeya.projectboard.dto.TaskDto;
+import com.avigeya.projectboard.dto.TaskHistoryPage;
 import com.avigeya.projectboard.dto.ApiResponse;
 import com.avigeya.projectboard.dto.TaskMemberUpdateRequest;
+import com.avigeya.projectboard.dto.TaskMoveRequest;
+import com.avigeya.projectboard.dto.TaskRankDto;
+import com.avigeya.projectboard.exception.BadRequestException;
+import com.avigeya.projectboard.exception.TaskVersionConflictException;
+import com.avigeya.projectboard.service.PermissionIndex;
+import com.avigeya.projectboard.service.SessionUser;
+import com.avigeya.projectboard.service.TaskArchiveService;
+import com.avigeya.projectboard.service.TaskRankService;
 import com.avigeya.projectboard.service.TaskService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
+import java.util.Collections;
 import java.util.List;
 
 @RestController
@@ -16,12 +34,106 @@ import java.util.List;
 @RequiredArgsConstructor
 public class TaskController {
 
+    static final String MERGE_PATCH_JSON = "application/merge-patch+json";
+
+    private static final TypeReference<TaskDto> TASK = new TypeReference<>() {
+    };
+    private static final TypeReference<List<TaskDto>> TASK_LIST = new TypeReference<>() {
+    };
+
     private final TaskService taskService;
+    private final TaskRankService taskRankService;
+    private final TaskArchiveService taskArchiveService;
+    private final SessionUserResolver sessionUserResolver;
+    private final PermissionIndex permissionIndex;
+    private final ObjectMapper objectMapper;
 
+    /**
+     * Создает одну задачу или несколько за один запрос. Тело — объект TaskDto
+     * или массив таких объектов. Автором становится пользователь проверенной
+     * сессии Telegram, поле author в теле игнорируется.
+     *
+     * @param body        Задача или массив задач.
+     * @param initData    window.Telegram.WebApp.initData.
+     * @param debugUserId ID пользователя для режима отладки; без
+     *                    board.session.debug-enabled запрос получает 403.
+     * @return 201 и созданная задача в поле task (для массива — список задач в
+     *         том же порядке).
+     */
+    @PostMapping
+    public ResponseEntity<ApiResponse> createTasks(@RequestBody JsonNode body,
+            @RequestHeader(name = SessionUserResolver.INIT_DATA_HEADER, required = false) String initData,
+            @RequestHeader(name = SessionUserResolver.DEBUG_USER_ID_HEADER, required = false) Long debugUserId) {
+        SessionUser author = sessionUserResolver.resolve(debugUserId, initData);
+        if (body.isArray()) {
+            List<TaskDto> tasks = readTasks(body, TASK_LIST);
+            permissionIndex.checkEditProjects(author, tasks.stream().map(TaskDto::getProjectId).toList());
+            List<TaskDto> created = taskService.createTasks(tasks, author);
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .body(new ApiResponse("success", created.size() + " tasks created successfully", created));
+        }
+        TaskDto task = readTasks(body, TASK);
+        permissionIndex.checkEditProjects(author, Collections.singletonList(task.getProjectId()));
+        TaskDto created = taskService.createTasks(List.of(task), author).get(0);
+        return ResponseEntity.created(URI.create("/api/v1/tasks/" + created.getId()))
+                .body(new ApiResponse("success", "Task created successfully", created));
+    }
+
+    /**
+     * Обновляет задачу, если она не изменилась с момента чтения. Ожидаемая
+     * версия берется из If-Match (ETag вида "3"), а если заголовка нет — из поля
+     * version в теле. Без версии задача обновляется безусловно.
+     * Перенос в другой проект требует доступа и к нему.
+     *
+     * @return 200 с обновленной задачей и новым ETag; 403 без доступа к
+     *         проекту задачи; 409 с текущим состоянием задачи, если версия не
+     *         совпала.
+     */
     @PutMapping("/{taskId}")
-    public ResponseEntity<ApiResponse> updateTask(@PathVariable Long taskId, @RequestBody TaskDto taskDto) {
+    public ResponseEntity<ApiResponse> updateTask(@PathVariable Long taskId, @RequestBody TaskDto taskDto,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestHeader(name = SessionUserResolver.INIT_DATA_HEADER, required = false) String initData,
+            @RequestHeader(name = SessionUserResolver.DEBUG_USER_ID_HEADER, required = false) Long debugUserId) {
+        SessionUser user = sessionUserResolver.resolve(debugUserId, initData);
+        permissionIndex.checkEditTasks(user, List.of(taskId));
+        permissionIndex.checkEditProjects(user, Collections.singletonList(taskDto.getProjectId()));
+        Integer expectedVersion = parseVersion(ifMatch);
+        if (expectedVersion != null) {
+            taskDto.setVersion(expectedVersion);
+        }
         TaskDto updatedTask = taskService.updateTask(taskId, taskDto);
-        return ResponseEntity.ok(new ApiResponse("success", "Task updated successfully", updatedTask));
+        return ResponseEntity.ok()
+                .eTag(etag(updatedTask))
+                .body(new ApiResponse("success", "Task updated successfully", updatedTask));
+    }
+
+    /**
+     * Частично обновляет задачу по JSON Merge Patch (RFC 7396). В теле только
+     * измененные поля, например {@code {"finishDate": "2024-06-01"}}; null
+     * очищает поле. В отличие от PUT, UPDATE затрагивает только эти столбцы.
+     * Предусловие по версии — как у PUT: If-Match или поле version.
+     *
+     * @return 200 с задачей и новым ETag; 403 без доступа к проекту задачи;
+     *         409 с текущим состоянием задачи, если версия не совпала.
+     */
+    @PatchMapping(value = "/{taskId}", consumes = { MERGE_PATCH_JSON, MediaType.APPLICATION_JSON_VALUE })
+    public ResponseEntity<ApiResponse> patchTask(@PathVariable Long taskId, @RequestBody JsonNode patch,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestHeader(name = SessionUserResolver.INIT_DATA_HEADER, required = false) String initData,
+            @RequestHeader(name = SessionUserResolver.DEBUG_USER_ID_HEADER, required = false) Long debugUserId) {
+        SessionUser user = sessionUserResolver.resolve(debugUserId, initData);
+        permissionIndex.checkPatchTask(user, taskId, patch);
+        TaskDto patchedTask = taskService.patchTask(taskId, patch, parseVersion(ifMatch));
+        return ResponseEntity.ok()
+                .eTag(etag(patchedTask))
+                .body(new ApiResponse("success", "Task updated successfully", patchedTask));
+    }
+
+    @ExceptionHandler(TaskVersionConflictException.class)
+    public ResponseEntity<ApiResponse> handleVersionConflict(TaskVersionConflictException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .eTag(etag(e.getCurrent()))
+                .body(new ApiResponse("conflict", e.getMessage(), e.getCurrent()));
     }
 
     /**
@@ -33,7 +145,10 @@ public class TaskController {
      * @return ResponseEntity с сообщением об успехе.
      */
     @PutMapping("/priorities")
-    public ResponseEntity<Void> updateTaskPriorities(@RequestBody List<Long> taskIds) {
+    public ResponseEntity<Void> updateTaskPriorities(@RequestBody List<Long> taskIds,
+            @RequestHeader(name = SessionUserResolver.INIT_DATA_HEADER, required = false) String initData,
+            @RequestHeader(name = SessionUserResolver.DEBUG_USER_ID_HEADER, required = false) Long debugUserId) {
+        permissionIndex.checkEditTasks(sessionUserResolver.resolve(debugUserId, initData), taskIds);
         taskService.updateTaskPriorities(taskIds);
         return ResponseEntity.ok().build();
     }
@@ -41,26 +156,123 @@ public class TaskController {
     /**
      * Пакетно обновляет статус и/или приоритет для списка задач.
      *
-     * @param updates Список объектов с taskId, priority и statusId для обновления.
-     * @return ResponseEntity с сообщением об успехе.
+     * @param updates Список объектов с taskId, priority, statusId и version для обновления.
+     * @return Результат по каждой задаче: UPDATED, NOT_FOUND или VERSION_CONFLICT.
      */
     @PutMapping("/batch-update")
-    public ResponseEntity<Void> batchUpdateTasks(@RequestBody List<TaskBatchUpdateRequest> updates) {
-        taskService.batchUpdateTasks(updates);
-        return ResponseEntity.ok().build();
+    public ResponseEntity<List<TaskBatchUpdateResult>> batchUpdateTasks(
+            @RequestBody List<TaskBatchUpdateRequest> updates,
+            @RequestHeader(name = SessionUserResolver.INIT_DATA_HEADER, required = false) String initData,
+            @RequestHeader(name = SessionUserResolver.DEBUG_USER_ID_HEADER, required = false) Long debugUserId) {
+        permissionIndex.checkEditTasks(sessionUserResolver.resolve(debugUserId, initData),
+                updates.stream().map(TaskBatchUpdateRequest::getTaskId).toList());
+        return ResponseEntity.ok(taskService.batchUpdateTasks(updates));
+    }
+
+    /**
+     * Перемещает задачу между двумя соседями в той же колонке.
+     * В отличие от /priorities меняет ранг только у перемещенной задачи
+     * (кроме редкого случая, когда колонку приходится перебалансировать).
+     *
+     * @param request ID задачи и ее новых соседей сверху и снизу.
+     * @return Новые ранги всех задач, у которых они изменились.
+     */
+    @PutMapping("/reorder")
+    public ResponseEntity<List<TaskRankDto>> moveTask(@RequestBody TaskMoveRequest request,
+            @RequestHeader(name = SessionUserResolver.INIT_DATA_HEADER, required = false) String initData,
+            @RequestHeader(name = SessionUserResolver.DEBUG_USER_ID_HEADER, required = false) Long debugUserId) {
+        permissionIndex.checkEditTasks(sessionUserResolver.resolve(debugUserId, initData),
+                Collections.singletonList(request.getTaskId()));
+        return ResponseEntity.ok(taskRankService.moveTask(request));
     }
 
     @PutMapping("/{taskId}/members")
     public ResponseEntity<Void> updateTaskMembers(@PathVariable Long taskId,
-            @RequestBody TaskMemberUpdateRequest request) {
+            @RequestBody TaskMemberUpdateRequest request,
+            @RequestHeader(name = SessionUserResolver.INIT_DATA_HEADER, required = false) String initData,
+            @RequestHeader(name = SessionUserResolver.DEBUG_USER_ID_HEADER, required = false) Long debugUserId) {
+        permissionIndex.checkEditTasks(sessionUserResolver.resolve(debugUserId, initData), List.of(taskId));
         taskService.updateTaskMembers(taskId, request.getCuratorId(), request.getMemberIds(),
                 request.getModifierName());
         return ResponseEntity.ok().build();
     }
 
     @DeleteMapping("/{taskId}")
-    public ResponseEntity<Void> deleteTask(@PathVariable Long taskId) {
+    public ResponseEntity<Void> deleteTask(@PathVariable Long taskId,
+            @RequestHeader(name = SessionUserResolver.INIT_DATA_HEADER, required = false) String initData,
+            @RequestHeader(name = SessionUserResolver.DEBUG_USER_ID_HEADER, required = false) Long debugUserId) {
+        permissionIndex.checkEditTasks(sessionUserResolver.resolve(debugUserId, initData), List.of(taskId));
         taskService.deleteTask(taskId);
         return ResponseEntity.noContent().build(); // 204 No Content - стандартный ответ для успешного DELETE
     }
+
+    /**
+     * Архив выполненных задач проекта, начиная с последних перенесенных.
+     *
+     * @param projectId   ID проекта.
+     * @param page        Номер страницы с нуля.
+     * @param size        Размер страницы (не больше 100).
+     * @param initData    window.Telegram.WebApp.initData.
+     * @param debugUserId ID пользователя для режима отладки.
+     * @return Задачи страницы и признак hasMore.
+     */
+    @GetMapping("/archive")
+    public ResponseEntity<TaskHistoryPage> getTaskHistory(@RequestParam Long projectId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestHeader(name = SessionUserResolver.INIT_DATA_HEADER, required = false) String initData,
+            @RequestHeader(name = SessionUserResolver.DEBUG_USER_ID_HEADER, required = false) Long debugUserId) {
+        SessionUser user = sessionUserResolver.resolve(debugUserId, initData);
+        return ResponseEntity.ok(taskArchiveService.findHistory(projectId, user, page, size));
+    }
+
+    /**
+     * Восстанавливает удаленную задачу, пока она не удалена окончательно.
+     *
+     * @return 200 с восстановленной задачей; 404, если задача не удалена или
+     *         срок восстановления истек.
+     */
+    @PostMapping("/{taskId}/restore")
+    public ResponseEntity<ApiResponse> restoreTask(@PathVariable Long taskId,
+            @RequestHeader(name = SessionUserResolver.INIT_DATA_HEADER, required = false) String initData,
+            @RequestHeader(name = SessionUserResolver.DEBUG_USER_ID_HEADER, required = false) Long debugUserId) {
+        permissionIndex.checkEditTasks(sessionUserResolver.resolve(debugUserId, initData), List.of(taskId));
+        TaskDto restoredTask = taskService.restoreTask(taskId);
+        return ResponseEntity.ok()
+                .eTag(etag(restoredTask))
+                .body(new ApiResponse("success", "Task restored successfully", restoredTask));
+    }
+
+    private static String etag(TaskDto task) {
+        return "\"" + task.getVersion() + "\"";
+    }
+
+    /**
+     * @return Версия из If-Match; null, если заголовка нет или он равен "*".
+     */
+    private static Integer parseVersion(String ifMatch) {
+        if (ifMatch == null || "*".equals(ifMatch.trim())) {
+            return null;
+        }
+        String value = ifMatch.trim();
+        if (value.startsWith("W/")) {
+            value = value.substring(2);
+        }
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            value = value.substring(1, value.length() - 1);
+        }
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Некорректный If-Match: " + ifMatch);
+        }
+    }
+
+    private <T> T readTasks(JsonNode body, TypeReference<T> type) {
+        try {
+            return objectMapper.convertValue(body, type);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Некорректные данные задачи: " + e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,69 @@
+package com.avigeya.projectboard.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Выполненная задача, перенесенная из таблицы tasks в архив.
+ * <p>
+ * ID совпадает с ID исходной задачи. Ссылки хранятся как голые ID без внешних
+ * ключей: архив не должен мешать удалять пользователей, этапы и статусы, а
+ * названия берутся из справочников при чтении.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "archived_tasks", indexes = @Index(name = "idx_archived_tasks_project", columnList = "project_id, archived_at"))
+public class ArchivedTask {
+
+    @Id
+    private Long id;
+
+    @Column(nullable = false)
+    private String name;
+
+    @Column(columnDefinition = "TEXT")
+    private String message;
+
+    private Integer priority;
+
+    private LocalDate startDate;
+
+    private LocalDate finishDate;
+
+    @Column(name = "project_id", nullable = false)
+    private Long projectId;
+
+    @Column(name = "status_id")
+    private Long statusId;
+
+    @Column(name = "stage_id")
+    private Long stageId;
+
+    @Column(name = "curator_id")
+    private Long curatorId;
+
+    @Column(name = "author_id")
+    private Long authorId;
+
+    private int version;
+
+    @Column(name = "archived_at", nullable = false)
+    private Instant archivedAt;
+
+    @ElementCollection
+    @CollectionTable(name = "archived_task_members", joinColumns = @JoinColumn(name = "task_id"),
+            indexes = @Index(name = "idx_archived_task_members_task", columnList = "task_id"))
+    @Column(name = "user_id", nullable = false)
+    @BatchSize(size = 100)
+    private Set<Long> memberIds = new HashSet<>();
+}
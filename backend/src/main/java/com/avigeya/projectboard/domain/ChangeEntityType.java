@@ -0,0 +1,25 @@
+package com.avigeya.projectboard.domain;
+
+/**
+ * Тип сущности, изменение которой записано в журнал изменений.
+ */
+public enum ChangeEntityType {
+    /**
+     * Задача (в т.ч. ее участники). entityId — ID задачи.
+     */
+    TASK,
+    /**
+     * Состав участников проекта. entityId — ID проекта.
+     */
+    PROJECT_MEMBERS,
+    /**
+     * Этапы проекта. entityId — ID проекта.
+     */
+    PROJECT_STAGES,
+    /**
+     * Пользователь перестал быть куратором, автором или участником задачи.
+     * entityId — ID задачи, userId — ID пользователя. Нужна, чтобы только ему
+     * отдать "надгробие" задачи, которую он больше не видит.
+     */
+    TASK_ACCESS
+}
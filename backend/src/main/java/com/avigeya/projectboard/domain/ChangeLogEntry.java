@@ -0,0 +1,55 @@
+package com.avigeya.projectboard.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Запись журнала изменений доски.
+ * ID выдается из последовательности и служит курсором для дельта-синхронизации:
+ * клиент запрашивает все записи с ID больше последнего полученного.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "change_log", indexes = @Index(name = "idx_change_log_entity", columnList = "entity_type, entity_id"))
+public class ChangeLogEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "change_log_seq")
+    @SequenceGenerator(name = "change_log_seq", sequenceName = "change_log_seq", allocationSize = 1)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entity_type", nullable = false, length = 32)
+    private ChangeEntityType entityType;
+
+    @Column(name = "entity_id", nullable = false)
+    private Long entityId;
+
+    @Column(name = "project_id")
+    private Long projectId;
+
+    // Для TASK_ACCESS — пользователь, потерявший доступ к задаче
+    @Column(name = "user_id")
+    private Long userId;
+
+    // true, если сущность удалена (для задач — "надгробие")
+    @Column(nullable = false)
+    private boolean deleted;
+
+    @Column(name = "changed_at", nullable = false)
+    private Instant changedAt;
+
+    public ChangeLogEntry(ChangeEntityType entityType, Long entityId, Long projectId, boolean deleted) {
+        this.entityType = entityType;
+        this.entityId = entityId;
+        this.projectId = projectId;
+        this.deleted = deleted;
+        this.changedAt = Instant.now();
+    }
+}
@@ -10,6 +10,9 @@ import lombok.Setter;
 @Table(name = "statuses")
 public class Status {
 
+    // Статус выполненных задач: они не показываются на доске и со временем уходят в архив
+    public static final String DONE = "Выполнено";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -3,7 +3,10 @@ package com.avigeya.projectboard.domain;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.OptimisticLock;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.HashSet;
 import java.util.Set;
@@ -12,11 +15,21 @@ import java.util.stream.Collectors;
 @Getter
 @Setter
 @Entity
-@Table(name = "tasks")
+@Table(name = "tasks", indexes = {
+        @Index(name = "idx_tasks_column_rank", columnList = "project_id, status_id, sort_rank"),
+        @Index(name = "idx_tasks_deleted_at", columnList = "deleted_at"),
+        @Index(name = "idx_tasks_completed_at", columnList = "completed_at")
+})
 public class Task {
 
+    // Размер блока ID, которые Hibernate берет из последовательности за один вызов
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    // ID выдаются блоками из последовательности, а не базой при вставке (IDENTITY),
+    // поэтому Hibernate может отправлять INSERT задач JDBC-пакетами
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tasks_seq")
+    @SequenceGenerator(name = "tasks_seq", sequenceName = "tasks_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     @Column(nullable = false)
@@ -27,12 +40,29 @@ public class Task {
 
     private Integer priority;
 
+    // Порядок задачи внутри колонки (проект + статус). Значения разрежены с шагом
+    // TaskRanks.GAP, поэтому перемещение карточки меняет ранг только у нее самой.
+    // Ранг не влияет на версию: перестановка не конфликтует с редактированием задачи.
+    @OptimisticLock(excluded = true)
+    @Column(name = "sort_rank")
+    private Long rank;
+
     private LocalDate startDate;
 
     private LocalDate finishDate;
 
+    // Удаление мягкое: задача только помечается, а окончательно ее стирает
+    // DeletedTaskPurger, когда истечет срок восстановления
     private boolean isDeleted;
 
+    @Column(name = "deleted_at")
+    private Instant deletedAt;
+
+    // Когда задача перешла в статус Status.DONE; null в остальных статусах.
+    // По нему CompletedTaskArchiver отсчитывает срок до переноса в архив
+    @Column(name = "completed_at")
+    private Instant completedAt;
+
     @Version
     private int version;
 
@@ -58,7 +88,10 @@ public class Task {
     @JoinColumn(name = "author_user_id", nullable = false) // Автор
     private User author;
 
+    // Если коллекция не подгружена через JOIN FETCH, она инициализируется пачками,
+    // а не отдельным запросом на каждую задачу
     @OneToMany(mappedBy = "task", cascade = CascadeType.ALL, orphanRemoval = true)
+    @BatchSize(size = 100)
     private Set<TaskMember> taskMembers = new HashSet<>();
 
     /**
@@ -12,8 +12,12 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class TaskMember {
 
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    // Как и у Task: последовательность вместо IDENTITY, чтобы вставки шли пакетами
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "task_members_seq")
+    @SequenceGenerator(name = "task_members_seq", sequenceName = "task_members_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -0,0 +1,43 @@
+package com.avigeya.projectboard.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Пользователь, который видит задачу, не видя всю доску: ее куратор, автор
+ * или участник. Денормализация связей задачи, чтобы доска обычного
+ * пользователя читалась одним соединением по индексу вместо OR/EXISTS.
+ * Строки пересчитываются в той же транзакции, что и изменение связей.
+ */
+// Первичный ключ (task_id, user_id) служит пересчету строк задачи, индекс
+// (user_id, task_id) — чтению доски пользователя
+@Entity
+@Table(name = "user_task_visibility",
+        indexes = @Index(name = "idx_user_task_visibility_user", columnList = "user_id, task_id"))
+@IdClass(UserTaskVisibility.Key.class)
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserTaskVisibility {
+
+    @Id
+    @Column(name = "task_id")
+    private Long taskId;
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long taskId;
+        private Long userId;
+    }
+}
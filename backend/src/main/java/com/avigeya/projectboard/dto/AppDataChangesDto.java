@@ -0,0 +1,31 @@
+package com.avigeya.projectboard.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Дельта доски с момента указанного курсора.
+ */
+@Data
+@Builder
+public class AppDataChangesDto {
+    // Курсор, который нужно передать в следующий запрос
+    private long cursor;
+    // true, если изменений больше, чем помещается в один ответ, — нужно запросить еще раз
+    private boolean hasMore;
+    // true, если часть журнала после курсора уже удалена: клиенту нужно загрузить доску заново
+    private boolean resyncRequired;
+
+    // Созданные и измененные задачи, видимые пользователю
+    private List<TaskDto> tasks;
+    // "Надгробия": задачи, которые нужно убрать с доски (удалены, выполнены или больше не видны)
+    private List<Long> deletedTaskIds;
+
+    // Проекты, у которых изменились участники/этапы. Для них клиент заменяет связи целиком.
+    private List<Long> changedMemberProjectIds;
+    private List<ProjectMemberDto> projectMembers;
+    private List<Long> changedStageProjectIds;
+    private List<ProjectStageDto> projectStages;
+}
@@ -13,6 +13,9 @@ public class AppDataDto {
     private String userName;
     private String userRole;
 
+    // Курсор журнала изменений на момент формирования ответа (для /app-data/changes)
+    private Long changeCursor;
+
     // Проекты с задачами, отфильтрованными для этого пользователя
     private List<ProjectDto> projects;
 
@@ -0,0 +1,34 @@
+package com.avigeya.projectboard.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Нормализованный вариант {@link AppDataDto}: задачи ссылаются на справочники по ID.
+ */
+@Data
+@Builder
+public class AppDataV2Dto {
+    // Данные текущего пользователя
+    private Long currentUserId;
+    private String userName;
+    private String userRole;
+    private Long changeCursor;
+
+    // Проекты, доступные пользователю
+    private List<ProjectDto> projects;
+
+    private List<TaskRefDto> tasks;
+
+    // Справочники, на которые ссылаются задачи
+    private List<ProjectDto> allProjects;
+    private List<UserDto> allUsers;
+    private List<StatusDto> allStatuses;
+    private List<StageDto> allStages;
+
+    // Данные о связях
+    private List<ProjectMemberDto> projectMembers;
+    private List<ProjectStageDto> projectStages;
+}
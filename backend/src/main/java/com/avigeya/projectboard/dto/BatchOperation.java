@@ -0,0 +1,44 @@
+package com.avigeya.projectboard.dto;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.Data;
+
+/**
+ * Одна операция пакетного запроса /api/v1/batch. Тело body имеет тот же формат,
+ * что и у соответствующего отдельного эндпоинта.
+ */
+@Data
+public class BatchOperation {
+
+    public enum Type {
+        // POST /tasks: body — задача или массив задач
+        TASK_CREATE,
+        // PUT /tasks/{taskId}: body — TaskDto
+        TASK_UPDATE,
+        // PATCH /tasks/{taskId}: body — JSON Merge Patch
+        TASK_PATCH,
+        // PUT /tasks/{taskId}/members: body — {curatorId, memberIds}
+        TASK_MEMBERS,
+        // PUT /tasks/priorities: body — массив ID задач
+        TASK_PRIORITIES,
+        // PUT /tasks/batch-update: body — массив {taskId, priority, statusId, version}
+        TASK_BATCH_UPDATE,
+        // PUT /tasks/reorder: body — {taskId, previousTaskId, nextTaskId}
+        TASK_MOVE,
+        // DELETE /tasks/{taskId}
+        TASK_DELETE,
+        // POST /tasks/{taskId}/restore
+        TASK_RESTORE,
+        // PUT /projects/{projectId}/stages: body — массив ID этапов
+        PROJECT_STAGES,
+        // PUT /projects/{projectId}/members: body — {memberIds}
+        PROJECT_MEMBERS
+    }
+
+    private Type type;
+    private Long taskId;
+    private Long projectId;
+    // Ожидаемая версия задачи для TASK_UPDATE и TASK_PATCH (аналог If-Match)
+    private Integer version;
+    private JsonNode body;
+}
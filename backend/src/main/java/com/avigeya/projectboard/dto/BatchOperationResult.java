@@ -0,0 +1,33 @@
+package com.avigeya.projectboard.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Результат одной операции пакетного запроса.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchOperationResult {
+
+    public enum Outcome {
+        // Операция выполнена, и пакет зафиксирован
+        DONE,
+        FAILED,
+        // Операция выполнена, но откачена вместе с пакетом; ответа операции нет
+        ROLLED_BACK,
+        // Не выполнялась, потому что раньше в пакете произошла ошибка
+        SKIPPED
+    }
+
+    private int index;
+    private BatchOperation.Type type;
+    private Outcome outcome;
+    // HTTP-статус, который вернул бы отдельный эндпоинт
+    private int status;
+    // Ответ операции (задача, список задач, ранги); для FAILED с конфликтом версий — текущая задача
+    private Object result;
+    private String message;
+}
@@ -0,0 +1,19 @@
+package com.avigeya.projectboard.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Ответ пакетного запроса: зафиксирована ли транзакция и результат по каждой
+ * операции в порядке запроса.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchResponse {
+    private boolean committed;
+    private List<BatchOperationResult> results;
+}
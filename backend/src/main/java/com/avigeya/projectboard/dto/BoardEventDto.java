@@ -0,0 +1,23 @@
+package com.avigeya.projectboard.dto;
+
+import com.avigeya.projectboard.domain.ChangeEntityType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Событие потока /api/v1/board/events. Содержит только ID: сами задачи и связи
+ * клиент забирает через /app-data/changes, где учитывается их видимость.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BoardEventDto {
+    private ChangeEntityType type;
+    private Long projectId;
+    private List<Long> ids;
+    // true для удаленных задач
+    private boolean deleted;
+}
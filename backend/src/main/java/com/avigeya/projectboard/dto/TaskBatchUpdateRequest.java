@@ -7,4 +7,6 @@ public class TaskBatchUpdateRequest {
     private Long taskId;
     private Integer priority;
     private Long statusId;
+    // Версия задачи, которую видел клиент. Если не передана, проверка версии не выполняется.
+    private Integer version;
 }
@@ -0,0 +1,26 @@
+package com.avigeya.projectboard.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Результат пакетного обновления для одной задачи.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskBatchUpdateResult {
+
+    public enum Outcome {
+        UPDATED,
+        NOT_FOUND,
+        VERSION_CONFLICT
+    }
+
+    private Long taskId;
+    private Outcome outcome;
+    // Текущая версия задачи: новая для UPDATED, актуальная для VERSION_CONFLICT, null для NOT_FOUND
+    private Integer version;
+    private String message;
+}
@@ -0,0 +1,8 @@
+package com.avigeya.projectboard.dto;
+
+/**
+ * Колонка доски: задачи одного проекта в одном статусе. В пределах колонки
+ * задачи упорядочены по рангу.
+ */
+public record TaskColumn(Long projectId, Long statusId) {
+}
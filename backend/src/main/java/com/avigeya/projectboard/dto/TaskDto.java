@@ -10,6 +10,7 @@ public class TaskDto {
     private String name;
     private String message;
     private Integer priority;
+    private Long rank;
     private LocalDate startDate;
     private LocalDate finishDate;
     private StatusDto status;
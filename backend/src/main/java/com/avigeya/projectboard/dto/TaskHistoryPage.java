@@ -0,0 +1,21 @@
+package com.avigeya.projectboard.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Страница архива выполненных задач.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskHistoryPage {
+    private List<TaskDto> tasks;
+    private int page;
+    private int size;
+    // Есть ли следующая страница; общее число задач не считается
+    private boolean hasMore;
+}
@@ -0,0 +1,7 @@
+package com.avigeya.projectboard.dto;
+
+/**
+ * Пара (задача, участник) без данных пользователя.
+ */
+public record TaskMemberIdRow(Long taskId, Long userId) {
+}
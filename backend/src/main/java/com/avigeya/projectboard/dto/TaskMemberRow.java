@@ -0,0 +1,7 @@
+package com.avigeya.projectboard.dto;
+
+/**
+ * Плоская проекция участника задачи.
+ */
+public record TaskMemberRow(Long taskId, Long userId, String userName, String userRole) {
+}
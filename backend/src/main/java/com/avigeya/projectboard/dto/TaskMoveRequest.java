@@ -0,0 +1,15 @@
+package com.avigeya.projectboard.dto;
+
+import lombok.Data;
+
+/**
+ * Перемещение задачи между двумя соседями в той же колонке.
+ */
+@Data
+public class TaskMoveRequest {
+    private Long taskId;
+    // Задача, которая окажется над перемещенной (null — в начало колонки)
+    private Long previousTaskId;
+    // Задача, которая окажется под перемещенной (null — в конец колонки)
+    private Long nextTaskId;
+}
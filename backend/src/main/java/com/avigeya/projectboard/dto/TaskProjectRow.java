@@ -0,0 +1,7 @@
+package com.avigeya.projectboard.dto;
+
+/**
+ * Задача и ее проект.
+ */
+public record TaskProjectRow(Long taskId, Long projectId) {
+}
@@ -0,0 +1,13 @@
+package com.avigeya.projectboard.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskRankDto {
+    private Long taskId;
+    private Long rank;
+}
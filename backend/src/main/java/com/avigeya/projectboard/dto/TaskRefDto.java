@@ -0,0 +1,28 @@
+package com.avigeya.projectboard.dto;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * Задача в нормализованном ответе /api/v2/app-data.
+ * Вместо вложенных DTO содержит только ID; сами статусы, этапы и пользователи
+ * передаются один раз в справочниках ответа.
+ */
+@Data
+public class TaskRefDto {
+    private Long id;
+    private String name;
+    private String message;
+    private Integer priority;
+    private Long rank;
+    private LocalDate startDate;
+    private LocalDate finishDate;
+    private Long projectId;
+    private Long statusId;
+    private Long stageId;
+    private Long curatorId;
+    private Long authorId;
+    private long[] memberIds;
+    private Integer version;
+}
@@ -0,0 +1,65 @@
+package com.avigeya.projectboard.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Плоская проекция задачи для чтения доски.
+ * Заполняется конструкторным выражением JPQL, поэтому управляемые сущности
+ * (и их ленивые связи) при чтении не создаются.
+ */
+public record TaskRow(
+        Long id,
+        String name,
+        String message,
+        Integer priority,
+        Long rank,
+        LocalDate startDate,
+        LocalDate finishDate,
+        int version,
+        Long projectId,
+        Long statusId,
+        String statusName,
+        String statusIcon,
+        Integer statusOrder,
+        Long stageId,
+        String stageName,
+        String stageDescription,
+        Long curatorId,
+        String curatorName,
+        Long authorId,
+        String authorName) {
+
+    /**
+     * @param members Участники задачи; null, если они не загружались.
+     */
+    public TaskDto toTaskDto(List<UserDto> members) {
+        TaskDto dto = new TaskDto();
+        dto.setId(id);
+        dto.setName(name);
+        dto.setPriority(priority);
+        dto.setRank(rank);
+        dto.setStartDate(startDate);
+        dto.setMessage(message);
+        dto.setFinishDate(finishDate);
+        dto.setProjectId(projectId);
+        dto.setVersion(version);
+
+        if (statusId != null) {
+            dto.setStatus(new StatusDto(statusId, statusName, statusIcon, statusOrder));
+        }
+        if (curatorId != null) {
+            dto.setCurator(new UserDto(curatorId, curatorName));
+        }
+        if (authorId != null) {
+            dto.setAuthor(new UserDto(authorId, authorName));
+        }
+        if (stageId != null) {
+            dto.setStage(new StageDto(stageId, stageName, stageDescription));
+        }
+        if (members != null) {
+            dto.setMembers(members);
+        }
+        return dto;
+    }
+}
@@ -0,0 +1,19 @@
+package com.avigeya.projectboard.event;
+
+import lombok.Value;
+
+import java.util.Set;
+
+/**
+ * Изменения закоммиченной транзакции не доставлены: очередь доставки
+ * переполнена. Публикуется сразу в потоке, закоммитившем транзакцию, поэтому
+ * слушатели должны отвечать быстро — например, попросить клиентов перечитать
+ * доску.
+ */
+@Value
+public class ChangesDroppedEvent {
+    /**
+     * Проекты, у которых в этой транзакции изменился состав участников.
+     */
+    Set<Long> memberProjectIds;
+}
@@ -0,0 +1,12 @@
+package com.avigeya.projectboard.event;
+
+import lombok.Value;
+
+/**
+ * Изменился состав участников проекта. Доставляется после коммита, по одному
+ * событию на проект за транзакцию.
+ */
+@Value
+public class ProjectMembersChangedEvent {
+    Long projectId;
+}
@@ -0,0 +1,12 @@
+package com.avigeya.projectboard.event;
+
+import lombok.Value;
+
+/**
+ * Изменился набор этапов проекта. Доставляется после коммита, по одному
+ * событию на проект за транзакцию.
+ */
+@Value
+public class ProjectStagesChangedEvent {
+    Long projectId;
+}
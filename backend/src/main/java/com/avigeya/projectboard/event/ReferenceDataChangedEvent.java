@@ -0,0 +1,16 @@
+package com.avigeya.projectboard.event;
+
+import lombok.Value;
+
+/**
+ * Событие об изменении справочных данных (пользователи, проекты, этапы,
+ * участники и этапы проектов).
+ * Публикуется внутри транзакции и обрабатывается только после ее коммита.
+ */
+@Value
+public class ReferenceDataChangedEvent {
+    /**
+     * Что именно изменилось (для логирования).
+     */
+    String reason;
+}
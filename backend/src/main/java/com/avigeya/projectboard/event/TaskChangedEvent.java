@@ -0,0 +1,18 @@
+package com.avigeya.projectboard.event;
+
+import lombok.Value;
+
+import java.util.Set;
+
+/**
+ * Задачи одного проекта, измененные или удаленные в закоммиченной транзакции.
+ * Изменения одной транзакции схлопнуты: каждая задача встречается один раз и
+ * попадает в {@link #deletedTaskIds}, только если последней операцией с ней
+ * было удаление или если она перенесена из этого проекта в другой.
+ */
+@Value
+public class TaskChangedEvent {
+    Long projectId;
+    Set<Long> changedTaskIds;
+    Set<Long> deletedTaskIds;
+}
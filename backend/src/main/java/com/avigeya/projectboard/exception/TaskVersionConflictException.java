@@ -0,0 +1,20 @@
+package com.avigeya.projectboard.exception;
+
+import com.avigeya.projectboard.dto.TaskDto;
+import lombok.Getter;
+
+/**
+ * Задача изменилась после того, как клиент ее прочитал: версия из запроса не
+ * совпала с текущей. Несет текущее состояние задачи, чтобы клиент мог
+ * показать его без повторной загрузки доски.
+ */
+@Getter
+public class TaskVersionConflictException extends RuntimeException {
+
+    private final TaskDto current;
+
+    public TaskVersionConflictException(String message, TaskDto current) {
+        super(message);
+        this.current = current;
+    }
+}
@@ -0,0 +1,47 @@
+package com.avigeya.projectboard.repository;
+
+import com.avigeya.projectboard.domain.ArchivedTask;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+
+public interface ArchivedTaskRepository extends JpaRepository<ArchivedTask, Long> {
+
+    /**
+     * Архив проекта, начиная с последних перенесенных задач.
+     */
+    @Query("SELECT a FROM ArchivedTask a WHERE a.projectId = :projectId ORDER BY a.archivedAt DESC, a.id DESC")
+    Slice<ArchivedTask> findByProjectId(@Param("projectId") Long projectId, Pageable pageable);
+
+    /**
+     * То же, но только задачи, где пользователь был куратором, автором или
+     * участником.
+     */
+    @Query("SELECT a FROM ArchivedTask a WHERE a.projectId = :projectId " +
+            "AND (a.curatorId = :userId OR a.authorId = :userId OR :userId MEMBER OF a.memberIds) " +
+            "ORDER BY a.archivedAt DESC, a.id DESC")
+    Slice<ArchivedTask> findByProjectIdVisibleToUser(@Param("projectId") Long projectId,
+            @Param("userId") Long userId, Pageable pageable);
+
+    /**
+     * Копирует задачи в архив одним INSERT ... SELECT.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO archived_tasks (id, name, message, priority, start_date, finish_date, " +
+            "project_id, status_id, stage_id, curator_id, author_id, version, archived_at) " +
+            "SELECT id, name, message, priority, start_date, finish_date, " +
+            "project_id, status_id, stage_id, user_id, author_user_id, version, :archivedAt " +
+            "FROM tasks WHERE id IN (:taskIds)", nativeQuery = true)
+    int copyTasks(@Param("taskIds") Collection<Long> taskIds, @Param("archivedAt") Instant archivedAt);
+
+    @Modifying
+    @Query(value = "INSERT INTO archived_task_members (task_id, user_id) " +
+            "SELECT task_id, user_id FROM task_members WHERE task_id IN (:taskIds)", nativeQuery = true)
+    int copyMembers(@Param("taskIds") Collection<Long> taskIds);
+}
@@ -0,0 +1,79 @@
+package com.avigeya.projectboard.repository;
+
+import com.avigeya.projectboard.domain.ChangeLogEntry;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface ChangeLogRepository extends JpaRepository<ChangeLogEntry, Long> {
+
+    List<ChangeLogEntry> findTop1000ByIdGreaterThanOrderByIdAsc(Long since);
+
+    @Query("SELECT COALESCE(MAX(c.id), 0) FROM ChangeLogEntry c")
+    long findMaxId();
+
+    @Query("SELECT COALESCE(MIN(c.id), 0) FROM ChangeLogEntry c")
+    long findMinId();
+
+    /**
+     * Хвост журнала, который еще может пополниться записями с меньшими
+     * номерами: последняя запись старше settledBefore и все записи после нее.
+     */
+    @Query("SELECT c FROM ChangeLogEntry c WHERE c.id >= (SELECT COALESCE(MAX(o.id), 0) FROM ChangeLogEntry o "
+            + "WHERE o.changedAt < :settledBefore) ORDER BY c.id")
+    List<ChangeLogEntry> findUnsettledTail(@Param("settledBefore") Instant settledBefore, Limit limit);
+
+    long countByIdGreaterThan(Long id);
+
+    /**
+     * Удаляет записи старше срока хранения. Последняя из них остается: по ней
+     * {@link #findUnsettledTail} находит начало хвоста, а {@link #findMinId}
+     * отличает удаленные записи от еще не записанных.
+     */
+    @Modifying
+    @Query("DELETE FROM ChangeLogEntry c WHERE c.changedAt < :before AND c.id < (SELECT MAX(o.id) "
+            + "FROM ChangeLogEntry o WHERE o.changedAt < :before)")
+    int deleteChangedBefore(@Param("before") Instant before);
+
+    /**
+     * Записывает изменения задач одним INSERT ... SELECT: номера выдает сама
+     * последовательность в БД, без отдельного обращения за каждым ID.
+     * Значение entity_type должно совпадать с {@code ChangeEntityType.TASK}.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO change_log (id, entity_type, entity_id, project_id, deleted, changed_at) "
+            + "SELECT nextval('change_log_seq'), 'TASK', t.id, t.project_id, false, CURRENT_TIMESTAMP "
+            + "FROM tasks t WHERE t.id IN (:taskIds)", nativeQuery = true)
+    int insertTaskChanges(@Param("taskIds") Collection<Long> taskIds);
+
+    /**
+     * Записывает "надгробие" задачи тем же способом; проект берется из строки
+     * задачи, которая при мягком удалении остается в таблице.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO change_log (id, entity_type, entity_id, project_id, deleted, changed_at) "
+            + "SELECT nextval('change_log_seq'), 'TASK', t.id, t.project_id, true, CURRENT_TIMESTAMP "
+            + "FROM tasks t WHERE t.id = :taskId", nativeQuery = true)
+    int insertTaskDeletion(@Param("taskId") Long taskId);
+
+    /**
+     * Записывает потерю доступа для строк видимости задач, которые больше не
+     * подтверждаются ни куратором, ни автором, ни участником. Вызывается до
+     * пересчета строк, когда связи задач уже записаны в БД. Значение
+     * entity_type должно совпадать с {@code ChangeEntityType.TASK_ACCESS}.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO change_log (id, entity_type, entity_id, project_id, user_id, deleted, changed_at) "
+            + "SELECT nextval('change_log_seq'), 'TASK_ACCESS', v.task_id, t.project_id, v.user_id, false, "
+            + "CURRENT_TIMESTAMP FROM user_task_visibility v JOIN tasks t ON t.id = v.task_id "
+            + "WHERE v.task_id IN (:taskIds) AND t.user_id <> v.user_id AND t.author_user_id <> v.user_id "
+            + "AND NOT EXISTS (SELECT 1 FROM task_members tm WHERE tm.task_id = v.task_id AND tm.user_id = v.user_id)",
+            nativeQuery = true)
+    int insertTaskAccessRevocations(@Param("taskIds") Collection<Long> taskIds);
+}
@@ -3,10 +3,30 @@ package com.avigeya.projectboard.repository;
 import com.avigeya.projectboard.domain.ProjectMember;
 import com.avigeya.projectboard.domain.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
 import java.util.List;
 
 public interface ProjectMemberRepository extends JpaRepository<ProjectMember, Long> {
     List<ProjectMember> findByUser(User user);
 
+    List<ProjectMember> findByUserId(Long userId);
+
+    List<ProjectMember> findByProjectIdIn(Collection<Long> projectIds);
+
     void deleteByProjectId(Long projectId);
+
+    List<ProjectMember> findByProjectId(Long projectId);
+
+    /**
+     * Добавляет активных участников проекта одним INSERT ... SELECT.
+     * Несуществующие пользователи пропускаются.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO project_members (project_id, user_id, is_active) " +
+            "SELECT :projectId, u.id, true FROM users u WHERE u.id IN (:userIds)", nativeQuery = true)
+    int insertActiveMembers(@Param("projectId") Long projectId, @Param("userIds") Collection<Long> userIds);
 }
\ No newline at end of file
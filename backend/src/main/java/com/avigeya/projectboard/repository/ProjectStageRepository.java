@@ -4,12 +4,29 @@ import com.avigeya.projectboard.domain.ProjectStage;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface ProjectStageRepository extends JpaRepository<ProjectStage, Long> {
 
+    List<ProjectStage> findByProjectIdIn(Collection<Long> projectIds);
+
     @Modifying
     @Query("DELETE FROM ProjectStage ps WHERE ps.project.id = :projectId")
     void deleteByProjectId(Long projectId);
+
+    List<ProjectStage> findByProjectId(Long projectId);
+
+    /**
+     * Добавляет активные этапы проекта одним INSERT ... SELECT.
+     * Несуществующие этапы пропускаются.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO project_stages (project_id, stage_id, is_active) " +
+            "SELECT :projectId, s.id, true FROM stages s WHERE s.id IN (:stageIds)", nativeQuery = true)
+    int insertActiveStages(@Param("projectId") Long projectId, @Param("stageIds") Collection<Long> stageIds);
 }
\ No newline at end of file
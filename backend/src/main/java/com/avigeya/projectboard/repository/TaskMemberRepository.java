@@ -1,13 +1,66 @@
 package com.avigeya.projectboard.repository;
 
 import com.avigeya.projectboard.domain.TaskMember;
+import com.avigeya.projectboard.dto.TaskMemberIdRow;
+import com.avigeya.projectboard.dto.TaskMemberRow;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
+
 public interface TaskMemberRepository extends JpaRepository<TaskMember, Long> {
+    @Query("SELECT new com.avigeya.projectboard.dto.TaskMemberRow(tm.task.id, u.id, u.name, u.role) " +
+            "FROM TaskMember tm JOIN tm.user u WHERE tm.task.id IN :taskIds")
+    List<TaskMemberRow> findMemberRowsByTaskIds(@Param("taskIds") Collection<Long> taskIds);
+
+    /**
+     * Участники всех открытых задач: тот же фильтр, что у
+     * {@link TaskRepository#findOpenTaskRows}, но без списка ID, поэтому запрос
+     * можно выполнять одновременно с чтением самих задач.
+     */
+    @Query("SELECT new com.avigeya.projectboard.dto.TaskMemberRow(tm.task.id, u.id, u.name, u.role) " +
+            "FROM TaskMember tm JOIN tm.user u JOIN tm.task t JOIN t.status st " +
+            "WHERE " + TaskRepository.TASK_ROW_OPEN)
+    List<TaskMemberRow> findOpenTaskMemberRows(@Param("doneStatus") String doneStatus);
+
+    /**
+     * Участники открытых задач, которые видит пользователь (как
+     * {@link TaskRepository#findOpenTaskRowsForUser}).
+     */
+    @Query("SELECT new com.avigeya.projectboard.dto.TaskMemberRow(tm.task.id, u.id, u.name, u.role) " +
+            "FROM UserTaskVisibility v JOIN TaskMember tm ON tm.task.id = v.taskId " +
+            "JOIN tm.user u JOIN tm.task t JOIN t.status st " +
+            "WHERE v.userId = :userId AND " + TaskRepository.TASK_ROW_OPEN)
+    List<TaskMemberRow> findOpenTaskMemberRowsForUser(@Param("doneStatus") String doneStatus,
+            @Param("userId") Long userId);
+
+    @Query("SELECT new com.avigeya.projectboard.dto.TaskMemberIdRow(tm.task.id, tm.user.id) " +
+            "FROM TaskMember tm WHERE tm.task.id IN :taskIds")
+    List<TaskMemberIdRow> findMemberIdRowsByTaskIds(@Param("taskIds") Collection<Long> taskIds);
+
+    @Modifying
+    @Query("DELETE FROM TaskMember tm WHERE tm.task.id IN :taskIds")
+    int deleteByTaskIdIn(@Param("taskIds") Collection<Long> taskIds);
+
+    @Query("SELECT tm.user.id FROM TaskMember tm WHERE tm.task.id = :taskId")
+    List<Long> findUserIdsByTaskId(@Param("taskId") Long taskId);
+
+    @Modifying
+    @Query("DELETE FROM TaskMember tm WHERE tm.task.id = :taskId AND tm.user.id IN :userIds")
+    int deleteByTaskIdAndUserIdIn(@Param("taskId") Long taskId, @Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Добавляет участников задачи одним INSERT ... SELECT. Несуществующие
+     * пользователи пропускаются. ID берется напрямую из task_members_seq: каждый
+     * такой вызов занимает целый блок последовательности, поэтому не пересекается
+     * с блоками, выданными Hibernate.
+     */
     @Modifying
-    @Query("DELETE FROM TaskMember tm WHERE tm.task.id = :taskId")
-    void deleteByTaskId(@Param("taskId") Long taskId);
+    @Query(value = "INSERT INTO task_members (id, task_id, user_id) " +
+            "SELECT nextval('task_members_seq'), :taskId, u.id FROM users u WHERE u.id IN (:userIds)",
+            nativeQuery = true)
+    int insertMembers(@Param("taskId") Long taskId, @Param("userIds") Collection<Long> userIds);
 }
\ No newline at end of file
@@ -3,12 +3,24 @@ package com.avigeya.projectboard.repository;
 import com.avigeya.projectboard.domain.Project;
 import com.avigeya.projectboard.domain.Task;
 import com.avigeya.projectboard.domain.User;
+import com.avigeya.projectboard.dto.TaskColumn;
+import com.avigeya.projectboard.dto.TaskProjectRow;
+import com.avigeya.projectboard.dto.TaskRow;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Stream;
 
 public interface TaskRepository extends JpaRepository<Task, Long> {
 
@@ -19,13 +31,227 @@ public interface TaskRepository extends JpaRepository<Task, Long> {
                      "LEFT JOIN FETCH t.project " +
                      "LEFT JOIN FETCH t.curator " +
                      "LEFT JOIN FETCH t.author " +
-                     "LEFT JOIN FETCH t.status")
+                     "LEFT JOIN FETCH t.status " +
+                     "LEFT JOIN FETCH t.taskMembers tm LEFT JOIN FETCH tm.user " +
+                     "WHERE t.isDeleted = false")
        Set<Task> findAllWithDetails();
 
        @Query("SELECT t FROM Task t " +
                      "LEFT JOIN FETCH t.stage LEFT JOIN FETCH t.project LEFT JOIN FETCH t.curator " +
                      "LEFT JOIN FETCH t.author LEFT JOIN FETCH t.status " +
-                     "WHERE t.curator = :user OR t.author = :user OR " +
-                     "EXISTS (SELECT tm FROM TaskMember tm WHERE tm.task = t AND tm.user = :user)")
+                     "LEFT JOIN FETCH t.taskMembers tm LEFT JOIN FETCH tm.user " +
+                     "WHERE t.isDeleted = false " +
+                     "AND t.id IN (SELECT v.taskId FROM UserTaskVisibility v WHERE v.userId = :#{#user.id})")
        Set<Task> findTasksForUserWithDetails(@Param("user") User user);
-}
\ No newline at end of file
+
+       @Query("SELECT t FROM Task t " +
+                     "LEFT JOIN FETCH t.stage LEFT JOIN FETCH t.project LEFT JOIN FETCH t.curator " +
+                     "LEFT JOIN FETCH t.author LEFT JOIN FETCH t.status " +
+                     "LEFT JOIN FETCH t.taskMembers tm LEFT JOIN FETCH tm.user " +
+                     "WHERE t.id IN :ids")
+       List<Task> findAllWithDetailsByIdIn(@Param("ids") Collection<Long> ids);
+
+       String TASK_ROW_PROJECTION = "SELECT new com.avigeya.projectboard.dto.TaskRow(" +
+                     "t.id, t.name, t.message, t.priority, t.rank, t.startDate, t.finishDate, t.version, t.project.id, " +
+                     "st.id, st.name, st.icon, st.order, sg.id, sg.name, sg.description, " +
+                     "c.id, c.name, a.id, a.name) ";
+
+       String TASK_ROW_JOINS = "JOIN t.status st LEFT JOIN t.stage sg " +
+                     "LEFT JOIN t.curator c LEFT JOIN t.author a ";
+
+       String TASK_ROW_OPEN = "t.isDeleted = false AND st.name <> :doneStatus ";
+
+       String TASK_ROW_SELECT = TASK_ROW_PROJECTION + "FROM Task t " + TASK_ROW_JOINS + "WHERE " + TASK_ROW_OPEN;
+
+       /**
+        * Задачи, где пользователь — куратор, автор или участник: соединение по
+        * индексу user_task_visibility (user_id, task_id) вместо OR/EXISTS.
+        */
+       String TASK_ROW_SELECT_FOR_USER = TASK_ROW_PROJECTION +
+                     "FROM UserTaskVisibility v JOIN Task t ON t.id = v.taskId " + TASK_ROW_JOINS +
+                     "WHERE v.userId = :userId AND " + TASK_ROW_OPEN;
+
+       int STREAM_FETCH_SIZE = 500;
+
+       /**
+        * Все открытые задачи (не удаленные и не в статусе doneStatus) в виде плоских строк.
+        */
+       @Query(TASK_ROW_SELECT)
+       List<TaskRow> findOpenTaskRows(@Param("doneStatus") String doneStatus);
+
+       /**
+        * Открытые задачи, где пользователь — куратор, автор или участник.
+        */
+       @Query(TASK_ROW_SELECT_FOR_USER)
+       List<TaskRow> findOpenTaskRowsForUser(@Param("doneStatus") String doneStatus, @Param("userId") Long userId);
+
+       /**
+        * Те из задач {@code ids}, что сейчас открыты.
+        */
+       @Query(TASK_ROW_SELECT + "AND t.id IN :ids")
+       List<TaskRow> findOpenTaskRowsByIdIn(@Param("doneStatus") String doneStatus, @Param("ids") Collection<Long> ids);
+
+       /**
+        * То же, что {@link #findOpenTaskRows}, но строки читаются курсором БД порциями
+        * по {@value #STREAM_FETCH_SIZE}. Вызывать только внутри транзакции и закрывать поток.
+        */
+       @Query(TASK_ROW_SELECT)
+       @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+       Stream<TaskRow> streamOpenTaskRows(@Param("doneStatus") String doneStatus);
+
+       @Query(TASK_ROW_SELECT_FOR_USER)
+       @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+       Stream<TaskRow> streamOpenTaskRowsForUser(@Param("doneStatus") String doneStatus,
+                     @Param("userId") Long userId);
+
+       /**
+        * Одна неудаленная задача (в том числе выполненная) в виде плоской строки.
+        */
+       @Query(TASK_ROW_PROJECTION +
+                     "FROM Task t LEFT JOIN t.status st LEFT JOIN t.stage sg " +
+                     "LEFT JOIN t.curator c LEFT JOIN t.author a WHERE t.id = :id AND t.isDeleted = false")
+       Optional<TaskRow> findTaskRowById(@Param("id") Long id);
+
+       /**
+        * Обновляет задачу одним запросом, если ее версия совпадает с
+        * {@code expectedVersion} (при null версия не проверяется). Ссылки на
+        * статус, этап, проект, куратора и приоритет меняются, только если переданы;
+        * при смене статуса ранг сбрасывается, и задача встает в конец новой колонки,
+        * а completed_at становится {@code now}, если новый статус — «выполнено»
+        * ({@code completes}), и null в остальных случаях.
+        * Управляемые сущности в обход не обновляются: вызывать до того, как задача
+        * загружена в контекст персистентности. Необязательные параметры приведены
+        * к типам столбцов: иначе PostgreSQL не может вывести тип переданного null.
+        *
+        * @return 1, если задача обновлена; 0, если она не найдена, удалена или
+        *         версия не совпала.
+        */
+       @Modifying
+       @Query(value = "UPDATE tasks SET name = :name, message = CAST(:message AS text), " +
+                     "priority = COALESCE(CAST(:priority AS integer), priority), " +
+                     "start_date = CAST(:startDate AS date), finish_date = CAST(:finishDate AS date), " +
+                     "sort_rank = CASE WHEN CAST(:statusId AS bigint) IS NULL " +
+                     "OR status_id = CAST(:statusId AS bigint) THEN sort_rank END, " +
+                     "completed_at = CASE WHEN CAST(:statusId AS bigint) IS NULL " +
+                     "OR status_id = CAST(:statusId AS bigint) THEN completed_at " +
+                     "WHEN :completes THEN :now END, " +
+                     "status_id = COALESCE(CAST(:statusId AS bigint), status_id), " +
+                     "stage_id = COALESCE(CAST(:stageId AS bigint), stage_id), " +
+                     "project_id = COALESCE(CAST(:projectId AS bigint), project_id), " +
+                     "user_id = COALESCE(CAST(:curatorId AS bigint), user_id), " +
+                     "version = version + 1 " +
+                     "WHERE id = :id AND is_deleted = false " +
+                     "AND (CAST(:expectedVersion AS integer) IS NULL " +
+                     "OR version = CAST(:expectedVersion AS integer))", nativeQuery = true)
+       int updateIfVersionMatches(@Param("id") Long id, @Param("expectedVersion") Integer expectedVersion,
+                     @Param("name") String name, @Param("message") String message,
+                     @Param("priority") Integer priority, @Param("startDate") LocalDate startDate,
+                     @Param("finishDate") LocalDate finishDate, @Param("statusId") Long statusId,
+                     @Param("stageId") Long stageId, @Param("projectId") Long projectId,
+                     @Param("curatorId") Long curatorId, @Param("completes") boolean completes,
+                     @Param("now") Instant now);
+
+       /**
+        * Проект каждой задачи, в том числе удаленной.
+        */
+       @Query("SELECT new com.avigeya.projectboard.dto.TaskProjectRow(t.id, t.project.id) FROM Task t " +
+                     "WHERE t.id IN :ids")
+       List<TaskProjectRow> findProjectIdsByIdIn(@Param("ids") Collection<Long> ids);
+
+       /**
+        * Помечает задачу удаленной одним запросом.
+        *
+        * @return 1, если задача помечена; 0, если она не найдена или уже удалена.
+        */
+       @Modifying
+       @Query(value = "UPDATE tasks SET is_deleted = true, deleted_at = :deletedAt, version = version + 1 " +
+                     "WHERE id = :id AND is_deleted = false", nativeQuery = true)
+       int markDeleted(@Param("id") Long id, @Param("deletedAt") Instant deletedAt);
+
+       /**
+        * Снимает пометку об удалении, если задача удалена не раньше
+        * {@code deletedSince}.
+        *
+        * @return 1, если задача восстановлена; 0, если она не удалена, не найдена
+        *         или срок восстановления истек.
+        */
+       @Modifying
+       @Query(value = "UPDATE tasks SET is_deleted = false, deleted_at = NULL, version = version + 1 " +
+                     "WHERE id = :id AND is_deleted = true AND deleted_at >= :deletedSince", nativeQuery = true)
+       int restoreDeleted(@Param("id") Long id, @Param("deletedSince") Instant deletedSince);
+
+       /**
+        * ID задач, удаленных раньше {@code deletedBefore}, не больше {@code limit}.
+        * Задачи с is_deleted без deleted_at (помеченные до появления столбца) не
+        * возвращаются.
+        */
+       @Query(value = "SELECT id FROM tasks WHERE is_deleted = true AND deleted_at < :deletedBefore " +
+                     "ORDER BY deleted_at LIMIT :limit", nativeQuery = true)
+       List<Long> findDeletedBefore(@Param("deletedBefore") Instant deletedBefore, @Param("limit") int limit);
+
+       /**
+        * Окончательно удаляет задачи, которые все еще помечены удаленными.
+        * Участников нужно удалить раньше.
+        */
+       @Modifying
+       @Query("DELETE FROM Task t WHERE t.id IN :ids AND t.isDeleted = true")
+       int purgeDeleted(@Param("ids") Collection<Long> ids);
+
+       /**
+        * Отмечает моментом {@code now} выполненные задачи без completed_at:
+        * выполненные до появления столбца или загруженные из CSV. Срок до их
+        * архивации отсчитывается с этого момента.
+        *
+        * @return Сколько задач отмечено.
+        */
+       @Modifying
+       @Query(value = "UPDATE tasks SET completed_at = :now WHERE completed_at IS NULL " +
+                     "AND status_id IN (SELECT s.id FROM statuses s WHERE s.name = :doneStatus)", nativeQuery = true)
+       int markCompletedWithoutTimestamp(@Param("doneStatus") String doneStatus, @Param("now") Instant now);
+
+       /**
+        * Неудаленные задачи в статусе {@code doneStatus}, выполненные раньше
+        * {@code completedBefore}. Строки блокируются до конца транзакции, чтобы
+        * задачу не переоткрыли, пока она переносится в архив.
+        */
+       @Query(value = "SELECT t.id FROM tasks t " +
+                     "WHERE t.status_id IN (SELECT s.id FROM statuses s WHERE s.name = :doneStatus) " +
+                     "AND t.is_deleted = false AND t.completed_at < :completedBefore " +
+                     "ORDER BY t.id LIMIT :limit FOR UPDATE", nativeQuery = true)
+       List<Long> lockCompletedBefore(@Param("doneStatus") String doneStatus,
+                     @Param("completedBefore") Instant completedBefore, @Param("limit") int limit);
+
+       /**
+        * Задачи колонки в текущем порядке. Задачи без ранга идут последними в
+        * порядке приоритета.
+        */
+       @Query("SELECT t FROM Task t WHERE t.project.id = :projectId AND t.status.id = :statusId " +
+                     "AND t.isDeleted = false ORDER BY t.rank ASC NULLS LAST, t.priority ASC NULLS LAST, t.id ASC")
+       List<Task> findColumnOrderedByRank(@Param("projectId") Long projectId, @Param("statusId") Long statusId);
+
+       @Query("SELECT DISTINCT new com.avigeya.projectboard.dto.TaskColumn(t.project.id, t.status.id) " +
+                     "FROM Task t WHERE t.rank IS NULL AND t.status IS NOT NULL AND t.isDeleted = false")
+       List<TaskColumn> findColumnsWithUnrankedTasks();
+
+       /**
+        * Колонки, в которых промежуток между соседними рангами меньше
+        * {@code minGap}. Соседей сравнивает LAG за один проход по индексу
+        * idx_tasks_column_rank, без соединения колонки с самой собой.
+        */
+       default List<TaskColumn> findColumnsWithTightRanks(long minGap) {
+              return findTightRankColumnIds(minGap).stream()
+                            .map(row -> new TaskColumn(((Number) row[0]).longValue(), ((Number) row[1]).longValue()))
+                            .toList();
+       }
+
+       /**
+        * Пары (project_id, status_id) для {@link #findColumnsWithTightRanks}: в
+        * нативном запросе конструктор DTO недоступен.
+        */
+       @Query(value = "SELECT DISTINCT project_id, status_id FROM (" +
+                     "SELECT project_id, status_id, sort_rank - LAG(sort_rank) OVER (" +
+                     "PARTITION BY project_id, status_id ORDER BY sort_rank) AS rank_gap " +
+                     "FROM tasks WHERE is_deleted = false AND status_id IS NOT NULL AND sort_rank IS NOT NULL) ranked " +
+                     "WHERE rank_gap < :minGap", nativeQuery = true)
+       List<Object[]> findTightRankColumnIds(@Param("minGap") long minGap);
+}
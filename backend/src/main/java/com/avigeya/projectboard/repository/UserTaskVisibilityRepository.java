@@ -0,0 +1,62 @@
+package com.avigeya.projectboard.repository;
+
+import com.avigeya.projectboard.domain.UserTaskVisibility;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface UserTaskVisibilityRepository extends JpaRepository<UserTaskVisibility, UserTaskVisibility.Key> {
+
+    // Куратор хранится в tasks.user_id, автор — в tasks.author_user_id; UNION убирает повторы
+    String VISIBLE_USERS = "SELECT user_id, id FROM tasks WHERE id IN (:taskIds) " +
+            "UNION SELECT author_user_id, id FROM tasks WHERE id IN (:taskIds) " +
+            "UNION SELECT user_id, task_id FROM task_members WHERE task_id IN (:taskIds)";
+
+    /**
+     * Добавляет строки видимости для задач по их текущим куратору, автору и
+     * участникам. Для задач, у которых строки уже есть, сначала вызвать
+     * {@link #deleteByTaskIdIn}.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO user_task_visibility (user_id, task_id) " + VISIBLE_USERS, nativeQuery = true)
+    int insertForTasks(@Param("taskIds") Collection<Long> taskIds);
+
+    /**
+     * Блокирует строки задач до конца транзакции: пересчеты видимости одной
+     * задачи выполняются по очереди, а не вперемешку.
+     */
+    @Query(value = "SELECT id FROM tasks WHERE id IN (:taskIds) ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<Long> lockTasks(@Param("taskIds") Collection<Long> taskIds);
+
+    @Modifying
+    @Query("DELETE FROM UserTaskVisibility v WHERE v.taskId IN :taskIds")
+    int deleteByTaskIdIn(@Param("taskIds") Collection<Long> taskIds);
+
+    /**
+     * Строки, которых не хватает таблице, по всем задачам.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO user_task_visibility (user_id, task_id) " +
+            "SELECT s.user_id, s.task_id FROM (" +
+            "SELECT user_id, id AS task_id FROM tasks " +
+            "UNION SELECT author_user_id, id FROM tasks " +
+            "UNION SELECT user_id, task_id FROM task_members) s " +
+            "WHERE NOT EXISTS (SELECT 1 FROM user_task_visibility v " +
+            "WHERE v.user_id = s.user_id AND v.task_id = s.task_id)", nativeQuery = true)
+    int insertMissing();
+
+    /**
+     * Строки, которые больше не подтверждаются ни куратором, ни автором, ни
+     * участником задачи (в том числе строки удаленных задач).
+     */
+    @Modifying
+    @Query(value = "DELETE FROM user_task_visibility v WHERE NOT EXISTS (" +
+            "SELECT 1 FROM tasks t WHERE t.id = v.task_id AND (t.user_id = v.user_id OR t.author_user_id = v.user_id)) " +
+            "AND NOT EXISTS (SELECT 1 FROM task_members tm WHERE tm.task_id = v.task_id AND tm.user_id = v.user_id)",
+            nativeQuery = true)
+    int deleteStale();
+}
@@ -0,0 +1,22 @@
+package com.avigeya.projectboard.service;
+
+/**
+ * Режим выполнения независимых запросов при сборке /app-data
+ * (настройка {@code board.app-data.fetch-mode}).
+ */
+public enum AppDataFetchMode {
+    /**
+     * Все запросы выполняются по очереди в одной read-only транзакции.
+     */
+    SEQUENTIAL,
+    /**
+     * Независимые запросы выполняются одновременно на виртуальных потоках,
+     * каждый в своей read-only транзакции и на своем соединении из пула.
+     */
+    PARALLEL,
+    /**
+     * Доска собирается из {@link BoardReadModel} в памяти без обращения к БД.
+     * Пока модель не загружена, запросы выполняются как в SEQUENTIAL.
+     */
+    READ_MODEL
+}
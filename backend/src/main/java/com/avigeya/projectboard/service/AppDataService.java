@@ -1,9 +1,58 @@
 package com.avigeya.projectboard.service;
 
+import com.avigeya.projectboard.dto.AppDataChangesDto;
 import com.avigeya.projectboard.dto.AppDataDto;
+import com.avigeya.projectboard.dto.AppDataV2Dto;
+
+import java.io.IOException;
+import java.io.OutputStream;
 
 public interface AppDataService {
 
-    AppDataDto getAppData(Long userId);
+    AppDataDto getAppData(SessionUser currentUser);
+
+    /**
+     * Вычисляет строгий валидатор (ETag) доски пользователя без построения DTO.
+     * Валидатор меняется при любом видимом коммите в журнал изменений (в том
+     * числе за пропуском в номерах, см. {@link ChangeLogService#currentVersion}),
+     * при инвалидации кэша справочников и при перезапуске приложения.
+     *
+     * @param currentUser Пользователь проверенной сессии.
+     * @return Значение ETag без кавычек.
+     */
+    String getAppDataETag(SessionUser currentUser);
+
+    /**
+     * Возвращает данные доски в нормализованном виде: задачи содержат только ID
+     * статуса, этапа, куратора, автора и участников.
+     *
+     * @param currentUser Пользователь проверенной сессии.
+     * @return Данные для /api/v2/app-data.
+     */
+    AppDataV2Dto getAppDataV2(SessionUser currentUser);
+
+    /**
+     * Пишет те же данные, что и {@link #getAppData(SessionUser)}, в виде JSON прямо в поток.
+     * Задачи читаются курсором БД и сериализуются порциями, поэтому расход памяти
+     * на запрос не зависит от размера доски.
+     *
+     * @param currentUser Пользователь проверенной сессии.
+     * @param out         Поток ответа. Не закрывается.
+     */
+    void writeAppData(SessionUser currentUser, OutputStream out) throws IOException;
+
+    /**
+     * Возвращает изменения доски, произошедшие после указанного курсора.
+     *
+     * @param currentUser Пользователь проверенной сессии.
+     * @param since       Курсор из предыдущего ответа (app-data или changes).
+     * @return Задачи, "надгробия" и связи проектов, изменившиеся после курсора.
+     *         Пользователь, который видит не все задачи, получает только задачи
+     *         и "надгробия" задач, которые он видит или только что перестал
+     *         видеть, и только свои проекты. Записи после пропуска в номерах журнала приходят повторно, пока
+     *         пропуск не устоится; resyncRequired — если записи после курсора
+     *         уже удалены по сроку хранения.
+     */
+    AppDataChangesDto getChanges(SessionUser currentUser, long since);
 
 }
\ No newline at end of file
@@ -1,116 +1,485 @@
 package com.avigeya.projectboard.service;
 
-import com.avigeya.projectboard.domain.Project;
+import com.avigeya.projectboard.domain.ChangeLogEntry;
 import com.avigeya.projectboard.domain.ProjectMember;
+import com.avigeya.projectboard.domain.Status;
 import com.avigeya.projectboard.domain.Task;
-import com.avigeya.projectboard.domain.User;
 import com.avigeya.projectboard.dto.*;
-import com.avigeya.projectboard.exception.ResourceNotFoundException;
 import com.avigeya.projectboard.repository.*;
 import com.avigeya.projectboard.service.AppDataService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class AppDataServiceImpl implements AppDataService {
 
-        private final UserRepository userRepository;
-        private final ProjectRepository projectRepository;
+        private static final String DONE_STATUS = Status.DONE;
+        // Должно совпадать с лимитом в ChangeLogRepository.findTop1000ByIdGreaterThanOrderByIdAsc
+        private static final int CHANGES_PAGE_SIZE = 1000;
+        // Размер пачки ID для запросов вида "WHERE ... IN (:ids)"
+        private static final int IN_CLAUSE_CHUNK_SIZE = 1000;
+        private static final long[] EMPTY_IDS = new long[0];
+        // Версия кэша справочников живет в памяти, поэтому ETag привязан к запуску приложения
+        private static final String INSTANCE_ID = Long.toString(System.currentTimeMillis(), 36);
+
         private final TaskRepository taskRepository;
-        private final StatusRepository statusRepository;
-        private final StageRepository stageRepository;
+        private final TaskMemberRepository taskMemberRepository;
         private final ProjectMemberRepository projectMemberRepository;
         private final ProjectStageRepository projectStageRepository;
+        private final ChangeLogRepository changeLogRepository;
+        private final ChangeLogService changeLogService;
+        private final ReferenceDataCache referenceDataCache;
+        private final BoardReadModel boardReadModel;
+        private final PermissionIndex permissionIndex;
+        private final ObjectMapper objectMapper;
+        private final PlatformTransactionManager transactionManager;
 
-        @Override
-        @Transactional(readOnly = true)
-        public AppDataDto getAppData(Long userId) {
-                User currentUser = userRepository.findByTgUserId(userId)
-                                .orElseThrow(() -> new ResourceNotFoundException(
-                                                "User not found with Telegram ID: " + userId));
+        @Value("${board.app-data.fetch-mode:READ_MODEL}")
+        private AppDataFetchMode fetchMode;
 
-                String role = currentUser.getRole();
+        private TransactionTemplate readOnlyTransaction;
+        private final ExecutorService lookupExecutor = Executors.newVirtualThreadPerTaskExecutor();
 
-                // 1. Оптимизированное получение задач
-                Set<Task> userTasksSet;
-                if ("owner".equals(role) || "admin".equals(role)) {
-                        userTasksSet = new HashSet<>(taskRepository.findAllWithDetails());
-                } else {
-                        userTasksSet = taskRepository.findTasksForUserWithDetails(currentUser);
+        @PostConstruct
+        void init() {
+                readOnlyTransaction = new TransactionTemplate(transactionManager);
+                readOnlyTransaction.setReadOnly(true);
+                log.info("App data fetch mode: {}", fetchMode);
+        }
+
+        @PreDestroy
+        void shutdown() {
+                lookupExecutor.shutdown();
+        }
+
+        @Override
+        public AppDataDto getAppData(SessionUser currentUser) {
+                if (fetchMode == AppDataFetchMode.READ_MODEL) {
+                        BoardReadModel.View view = boardReadModel.getView();
+                        if (view != null) {
+                                return assembleFromReadModel(currentUser, view);
+                        }
+                        // Модель еще не загружена: читаем доску из БД
                 }
+                if (fetchMode == AppDataFetchMode.PARALLEL) {
+                        return assembleAppData(currentUser, this::startOnVirtualThread);
+                }
+                return readOnlyTransaction.execute(status -> assembleAppData(currentUser, this::startInline));
+        }
+
+        /**
+         * Собирает /app-data. Независимые запросы запускаются через {@code lookups}:
+         * в последовательном режиме они выполняются сразу в текущей транзакции,
+         * в параллельном — одновременно, каждый в своей транзакции.
+         */
+        private AppDataDto assembleAppData(SessionUser currentUser, Lookups lookups) {
+                // Курсор читаем до загрузки задач: все, что изменится позже, клиент получит
+                // через /changes. Поэтому его нельзя запускать вместе с задачами
+                long cursor = changeLogService.currentCursor();
 
-                // 2. Получение проектов пользователя
-                List<Project> userProjects;
-                if ("owner".equals(role) || "admin".equals(role)) {
-                        userProjects = projectRepository.findAll();
+                // Справочники берутся из памяти; к БД кэш обращается только при перестроении
+                ReferenceDataSnapshot referenceData = referenceDataCache.getSnapshot();
+
+                // 1. Открытые задачи и их участники: фильтр по статусу, удалению и роли
+                // выполняется в БД. Участники выбираются тем же фильтром, а не по ID
+                // задач, поэтому оба запроса идут одновременно. Расхождение между ними
+                // возможно только из-за изменений после курсора, а их клиент дочитает
+                // 2. Проекты пользователя берутся из индекса прав, без запроса к project_members
+                Supplier<List<TaskRow>> taskRowsLookup;
+                Supplier<List<TaskMemberRow>> memberRowsLookup;
+                if (currentUser.seesAllTasks()) {
+                        taskRowsLookup = lookups.start(() -> taskRepository.findOpenTaskRows(DONE_STATUS));
+                        memberRowsLookup = lookups.start(() -> taskMemberRepository.findOpenTaskMemberRows(DONE_STATUS));
                 } else {
-                        userProjects = projectMemberRepository.findByUser(currentUser).stream()
-                                        .map(ProjectMember::getProject) // Заменено на ссылку на метод
-                                        .distinct()
-                                        .toList();
+                        taskRowsLookup = lookups.start(
+                                        () -> taskRepository.findOpenTaskRowsForUser(DONE_STATUS, currentUser.getId()));
+                        memberRowsLookup = lookups.start(() -> taskMemberRepository
+                                        .findOpenTaskMemberRowsForUser(DONE_STATUS, currentUser.getId()));
                 }
-                List<ProjectDto> projectDtos = userProjects.stream()
-                                .map(p -> new ProjectDto(p.getId(), p.getName()))
-                                .toList();
 
                 // 3. Конвертация задач в DTO
-                List<TaskDto> taskDtos = userTasksSet.stream()
-                                .filter(task -> task.getStatus() != null
-                                                && !"Выполнено".equals(task.getStatus().getName()))
-                                .map(this::convertToTaskDto)
+                Map<Long, List<UserDto>> membersByTask = groupMembers(memberRowsLookup.get());
+                List<TaskDto> taskDtos = taskRowsLookup.get().stream()
+                                .map(row -> row.toTaskDto(membersByTask.get(row.id())))
                                 .toList();
 
-                // 4. Загрузка справочников
-                List<UserDto> allUserDtos = userRepository.findAll().stream()
-                                .map(u -> new UserDto(u.getId(), u.getName(), u.getRole()))
-                                .toList();
-                List<StatusDto> allStatusDtos = statusRepository.findAll().stream()
-                                .map(s -> new StatusDto(s.getId(), s.getName(), s.getIcon(), s.getOrder()))
-                                .toList();
-                List<StageDto> allStageDtos = stageRepository.findAll().stream()
-                                .map(s -> new StageDto(s.getId(), s.getName(), s.getDescription()))
-                                .toList();
-                List<ProjectDto> allProjects = projectRepository.findAll().stream()
-                                .map(p -> new ProjectDto(p.getId(), p.getName()))
-                                .toList();
-                List<ProjectMemberDto> projectMembers = projectMemberRepository.findAll().stream()
-                                .map(pm -> new ProjectMemberDto(pm.getId(), pm.getProject().getId(),
-                                                pm.getUser().getId(),
-                                                pm.getIsActive()))
-                                .toList();
-                List<ProjectStageDto> projectStages = projectStageRepository.findAll().stream()
-                                .map(ps -> new ProjectStageDto(ps.getId(), ps.getProject().getId(),
-                                                ps.getStage().getId(),
-                                                ps.getIsActive()))
-                                .toList();
+                // 4. Сборка финального DTO (справочники берем из кэша, а не из БД)
+                return AppDataDto.builder()
+                                .currentUserId(currentUser.getId())
+                                .userName(currentUser.getName())
+                                .userRole(currentUser.getRole())
+                                .changeCursor(cursor)
+                                .projects(permissionIndex.visibleProjects(currentUser, referenceData))
+                                .tasks(taskDtos)
+                                .allProjects(referenceData.getProjects())
+                                .allUsers(referenceData.getUsers())
+                                .allStatuses(referenceData.getStatuses())
+                                .allStages(referenceData.getStages())
+                                .projectMembers(referenceData.getProjectMembers())
+                                .projectStages(referenceData.getProjectStages())
+                                .build();
+        }
 
-                // 5. Сборка финального DTO
+        /**
+         * Собирает /app-data из модели чтения и кэша справочников, не обращаясь к
+         * БД. Курсор берется из снимка модели: изменения после него клиент получит
+         * через /changes.
+         */
+        private AppDataDto assembleFromReadModel(SessionUser currentUser, BoardReadModel.View view) {
+                ReferenceDataSnapshot referenceData = referenceDataCache.getSnapshot();
                 return AppDataDto.builder()
                                 .currentUserId(currentUser.getId())
                                 .userName(currentUser.getName())
                                 .userRole(currentUser.getRole())
-                                .projects(projectDtos)
+                                .changeCursor(view.getCursor())
+                                .projects(permissionIndex.visibleProjects(currentUser, referenceData))
+                                .tasks(currentUser.seesAllTasks() ? view.allTasks() : view.tasksVisibleTo(currentUser.getId()))
+                                .allProjects(referenceData.getProjects())
+                                .allUsers(referenceData.getUsers())
+                                .allStatuses(referenceData.getStatuses())
+                                .allStages(referenceData.getStages())
+                                .projectMembers(referenceData.getProjectMembers())
+                                .projectStages(referenceData.getProjectStages())
+                                .build();
+        }
+
+        /**
+         * Способ запуска независимого запроса при сборке /app-data.
+         */
+        private interface Lookups {
+                <T> Supplier<T> start(Supplier<T> query);
+        }
+
+        private <T> Supplier<T> startInline(Supplier<T> query) {
+                T result = query.get();
+                return () -> result;
+        }
+
+        private <T> Supplier<T> startOnVirtualThread(Supplier<T> query) {
+                CompletableFuture<T> future = CompletableFuture.supplyAsync(
+                                () -> readOnlyTransaction.execute(status -> query.get()), lookupExecutor);
+                return () -> {
+                        try {
+                                return future.join();
+                        } catch (CompletionException e) {
+                                // Пробрасываем исходное исключение (например, ResourceNotFoundException)
+                                if (e.getCause() instanceof RuntimeException cause) {
+                                        throw cause;
+                                }
+                                throw e;
+                        }
+                };
+        }
+
+        @Override
+        @Transactional(readOnly = true)
+        public String getAppDataETag(SessionUser currentUser) {
+                return INSTANCE_ID + "-" + referenceDataCache.getVersion() + "-" + boardVersion()
+                                + "-" + currentUser.getId();
+        }
+
+        /**
+         * Версия доски, которую отдаст getAppData: в режиме READ_MODEL — курсор и
+         * номер снимка модели (модель применяет задачи и за курсором, поэтому
+         * одного курсора мало), иначе версия журнала
+         * ({@link ChangeLogService#currentVersion}).
+         */
+        private String boardVersion() {
+                if (fetchMode == AppDataFetchMode.READ_MODEL) {
+                        BoardReadModel.View view = boardReadModel.getView();
+                        if (view != null) {
+                                return view.getCursor() + "." + view.getGeneration();
+                        }
+                }
+                return changeLogService.currentVersion();
+        }
+
+        @Override
+        @Transactional(readOnly = true)
+        public AppDataV2Dto getAppDataV2(SessionUser currentUser) {
+                long changeCursor = changeLogService.currentCursor();
+                ReferenceDataSnapshot referenceData = referenceDataCache.getSnapshot();
+
+                List<TaskRow> taskRows;
+                if (currentUser.seesAllTasks()) {
+                        taskRows = taskRepository.findOpenTaskRows(DONE_STATUS);
+                } else {
+                        taskRows = taskRepository.findOpenTaskRowsForUser(DONE_STATUS, currentUser.getId());
+                }
+
+                Map<Long, long[]> memberIdsByTask = loadMemberIds(taskRows);
+                List<TaskRefDto> taskDtos = taskRows.stream()
+                                .map(row -> convertToTaskRefDto(row, memberIdsByTask.get(row.id())))
+                                .toList();
+
+                return AppDataV2Dto.builder()
+                                .currentUserId(currentUser.getId())
+                                .userName(currentUser.getName())
+                                .userRole(currentUser.getRole())
+                                .changeCursor(changeCursor)
+                                .projects(permissionIndex.visibleProjects(currentUser, referenceData))
                                 .tasks(taskDtos)
-                                .allProjects(allProjects)
-                                .allUsers(allUserDtos)
-                                .allStatuses(allStatusDtos)
-                                .allStages(allStageDtos)
+                                .allProjects(referenceData.getProjects())
+                                .allUsers(referenceData.getUsers())
+                                .allStatuses(referenceData.getStatuses())
+                                .allStages(referenceData.getStages())
+                                .projectMembers(referenceData.getProjectMembers())
+                                .projectStages(referenceData.getProjectStages())
+                                .build();
+        }
+
+        @Override
+        @Transactional(readOnly = true)
+        public void writeAppData(SessionUser currentUser, OutputStream out) throws IOException {
+                long changeCursor = changeLogService.currentCursor();
+                ReferenceDataSnapshot referenceData = referenceDataCache.getSnapshot();
+
+                // Поля пишутся в том же порядке и с теми же именами, что и в AppDataDto
+                try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)
+                                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                                Stream<TaskRow> taskRows = currentUser.seesAllTasks()
+                                                ? taskRepository.streamOpenTaskRows(DONE_STATUS)
+                                                : taskRepository.streamOpenTaskRowsForUser(DONE_STATUS,
+                                                                currentUser.getId())) {
+                        generator.writeStartObject();
+                        generator.writeObjectField("currentUserId", currentUser.getId());
+                        generator.writeObjectField("userName", currentUser.getName());
+                        generator.writeObjectField("userRole", currentUser.getRole());
+                        generator.writeObjectField("changeCursor", changeCursor);
+                        generator.writeObjectField("projects", permissionIndex.visibleProjects(currentUser, referenceData));
+
+                        // Задачи пишутся порциями по мере чтения курсора: в памяти не больше одной порции
+                        generator.writeArrayFieldStart("tasks");
+                        List<TaskRow> chunk = new ArrayList<>(TaskRepository.STREAM_FETCH_SIZE);
+                        Iterator<TaskRow> iterator = taskRows.iterator();
+                        while (iterator.hasNext()) {
+                                chunk.add(iterator.next());
+                                if (chunk.size() == TaskRepository.STREAM_FETCH_SIZE || !iterator.hasNext()) {
+                                        Map<Long, List<UserDto>> membersByTask = loadMembers(chunk);
+                                        for (TaskRow row : chunk) {
+                                                generator.writeObject(
+                                                                row.toTaskDto(membersByTask.get(row.id())));
+                                        }
+                                        generator.flush();
+                                        chunk.clear();
+                                }
+                        }
+                        generator.writeEndArray();
+
+                        generator.writeObjectField("allProjects", referenceData.getProjects());
+                        generator.writeObjectField("allUsers", referenceData.getUsers());
+                        generator.writeObjectField("allStatuses", referenceData.getStatuses());
+                        generator.writeObjectField("allStages", referenceData.getStages());
+                        generator.writeObjectField("projectMembers", referenceData.getProjectMembers());
+                        generator.writeObjectField("projectStages", referenceData.getProjectStages());
+                        generator.writeEndObject();
+                }
+        }
+
+        @Override
+        @Transactional(readOnly = true)
+        public AppDataChangesDto getChanges(SessionUser currentUser, long since) {
+                boolean seesAllTasks = currentUser.seesAllTasks();
+
+                List<ChangeLogEntry> entries = changeLogRepository.findTop1000ByIdGreaterThanOrderByIdAsc(since);
+                // Записи сразу после since могли быть удалены по сроку хранения: дельты уже не восстановить
+                if ((entries.isEmpty() || entries.get(0).getId() > since + 1) && changeLogService.isPruned(since)) {
+                        return AppDataChangesDto.builder()
+                                        .cursor(since)
+                                        .resyncRequired(true)
+                                        .tasks(List.of())
+                                        .deletedTaskIds(List.of())
+                                        .changedMemberProjectIds(List.of())
+                                        .projectMembers(List.of())
+                                        .changedStageProjectIds(List.of())
+                                        .projectStages(List.of())
+                                        .build();
+                }
+                // Курсор не проходит дальше пропуска в номерах: записи за ним придут еще раз
+                long cursor = changeLogService.settledCursor(since, entries, changeLogService.settledBefore());
+                boolean reachedPageEnd = !entries.isEmpty() && cursor == entries.get(entries.size() - 1).getId();
+
+                // Несколько записей об одной сущности схлопываются в одну
+                Set<Long> taskIds = new LinkedHashSet<>();
+                Set<Long> revokedTaskIds = new HashSet<>();
+                Set<Long> memberProjectIds = new LinkedHashSet<>();
+                Set<Long> stageProjectIds = new LinkedHashSet<>();
+                for (ChangeLogEntry entry : entries) {
+                        switch (entry.getEntityType()) {
+                                case TASK -> taskIds.add(entry.getEntityId());
+                                case TASK_ACCESS -> {
+                                        if (currentUser.getId().equals(entry.getUserId())) {
+                                                taskIds.add(entry.getEntityId());
+                                                revokedTaskIds.add(entry.getEntityId());
+                                        }
+                                }
+                                case PROJECT_MEMBERS -> memberProjectIds.add(entry.getEntityId());
+                                case PROJECT_STAGES -> stageProjectIds.add(entry.getEntityId());
+                        }
+                }
+
+                List<TaskDto> changedTasks = new ArrayList<>();
+                List<Long> deletedTaskIds = new ArrayList<>();
+                if (!taskIds.isEmpty()) {
+                        Map<Long, Task> loaded = taskRepository.findAllWithDetailsByIdIn(taskIds).stream()
+                                        .collect(Collectors.toMap(Task::getId, Function.identity()));
+                        for (Long taskId : taskIds) {
+                                Task task = loaded.get(taskId);
+                                boolean related = task != null && isVisibleTo(task, currentUser.getId());
+                                if (task != null && isOpen(task) && (seesAllTasks || related)) {
+                                        changedTasks.add(convertToTaskDto(task));
+                                } else if (seesAllTasks || related || revokedTaskIds.contains(taskId)) {
+                                        // Удаленная, выполненная или ставшая невидимой задача приходит "надгробием"
+                                        deletedTaskIds.add(taskId);
+                                }
+                                // Остальные задачи клиент не видел: о них не сообщаем
+                        }
+                }
+
+                List<ProjectMember> memberRows = memberProjectIds.isEmpty() ? List.of()
+                                : projectMemberRepository.findByProjectIdIn(memberProjectIds);
+                if (!seesAllTasks) {
+                        // Участники чужих проектов клиенту не нужны. Проект, из которого
+                        // пользователя только что исключили, остается: его строка
+                        // участника сохраняется неактивной
+                        Set<Long> ownProjectIds = memberRows.stream()
+                                        .filter(pm -> currentUser.getId().equals(pm.getUser().getId()))
+                                        .map(pm -> pm.getProject().getId())
+                                        .collect(Collectors.toSet());
+                        memberProjectIds.removeIf(projectId -> !ownProjectIds.contains(projectId)
+                                        && !permissionIndex.canSeeProject(currentUser, projectId));
+                        stageProjectIds.removeIf(projectId -> !permissionIndex.canSeeProject(currentUser, projectId));
+                }
+                List<ProjectMemberDto> projectMembers = memberRows.stream()
+                                .filter(pm -> memberProjectIds.contains(pm.getProject().getId()))
+                                .map(pm -> new ProjectMemberDto(pm.getId(), pm.getProject().getId(),
+                                                pm.getUser().getId(), pm.getIsActive()))
+                                .toList();
+                List<ProjectStageDto> projectStages = stageProjectIds.isEmpty() ? List.of()
+                                : projectStageRepository.findByProjectIdIn(stageProjectIds).stream()
+                                                .map(ps -> new ProjectStageDto(ps.getId(), ps.getProject().getId(),
+                                                                ps.getStage().getId(), ps.getIsActive()))
+                                                .toList();
+
+                return AppDataChangesDto.builder()
+                                .cursor(cursor)
+                                // Если курсор остановился на пропуске, повторный запрос сразу ничего не даст
+                                .hasMore(entries.size() == CHANGES_PAGE_SIZE && reachedPageEnd)
+                                .tasks(changedTasks)
+                                .deletedTaskIds(deletedTaskIds)
+                                .changedMemberProjectIds(List.copyOf(memberProjectIds))
                                 .projectMembers(projectMembers)
+                                .changedStageProjectIds(List.copyOf(stageProjectIds))
                                 .projectStages(projectStages)
                                 .build();
         }
 
+        /**
+         * Загружает участников задач запросами IN по пачкам ID (без N+1).
+         */
+        private Map<Long, List<UserDto>> loadMembers(List<TaskRow> taskRows) {
+                List<TaskMemberRow> memberRows = new ArrayList<>();
+                List<Long> taskIds = taskRows.stream().map(TaskRow::id).toList();
+                for (int from = 0; from < taskIds.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+                        List<Long> chunk = taskIds.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, taskIds.size()));
+                        memberRows.addAll(taskMemberRepository.findMemberRowsByTaskIds(chunk));
+                }
+                return groupMembers(memberRows);
+        }
+
+        private static Map<Long, List<UserDto>> groupMembers(List<TaskMemberRow> memberRows) {
+                Map<Long, List<UserDto>> membersByTask = new HashMap<>();
+                for (TaskMemberRow row : memberRows) {
+                        membersByTask.computeIfAbsent(row.taskId(), id -> new ArrayList<>())
+                                        .add(new UserDto(row.userId(), row.userName(), row.userRole()));
+                }
+                return membersByTask;
+        }
+
+        /**
+         * Загружает только ID участников задач, сгруппированные в примитивные массивы.
+         */
+        private Map<Long, long[]> loadMemberIds(List<TaskRow> taskRows) {
+                Map<Long, List<Long>> idsByTask = new HashMap<>();
+                List<Long> taskIds = taskRows.stream().map(TaskRow::id).toList();
+                for (int from = 0; from < taskIds.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+                        List<Long> chunk = taskIds.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, taskIds.size()));
+                        for (TaskMemberIdRow row : taskMemberRepository.findMemberIdRowsByTaskIds(chunk)) {
+                                idsByTask.computeIfAbsent(row.taskId(), id -> new ArrayList<>()).add(row.userId());
+                        }
+                }
+                Map<Long, long[]> memberIdsByTask = new HashMap<>(idsByTask.size() * 2);
+                idsByTask.forEach((taskId, ids) -> memberIdsByTask.put(taskId,
+                                ids.stream().mapToLong(Long::longValue).toArray()));
+                return memberIdsByTask;
+        }
+
+        private TaskRefDto convertToTaskRefDto(TaskRow row, long[] memberIds) {
+                TaskRefDto dto = new TaskRefDto();
+                dto.setId(row.id());
+                dto.setName(row.name());
+                dto.setMessage(row.message());
+                dto.setPriority(row.priority());
+                dto.setRank(row.rank());
+                dto.setStartDate(row.startDate());
+                dto.setFinishDate(row.finishDate());
+                dto.setProjectId(row.projectId());
+                dto.setStatusId(row.statusId());
+                dto.setStageId(row.stageId());
+                dto.setCuratorId(row.curatorId());
+                dto.setAuthorId(row.authorId());
+                dto.setMemberIds(memberIds != null ? memberIds : EMPTY_IDS);
+                dto.setVersion(row.version());
+                return dto;
+        }
+
+        private boolean isOpen(Task task) {
+                return !task.isDeleted() && task.getStatus() != null && !DONE_STATUS.equals(task.getStatus().getName());
+        }
+
+        private boolean isVisibleTo(Task task, Long userId) {
+                return (task.getCurator() != null && userId.equals(task.getCurator().getId()))
+                                || (task.getAuthor() != null && userId.equals(task.getAuthor().getId()))
+                                || task.getTaskMembers().stream()
+                                                .anyMatch(tm -> userId.equals(tm.getUser().getId()));
+        }
+
         private TaskDto convertToTaskDto(Task task) {
                 TaskDto dto = new TaskDto();
                 dto.setId(task.getId());
                 dto.setName(task.getName());
                 dto.setPriority(task.getPriority());
+                dto.setRank(task.getRank());
                 dto.setStartDate(task.getStartDate());
                 dto.setMessage(task.getMessage());
                 dto.setFinishDate(task.getFinishDate());
@@ -0,0 +1,303 @@
+package com.avigeya.projectboard.service;
+
+import com.avigeya.projectboard.dto.BatchOperation;
+import com.avigeya.projectboard.dto.BatchOperationResult;
+import com.avigeya.projectboard.dto.BatchOperationResult.Outcome;
+import com.avigeya.projectboard.dto.BatchResponse;
+import com.avigeya.projectboard.dto.ProjectMemberUpdateRequest;
+import com.avigeya.projectboard.dto.TaskBatchUpdateRequest;
+import com.avigeya.projectboard.dto.TaskDto;
+import com.avigeya.projectboard.dto.TaskMemberUpdateRequest;
+import com.avigeya.projectboard.dto.TaskMoveRequest;
+import com.avigeya.projectboard.exception.BadRequestException;
+import com.avigeya.projectboard.exception.TaskVersionConflictException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Выполняет упорядоченный список операций над задачами и проектами в одной
+ * транзакции через те же методы {@link TaskService}, {@link TaskRankService} и
+ * {@link ProjectService}, что и отдельные эндпоинты.
+ * <p>
+ * Пакет атомарен: на первой ошибке транзакция откатывается, уже выполненные
+ * операции отмечаются ROLLED_BACK (без ответа), а оставшиеся не выполняются
+ * (SKIPPED). Если ошибка случилась при сбросе изменений или коммите, после
+ * всех операций, неудачей отмечается каждая операция пакета. Права
+ * проверяются для каждой операции так же, как в отдельных эндпоинтах (см.
+ * {@link PermissionIndex}).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BatchService {
+
+    private static final TypeReference<TaskDto> TASK = new TypeReference<>() {
+    };
+    private static final TypeReference<List<TaskDto>> TASK_LIST = new TypeReference<>() {
+    };
+    private static final TypeReference<List<Long>> ID_LIST = new TypeReference<>() {
+    };
+    private static final TypeReference<List<TaskBatchUpdateRequest>> BATCH_UPDATE_LIST = new TypeReference<>() {
+    };
+    private static final TypeReference<TaskMemberUpdateRequest> MEMBER_UPDATE = new TypeReference<>() {
+    };
+    private static final TypeReference<TaskMoveRequest> MOVE_REQUEST = new TypeReference<>() {
+    };
+    private static final TypeReference<ProjectMemberUpdateRequest> PROJECT_MEMBER_UPDATE = new TypeReference<>() {
+    };
+
+    private final TaskService taskService;
+    private final TaskRankService taskRankService;
+    private final ProjectService projectService;
+    private final PermissionIndex permissionIndex;
+    private final ObjectMapper objectMapper;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${board.batch.max-operations:100}")
+    private int maxOperations;
+
+    private TransactionTemplate transaction;
+
+    @PostConstruct
+    void init() {
+        transaction = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * @param operations Операции в порядке выполнения.
+     * @param user       Пользователь сессии: автор новых задач и автор изменений
+     *                   в журнале.
+     * @return Результат по каждой операции; committed = false, если пакет откачен.
+     * @throws BadRequestException если пакет пуст или длиннее допустимого.
+     */
+    public BatchResponse execute(List<BatchOperation> operations, SessionUser user) {
+        if (operations == null || operations.isEmpty()) {
+            throw new BadRequestException("Пакет не содержит операций");
+        }
+        if (operations.size() > maxOperations) {
+            throw new BadRequestException("Слишком много операций в пакете: " + operations.size()
+                    + " (не больше " + maxOperations + ")");
+        }
+
+        List<BatchOperationResult> results = new ArrayList<>(operations.size());
+        boolean committed;
+        try {
+            committed = Boolean.TRUE.equals(transaction.execute(status -> {
+                for (int i = 0; i < operations.size(); i++) {
+                    BatchOperation operation = operations.get(i);
+                    try {
+                        Object result = execute(operation, user);
+                        results.add(new BatchOperationResult(i, operation.getType(), Outcome.DONE,
+                                HttpStatus.OK.value(), result, null));
+                    } catch (RuntimeException e) {
+                        results.add(failure(i, operation, e));
+                        status.setRollbackOnly();
+                        return false;
+                    }
+                }
+                return true;
+            }));
+        } catch (RuntimeException e) {
+            // Все операции выполнены, но изменения не удалось сбросить в БД или зафиксировать
+            return new BatchResponse(false, commitFailure(operations, e));
+        }
+
+        if (!committed) {
+            int failedIndex = results.size() - 1;
+            for (int i = 0; i < failedIndex; i++) {
+                BatchOperationResult done = results.get(i);
+                done.setOutcome(Outcome.ROLLED_BACK);
+                done.setStatus(HttpStatus.FAILED_DEPENDENCY.value());
+                done.setResult(null);
+                done.setMessage("Откачена из-за ошибки в операции " + failedIndex);
+            }
+            for (int i = failedIndex + 1; i < operations.size(); i++) {
+                BatchOperation skipped = operations.get(i);
+                results.add(new BatchOperationResult(i, skipped == null ? null : skipped.getType(), Outcome.SKIPPED,
+                        HttpStatus.FAILED_DEPENDENCY.value(), null, "Не выполнена из-за ошибки в операции " + failedIndex));
+            }
+            log.info("Пакет из {} операций откачен на операции {}.", operations.size(), failedIndex);
+        }
+        return new BatchResponse(committed, results);
+    }
+
+    private Object execute(BatchOperation operation, SessionUser user) {
+        if (operation == null || operation.getType() == null) {
+            throw new BadRequestException("Не указан тип операции");
+        }
+        return switch (operation.getType()) {
+            case TASK_CREATE -> {
+                JsonNode body = requireBody(operation);
+                List<TaskDto> tasks = body.isArray() ? read(operation, TASK_LIST) : List.of(read(operation, TASK));
+                permissionIndex.checkEditProjects(user, tasks.stream().map(TaskDto::getProjectId).toList());
+                List<TaskDto> created = taskService.createTasks(tasks, user);
+                yield body.isArray() ? created : created.get(0);
+            }
+            case TASK_UPDATE -> {
+                Long taskId = requireTaskId(operation);
+                TaskDto task = read(operation, TASK);
+                permissionIndex.checkEditTasks(user, List.of(taskId));
+                permissionIndex.checkEditProjects(user, Collections.singletonList(task.getProjectId()));
+                if (operation.getVersion() != null) {
+                    task.setVersion(operation.getVersion());
+                }
+                yield taskService.updateTask(taskId, task);
+            }
+            case TASK_PATCH -> {
+                Long taskId = requireTaskId(operation);
+                JsonNode patch = requireBody(operation);
+                permissionIndex.checkPatchTask(user, taskId, patch);
+                yield taskService.patchTask(taskId, patch, operation.getVersion());
+            }
+            case TASK_MEMBERS -> {
+                Long taskId = requireTaskId(operation);
+                TaskMemberUpdateRequest request = read(operation, MEMBER_UPDATE);
+                permissionIndex.checkEditTasks(user, List.of(taskId));
+                taskService.updateTaskMembers(taskId, request.getCuratorId(), request.getMemberIds(), user.getName());
+                yield null;
+            }
+            case TASK_PRIORITIES -> {
+                List<Long> taskIds = read(operation, ID_LIST);
+                permissionIndex.checkEditTasks(user, taskIds);
+                taskService.updateTaskPriorities(taskIds);
+                yield null;
+            }
+            case TASK_BATCH_UPDATE -> {
+                List<TaskBatchUpdateRequest> updates = read(operation, BATCH_UPDATE_LIST);
+                permissionIndex.checkEditTasks(user, updates.stream().map(TaskBatchUpdateRequest::getTaskId).toList());
+                yield taskService.batchUpdateTasks(updates);
+            }
+            case TASK_MOVE -> {
+                TaskMoveRequest request = read(operation, MOVE_REQUEST);
+                permissionIndex.checkEditTasks(user, Collections.singletonList(request.getTaskId()));
+                yield taskRankService.moveTask(request);
+            }
+            case TASK_DELETE -> {
+                Long taskId = requireTaskId(operation);
+                permissionIndex.checkEditTasks(user, List.of(taskId));
+                taskService.deleteTask(taskId);
+                yield null;
+            }
+            case TASK_RESTORE -> {
+                Long taskId = requireTaskId(operation);
+                permissionIndex.checkEditTasks(user, List.of(taskId));
+                yield taskService.restoreTask(taskId);
+            }
+            case PROJECT_STAGES -> {
+                Long projectId = requireProjectId(operation);
+                permissionIndex.checkManageProjects(user);
+                projectService.updateProjectStages(projectId, read(operation, ID_LIST));
+                yield null;
+            }
+            case PROJECT_MEMBERS -> {
+                Long projectId = requireProjectId(operation);
+                permissionIndex.checkManageProjects(user);
+                ProjectMemberUpdateRequest request = read(operation, PROJECT_MEMBER_UPDATE);
+                projectService.updateProjectMembers(projectId, request.getMemberIds(), user.getName());
+                yield null;
+            }
+        };
+    }
+
+    private BatchOperationResult failure(int index, BatchOperation operation, RuntimeException e) {
+        BatchOperation.Type type = operation == null ? null : operation.getType();
+        if (e instanceof TaskVersionConflictException conflict) {
+            return new BatchOperationResult(index, type, Outcome.FAILED, HttpStatus.CONFLICT.value(),
+                    conflict.getCurrent(), conflict.getMessage());
+        }
+        int status = statusOf(e);
+        if (status >= 500) {
+            log.error("Операция {} ({}) пакета завершилась ошибкой", index, type, e);
+            return new BatchOperationResult(index, type, Outcome.FAILED, status, null, "Внутренняя ошибка сервера");
+        }
+        String message = e instanceof ResponseStatusException rse ? rse.getReason() : e.getMessage();
+        return new BatchOperationResult(index, type, Outcome.FAILED, status, null, message);
+    }
+
+    /**
+     * Ошибка сброса изменений или коммита не относится к одной операции,
+     * поэтому неудачей отмечается каждая операция пакета.
+     */
+    private List<BatchOperationResult> commitFailure(List<BatchOperation> operations, RuntimeException e) {
+        int status = statusOf(e);
+        String reason;
+        if (status >= 500) {
+            log.error("Пакет из {} операций не зафиксирован", operations.size(), e);
+            reason = "Внутренняя ошибка сервера";
+        } else {
+            log.info("Пакет из {} операций не зафиксирован: {}", operations.size(), e.getMessage());
+            reason = e instanceof ResponseStatusException rse ? rse.getReason() : e.getMessage();
+        }
+        List<BatchOperationResult> results = new ArrayList<>(operations.size());
+        for (int i = 0; i < operations.size(); i++) {
+            BatchOperation operation = operations.get(i);
+            results.add(new BatchOperationResult(i, operation == null ? null : operation.getType(), Outcome.FAILED,
+                    status, null, "Пакет не зафиксирован: " + reason));
+        }
+        return results;
+    }
+
+    /**
+     * @return HTTP-статус, с которым исключение завершило бы отдельный запрос.
+     */
+    private static int statusOf(RuntimeException e) {
+        if (e instanceof ResponseStatusException rse) {
+            return rse.getStatusCode().value();
+        }
+        if (e instanceof EntityNotFoundException) {
+            return HttpStatus.NOT_FOUND.value();
+        }
+        if (e instanceof ObjectOptimisticLockingFailureException) {
+            return HttpStatus.CONFLICT.value();
+        }
+        ResponseStatus annotation = AnnotatedElementUtils.findMergedAnnotation(e.getClass(), ResponseStatus.class);
+        return annotation != null ? annotation.code().value() : HttpStatus.INTERNAL_SERVER_ERROR.value();
+    }
+
+    private <T> T read(BatchOperation operation, TypeReference<T> type) {
+        try {
+            return objectMapper.convertValue(requireBody(operation), type);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Некорректное тело операции " + operation.getType() + ": " + e.getMessage());
+        }
+    }
+
+    private static JsonNode requireBody(BatchOperation operation) {
+        if (operation.getBody() == null || operation.getBody().isNull()) {
+            throw new BadRequestException("Для операции " + operation.getType() + " нужно тело body");
+        }
+        return operation.getBody();
+    }
+
+    private static Long requireTaskId(BatchOperation operation) {
+        if (operation.getTaskId() == null) {
+            throw new BadRequestException("Для операции " + operation.getType() + " нужен taskId");
+        }
+        return operation.getTaskId();
+    }
+
+    private static Long requireProjectId(BatchOperation operation) {
+        if (operation.getProjectId() == null) {
+            throw new BadRequestException("Для операции " + operation.getType() + " нужен projectId");
+        }
+        return operation.getProjectId();
+    }
+}
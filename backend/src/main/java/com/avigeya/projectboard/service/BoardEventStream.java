@@ -0,0 +1,280 @@
+package com.avigeya.projectboard.service;
+
+import com.avigeya.projectboard.dto.BoardEventDto;
+import com.avigeya.projectboard.dto.ProjectDto;
+import com.avigeya.projectboard.domain.ChangeEntityType;
+import com.avigeya.projectboard.event.ChangesDroppedEvent;
+import com.avigeya.projectboard.event.ProjectMembersChangedEvent;
+import com.avigeya.projectboard.event.ProjectStagesChangedEvent;
+import com.avigeya.projectboard.event.TaskChangedEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.stream.Collectors;
+
+/**
+ * Поток изменений доски (Server-Sent Events) с подпиской по проектам.
+ * <p>
+ * Изменения приходят из {@link ChangeEventBus} уже после коммита и
+ * раскладываются по подписчикам проекта в потоке шины. У каждого
+ * подписчика своя ограниченная очередь и свой виртуальный поток отправки,
+ * поэтому медленный клиент не задерживает остальных. Если очередь
+ * переполнилась, накопленные события отбрасываются и клиент получает одно
+ * событие resync: ему нужно догнать доску через /app-data/changes. То же
+ * событие получают все подписчики, если изменения потеряла сама шина
+ * ({@link ChangesDroppedEvent}).
+ * <p>
+ * Проекты подписки проверяются при подключении и повторно при смене
+ * участников проекта: поток пользователя, потерявшего доступ к проекту,
+ * закрывается. Клиент переподключится и получит подписку только на
+ * оставшиеся проекты.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BoardEventStream {
+
+    private static final String CHANGE_EVENT = "change";
+    private static final String RESYNC_EVENT = "resync";
+    private static final String READY_EVENT = "ready";
+
+    private static final Object RESYNC = new Object();
+    private static final Object HEARTBEAT = new Object();
+    private static final Object CLOSE = new Object();
+
+    private final ReferenceDataCache referenceDataCache;
+    private final PermissionIndex permissionIndex;
+
+    @Value("${board.events.buffer-size:64}")
+    private int bufferSize;
+
+    @Value("${board.events.timeout:PT30M}")
+    private Duration timeout;
+
+    @Value("${board.events.max-subscribers:1000}")
+    private int maxSubscribers;
+
+    private final Map<Long, Set<Subscriber>> subscribersByProject = new ConcurrentHashMap<>();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Подписывает клиента на изменения проектов. Пользователь, который видит не
+     * все задачи, может подписаться только на проекты, где он активный участник.
+     *
+     * @param projectIds Проекты подписки; если пусто — все доступные пользователю.
+     * @return Emitter, который контроллер возвращает как тело ответа.
+     * @throws ResponseStatusException 403, если доступных проектов среди
+     *                                 запрошенных нет; 503, если достигнут
+     *                                 предел числа подписчиков.
+     */
+    public SseEmitter subscribe(Collection<Long> projectIds, SessionUser user) {
+        Set<Long> allowed = allowedProjects(user);
+        Set<Long> subscribed = projectIds == null || projectIds.isEmpty() ? allowed
+                : projectIds.stream().filter(allowed::contains).collect(Collectors.toUnmodifiableSet());
+        if (subscribed.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Нет доступных проектов для подписки");
+        }
+        if (subscribers.size() >= maxSubscribers) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Достигнут предел подписчиков потока изменений: " + maxSubscribers);
+        }
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Subscriber subscriber = new Subscriber(emitter, subscribed, user);
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(e -> unsubscribe(subscriber));
+
+        subscribers.add(subscriber);
+        for (Long projectId : subscriber.projectIds) {
+            subscribersByProject.computeIfAbsent(projectId, id -> new CopyOnWriteArraySet<>()).add(subscriber);
+        }
+        subscriber.offer(new ReadyMessage(subscriber.projectIds));
+        Thread.ofVirtual().name("board-events-" + user.getTgUserId()).start(subscriber::sendLoop);
+        log.info("Подписка на изменения проектов {} для userId: {} (подписчиков: {}).", subscriber.projectIds,
+                user.getTgUserId(), subscribers.size());
+        return emitter;
+    }
+
+    @EventListener
+    public void onTasksChanged(TaskChangedEvent event) {
+        if (!event.getChangedTaskIds().isEmpty()) {
+            fanOut(event.getProjectId(), new BoardEventDto(ChangeEntityType.TASK, event.getProjectId(),
+                    List.copyOf(event.getChangedTaskIds()), false));
+        }
+        if (!event.getDeletedTaskIds().isEmpty()) {
+            fanOut(event.getProjectId(), new BoardEventDto(ChangeEntityType.TASK, event.getProjectId(),
+                    List.copyOf(event.getDeletedTaskIds()), true));
+        }
+    }
+
+    /**
+     * Выполняется после {@link PermissionIndex#onProjectMembersChanged}, поэтому
+     * доступ проверяется уже по новым участникам.
+     */
+    @EventListener
+    public void onProjectMembersChanged(ProjectMembersChangedEvent event) {
+        fanOut(event.getProjectId(), new BoardEventDto(ChangeEntityType.PROJECT_MEMBERS, event.getProjectId(),
+                List.of(event.getProjectId()), false));
+        closeRevoked(List.of(event.getProjectId()));
+    }
+
+    @EventListener
+    public void onProjectStagesChanged(ProjectStagesChangedEvent event) {
+        fanOut(event.getProjectId(), new BoardEventDto(ChangeEntityType.PROJECT_STAGES, event.getProjectId(),
+                List.of(event.getProjectId()), false));
+    }
+
+    /**
+     * Шина не доставила изменения транзакции, и неизвестно, кого они касались.
+     */
+    @EventListener
+    public void onChangesDropped(ChangesDroppedEvent event) {
+        log.warn("Изменения потеряны шиной, отправляем resync {} подписчикам.", subscribers.size());
+        subscribers.forEach(Subscriber::resync);
+        closeRevoked(event.getMemberProjectIds());
+    }
+
+    @Scheduled(fixedDelayString = "${board.events.heartbeat-interval:PT20S}")
+    public void heartbeat() {
+        subscribers.forEach(subscriber -> subscriber.offer(HEARTBEAT));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        subscribers.forEach(subscriber -> subscriber.offer(CLOSE));
+    }
+
+    private Set<Long> allowedProjects(SessionUser user) {
+        return permissionIndex.visibleProjects(user, referenceDataCache.getSnapshot()).stream()
+                .map(ProjectDto::getId)
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    private void fanOut(Long projectId, BoardEventDto message) {
+        Set<Subscriber> projectSubscribers = subscribersByProject.get(projectId);
+        if (projectSubscribers != null) {
+            projectSubscribers.forEach(subscriber -> subscriber.offer(message));
+        }
+    }
+
+    /**
+     * Закрывает потоки подписчиков этих проектов, которые больше не видят
+     * проект.
+     */
+    private void closeRevoked(Collection<Long> projectIds) {
+        for (Long projectId : projectIds) {
+            Set<Subscriber> projectSubscribers = subscribersByProject.getOrDefault(projectId, Set.of());
+            for (Subscriber subscriber : projectSubscribers) {
+                if (!permissionIndex.canSeeProject(subscriber.user, projectId)) {
+                    log.info("userId: {} потерял доступ к проекту {}, поток изменений закрыт.",
+                            subscriber.user.getTgUserId(), projectId);
+                    unsubscribe(subscriber);
+                }
+            }
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (!subscribers.remove(subscriber)) {
+            return;
+        }
+        for (Long projectId : subscriber.projectIds) {
+            subscribersByProject.computeIfPresent(projectId, (id, set) -> {
+                set.remove(subscriber);
+                return set.isEmpty() ? null : set;
+            });
+        }
+        subscriber.offer(CLOSE);
+        log.debug("Подписка userId: {} закрыта (подписчиков: {}).", subscriber.user.getTgUserId(),
+                subscribers.size());
+    }
+
+    private record ReadyMessage(Set<Long> projectIds) {
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final Set<Long> projectIds;
+        private final SessionUser user;
+        private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(bufferSize);
+
+        private Subscriber(SseEmitter emitter, Set<Long> projectIds, SessionUser user) {
+            this.emitter = emitter;
+            this.projectIds = projectIds;
+            this.user = user;
+        }
+
+        synchronized void offer(Object message) {
+            if (message == HEARTBEAT && !queue.isEmpty()) {
+                return;
+            }
+            if (!queue.offer(message)) {
+                log.info("Клиент userId: {} не успевает за изменениями, отправляем resync.", user.getTgUserId());
+                resync();
+                if (message == CLOSE) {
+                    queue.offer(CLOSE);
+                }
+            }
+        }
+
+        synchronized void resync() {
+            queue.clear();
+            queue.offer(RESYNC);
+        }
+
+        void sendLoop() {
+            try {
+                while (true) {
+                    Object message = queue.take();
+                    if (message == CLOSE) {
+                        emitter.complete();
+                        return;
+                    }
+                    send(message);
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Клиент отключился: emitter сам вызовет onError/onCompletion
+                emitter.completeWithError(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                unsubscribe(this);
+            }
+        }
+
+        private void send(Object message) throws IOException {
+            if (message == HEARTBEAT) {
+                emitter.send(SseEmitter.event().comment("heartbeat"));
+            } else if (message == RESYNC) {
+                emitter.send(SseEmitter.event().name(RESYNC_EVENT).data(new ArrayList<>(projectIds),
+                        MediaType.APPLICATION_JSON));
+            } else if (message instanceof ReadyMessage ready) {
+                emitter.send(SseEmitter.event().name(READY_EVENT).data(List.copyOf(ready.projectIds()),
+                        MediaType.APPLICATION_JSON));
+            } else {
+                emitter.send(SseEmitter.event().name(CHANGE_EVENT).data(message, MediaType.APPLICATION_JSON));
+            }
+        }
+    }
+}
@@ -0,0 +1,465 @@
+package com.avigeya.projectboard.service;
+
+import com.avigeya.projectboard.domain.ChangeEntityType;
+import com.avigeya.projectboard.domain.ChangeLogEntry;
+import com.avigeya.projectboard.domain.Status;
+import com.avigeya.projectboard.dto.TaskDto;
+import com.avigeya.projectboard.dto.TaskMemberRow;
+import com.avigeya.projectboard.dto.TaskRow;
+import com.avigeya.projectboard.dto.UserDto;
+import com.avigeya.projectboard.event.ProjectMembersChangedEvent;
+import com.avigeya.projectboard.event.ProjectStagesChangedEvent;
+import com.avigeya.projectboard.event.TaskChangedEvent;
+import com.avigeya.projectboard.repository.ChangeLogRepository;
+import com.avigeya.projectboard.repository.TaskMemberRepository;
+import com.avigeya.projectboard.repository.TaskRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.LongFunction;
+
+/**
+ * Модель чтения доски в памяти: открытые задачи с участниками, индексированные
+ * по ID задачи, проекта и пользователя (куратора, автора или участника).
+ * <p>
+ * Модель загружается целиком при старте и догоняет журнал изменений после
+ * каждого коммита, о котором сообщает {@link ChangeEventBus}: перечитываются
+ * задачи из события и из новых записей журнала. Каждое обновление собирает
+ * новый неизменяемый {@link View} и публикует его целиком, поэтому запросы
+ * читают согласованный снимок без блокировок.
+ * <p>
+ * Номера журнала выдаются до коммита, поэтому запись медленной транзакции
+ * может стать видимой позже записей с большими номерами. Курсор снимка
+ * продвигается так же, как курсор /app-data/changes
+ * ({@link ChangeLogService#settledCursor}), и не проходит пропуски в номерах:
+ * записи за пропуском перечитываются при каждом обновлении, пока пропуск не
+ * заполнится или не устоится. Задачи из {@link TaskChangedEvent} перечитываются
+ * всегда, независимо от курсора. Периодическая сверка с БД ({@link #verify()})
+ * остается страховкой и заменяет модель свежей загрузкой.
+ * <p>
+ * Пока модель не загружена, {@link #getView()} возвращает null и
+ * {@link AppDataService} читает доску из БД.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BoardReadModel {
+
+    // Должно совпадать с лимитом в ChangeLogRepository.findTop1000ByIdGreaterThanOrderByIdAsc
+    private static final int CHANGES_PAGE_SIZE = 1000;
+    // Размер пачки ID для запросов вида "WHERE ... IN (:ids)"
+    private static final int IN_CLAUSE_CHUNK_SIZE = 1000;
+    // Сколько расходящихся ID задач выводить в лог
+    private static final int LOGGED_MISMATCHES = 20;
+    private static final long[] NO_IDS = new long[0];
+
+    private final TaskRepository taskRepository;
+    private final TaskMemberRepository taskMemberRepository;
+    private final ChangeLogRepository changeLogRepository;
+    private final ChangeLogService changeLogService;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    private TransactionTemplate readOnlyTransaction;
+    private Counter mismatches;
+    private Counter unavailable;
+
+    private volatile View view;
+
+    @PostConstruct
+    void init() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+
+        Gauge.builder("board.read_model.tasks", this, model -> model.view == null ? 0 : model.view.tasks.size())
+                .register(meterRegistry);
+        Gauge.builder("board.read_model.cursor", this, model -> model.view == null ? 0 : model.view.cursor)
+                .register(meterRegistry);
+        mismatches = Counter.builder("board.read_model.mismatches")
+                .description("Задачи, по которым модель разошлась с БД при сверке").register(meterRegistry);
+        unavailable = Counter.builder("board.read_model.unavailable")
+                .description("Запросы, прочитанные из БД, потому что модель не загружена").register(meterRegistry);
+    }
+
+    /**
+     * @return Текущий снимок модели или null, если модель еще не загружена.
+     */
+    public View getView() {
+        View current = view;
+        if (current == null) {
+            unavailable.increment();
+        }
+        return current;
+    }
+
+    /**
+     * Загружает модель целиком. Вызывается при старте, после импорта данных
+     * из CSV; при ошибке модель остается незагруженной, а доска читается из БД.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void load() {
+        try {
+            long generation = view == null ? 0 : view.generation + 1;
+            view = readOnlyTransaction.execute(status -> loadView(generation));
+            log.info("Модель чтения доски загружена: {} задач, курсор {}.", view.tasks.size(), view.cursor);
+        } catch (RuntimeException e) {
+            log.error("Не удалось загрузить модель чтения доски, доска будет читаться из БД", e);
+        }
+    }
+
+    @EventListener
+    public void onTaskChanged(TaskChangedEvent event) {
+        Set<Long> taskIds = new LinkedHashSet<>(event.getChangedTaskIds());
+        taskIds.addAll(event.getDeletedTaskIds());
+        catchUp(taskIds);
+    }
+
+    @EventListener({ ProjectMembersChangedEvent.class, ProjectStagesChangedEvent.class })
+    public void onBoardChanged() {
+        catchUp();
+    }
+
+    public void catchUp() {
+        catchUp(Set.of());
+    }
+
+    /**
+     * Перечитывает задачи taskIds и применяет записи журнала после курсора
+     * модели. Если чтение не удалось, модель остается прежней и догонит журнал
+     * при следующем изменении (или при сверке).
+     *
+     * @param taskIds Задачи из закоммиченной транзакции; перечитываются, даже
+     *                если их записи журнала лежат до курсора или за пропуском.
+     */
+    public synchronized void catchUp(Set<Long> taskIds) {
+        View current = view;
+        if (current == null) {
+            return;
+        }
+        try {
+            view = readOnlyTransaction.execute(status -> applyChanges(current, taskIds));
+        } catch (RuntimeException e) {
+            log.warn("Модель чтения доски не обновлена (курсор {}): {}", current.cursor, e.getMessage());
+        }
+    }
+
+    /**
+     * Сверяет модель со свежей загрузкой из БД и заменяет ее этой загрузкой.
+     * Задачи, измененные после курсора модели, расхождением не считаются: их
+     * модель еще не успела применить.
+     */
+    @Scheduled(fixedDelayString = "${board.read-model.verify-interval:PT10M}",
+            initialDelayString = "${board.read-model.verify-interval:PT10M}")
+    public synchronized void verify() {
+        if (view == null) {
+            load();
+            return;
+        }
+        catchUp();
+        View current = view;
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                View fresh = loadView(current.generation + 1);
+                Set<Long> differing = current.diff(fresh);
+                if (!differing.isEmpty()) {
+                    changeLogRepository.findTop1000ByIdGreaterThanOrderByIdAsc(current.cursor).stream()
+                            .filter(entry -> entry.getEntityType() == ChangeEntityType.TASK)
+                            .forEach(entry -> differing.remove(entry.getEntityId()));
+                }
+                if (!differing.isEmpty()) {
+                    mismatches.increment(differing.size());
+                    log.warn("Модель чтения доски разошлась с БД по {} задачам (например, {}), модель перезагружена.",
+                            differing.size(), differing.stream().limit(LOGGED_MISMATCHES).toList());
+                }
+                view = fresh;
+            });
+        } catch (RuntimeException e) {
+            log.warn("Не удалось сверить модель чтения доски с БД: {}", e.getMessage());
+        }
+    }
+
+    private View loadView(long generation) {
+        // Курсор читаем до загрузки задач: все, что изменится позже, применит catchUp
+        long cursor = changeLogService.currentCursor();
+        return View.of(cursor, generation, loadEntries(taskRepository.findOpenTaskRows(Status.DONE)));
+    }
+
+    private View applyChanges(View current, Set<Long> notifiedTaskIds) {
+        View next = current;
+        Instant settledBefore = changeLogService.settledBefore();
+        // Несколько записей об одной задаче схлопываются в одну
+        Set<Long> taskIds = new LinkedHashSet<>(notifiedTaskIds);
+        boolean hasMore;
+        do {
+            List<ChangeLogEntry> entries = changeLogRepository.findTop1000ByIdGreaterThanOrderByIdAsc(next.cursor);
+            for (ChangeLogEntry entry : entries) {
+                if (entry.getEntityType() == ChangeEntityType.TASK) {
+                    taskIds.add(entry.getEntityId());
+                }
+            }
+            long cursor = changeLogService.settledCursor(next.cursor, entries, settledBefore);
+            List<TaskEntry> loaded = taskIds.isEmpty() ? List.of()
+                    : loadEntries(taskRepository.findOpenTaskRowsByIdIn(Status.DONE, taskIds));
+            next = next.apply(cursor, taskIds, loaded);
+            // Следующую страницу читаем, только если курсор дошел до конца этой
+            hasMore = entries.size() == CHANGES_PAGE_SIZE && cursor == entries.get(entries.size() - 1).getId();
+            taskIds = new LinkedHashSet<>();
+        } while (hasMore);
+        return next;
+    }
+
+    /**
+     * Дополняет строки задач участниками запросами IN по пачкам ID (без N+1).
+     */
+    private List<TaskEntry> loadEntries(List<TaskRow> rows) {
+        Map<Long, List<UserDto>> membersByTask = new HashMap<>();
+        List<Long> taskIds = rows.stream().map(TaskRow::id).toList();
+        for (int from = 0; from < taskIds.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+            List<Long> chunk = taskIds.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, taskIds.size()));
+            for (TaskMemberRow row : taskMemberRepository.findMemberRowsByTaskIds(chunk)) {
+                membersByTask.computeIfAbsent(row.taskId(), id -> new ArrayList<>())
+                        .add(new UserDto(row.userId(), row.userName(), row.userRole()));
+            }
+        }
+        return rows.stream()
+                .map(row -> TaskEntry.of(row, membersByTask.getOrDefault(row.id(), List.of())))
+                .toList();
+    }
+
+    /**
+     * Открытая задача в модели. Участники хранятся и как DTO для ответа, и как
+     * отсортированный массив ID для индекса и сверки.
+     */
+    record TaskEntry(TaskRow row, List<UserDto> members, long[] memberIds) {
+
+        static TaskEntry of(TaskRow row, List<UserDto> members) {
+            long[] memberIds = members.stream().mapToLong(UserDto::getId).sorted().toArray();
+            return new TaskEntry(row, List.copyOf(members), memberIds);
+        }
+
+        long id() {
+            return row.id();
+        }
+
+        /**
+         * @return Пользователи, которые видят задачу, не видя всю доску.
+         */
+        long[] visibleTo() {
+            Set<Long> userIds = new TreeSet<>();
+            if (row.curatorId() != null) {
+                userIds.add(row.curatorId());
+            }
+            if (row.authorId() != null) {
+                userIds.add(row.authorId());
+            }
+            for (long memberId : memberIds) {
+                userIds.add(memberId);
+            }
+            return userIds.stream().mapToLong(Long::longValue).toArray();
+        }
+
+        boolean sameAs(TaskEntry other) {
+            return row.equals(other.row) && Arrays.equals(memberIds, other.memberIds);
+        }
+
+        TaskDto toTaskDto() {
+            // TaskDto изменяемый, поэтому каждый ответ получает свою копию
+            return row.toTaskDto(members.isEmpty() ? null : members.stream()
+                    .map(member -> new UserDto(member.getId(), member.getName(), member.getRole()))
+                    .toList());
+        }
+    }
+
+    /**
+     * Неизменяемый снимок модели. Таблицы после публикации только читаются;
+     * обновление собирает новые версии через {@link ShardedLongObjectMap.Editor}
+     * и копирует только сегменты с затронутыми задачами, проектами и
+     * пользователями, остальные делит с прежним снимком.
+     */
+    public static final class View {
+
+        private final long cursor;
+        private final long generation;
+        private final ShardedLongObjectMap<TaskEntry> tasks;
+        private final ShardedLongObjectMap<long[]> taskIdsByProject;
+        private final ShardedLongObjectMap<long[]> taskIdsByUser;
+
+        private View(long cursor, long generation, ShardedLongObjectMap<TaskEntry> tasks,
+                ShardedLongObjectMap<long[]> taskIdsByProject, ShardedLongObjectMap<long[]> taskIdsByUser) {
+            this.cursor = cursor;
+            this.generation = generation;
+            this.tasks = tasks;
+            this.taskIdsByProject = taskIdsByProject;
+            this.taskIdsByUser = taskIdsByUser;
+        }
+
+        static View of(long cursor, long generation, List<TaskEntry> entries) {
+            ShardedLongObjectMap.Editor<TaskEntry> tasks = ShardedLongObjectMap.builder(entries.size());
+            Map<Long, List<Long>> byProject = new HashMap<>();
+            Map<Long, List<Long>> byUser = new HashMap<>();
+            for (TaskEntry entry : entries) {
+                tasks.put(entry.id(), entry);
+                if (entry.row().projectId() != null) {
+                    byProject.computeIfAbsent(entry.row().projectId(), id -> new ArrayList<>()).add(entry.id());
+                }
+                for (long userId : entry.visibleTo()) {
+                    byUser.computeIfAbsent(userId, id -> new ArrayList<>()).add(entry.id());
+                }
+            }
+            return new View(cursor, generation, tasks.build(), toIndex(byProject), toIndex(byUser));
+        }
+
+        private static ShardedLongObjectMap<long[]> toIndex(Map<Long, List<Long>> grouped) {
+            ShardedLongObjectMap.Editor<long[]> index = ShardedLongObjectMap.builder(grouped.size());
+            grouped.forEach((key, ids) -> index.put(key, ids.stream().mapToLong(Long::longValue).toArray()));
+            return index.build();
+        }
+
+        /**
+         * @param cursor  Курсор журнала после применения.
+         * @param changed Перечитанные задачи.
+         * @param loaded  Те из них, что сейчас открыты; остальные удаляются из
+         *                модели (удалены, выполнены или архивированы).
+         */
+        View apply(long cursor, Collection<Long> changed, List<TaskEntry> loaded) {
+            if (changed.isEmpty()) {
+                return new View(cursor, generation, tasks, taskIdsByProject, taskIdsByUser);
+            }
+            ShardedLongObjectMap.Editor<TaskEntry> nextTasks = tasks.edit();
+            ShardedLongObjectMap.Editor<long[]> nextByProject = taskIdsByProject.edit();
+            ShardedLongObjectMap.Editor<long[]> nextByUser = taskIdsByUser.edit();
+            for (Long taskId : changed) {
+                TaskEntry previous = nextTasks.get(taskId);
+                if (previous != null) {
+                    nextTasks.remove(taskId);
+                    if (previous.row().projectId() != null) {
+                        unindex(nextByProject, previous.row().projectId(), taskId);
+                    }
+                    for (long userId : previous.visibleTo()) {
+                        unindex(nextByUser, userId, taskId);
+                    }
+                }
+            }
+            for (TaskEntry entry : loaded) {
+                nextTasks.put(entry.id(), entry);
+                if (entry.row().projectId() != null) {
+                    index(nextByProject, entry.row().projectId(), entry.id());
+                }
+                for (long userId : entry.visibleTo()) {
+                    index(nextByUser, userId, entry.id());
+                }
+            }
+            return new View(cursor, generation + 1, nextTasks.build(), nextByProject.build(), nextByUser.build());
+        }
+
+        private static void index(ShardedLongObjectMap.Editor<long[]> index, long key, long taskId) {
+            long[] ids = index.get(key);
+            if (ids == null) {
+                index.put(key, new long[] { taskId });
+                return;
+            }
+            long[] extended = Arrays.copyOf(ids, ids.length + 1);
+            extended[ids.length] = taskId;
+            index.put(key, extended);
+        }
+
+        private static void unindex(ShardedLongObjectMap.Editor<long[]> index, long key, long taskId) {
+            long[] ids = index.get(key);
+            if (ids == null) {
+                return;
+            }
+            long[] remaining = Arrays.stream(ids).filter(id -> id != taskId).toArray();
+            if (remaining.length == 0) {
+                index.remove(key);
+            } else {
+                index.put(key, remaining);
+            }
+        }
+
+        /**
+         * @return Курсор журнала изменений, до которого учтены все записи.
+         *         Задачи из записей за курсором тоже могут быть уже учтены.
+         */
+        public long getCursor() {
+            return cursor;
+        }
+
+        /**
+         * @return Номер снимка: растет при каждом изменении задач в модели,
+         *         даже если курсор остался на месте.
+         */
+        public long getGeneration() {
+            return generation;
+        }
+
+        public int size() {
+            return tasks.size();
+        }
+
+        public List<TaskDto> allTasks() {
+            List<TaskDto> result = new ArrayList<>(tasks.size());
+            tasks.forEachValue(entry -> result.add(entry.toTaskDto()));
+            return result;
+        }
+
+        /**
+         * @return Открытые задачи, где пользователь — куратор, автор или участник.
+         */
+        public List<TaskDto> tasksVisibleTo(long userId) {
+            return collect(taskIdsByUser.get(userId), tasks::get);
+        }
+
+        public List<TaskDto> tasksOfProject(long projectId) {
+            return collect(taskIdsByProject.get(projectId), tasks::get);
+        }
+
+        private static List<TaskDto> collect(long[] taskIds, LongFunction<TaskEntry> lookup) {
+            long[] ids = taskIds != null ? taskIds : NO_IDS;
+            List<TaskDto> result = new ArrayList<>(ids.length);
+            for (long taskId : ids) {
+                result.add(lookup.apply(taskId).toTaskDto());
+            }
+            return result;
+        }
+
+        /**
+         * @return ID задач, которые есть только в одном из снимков или
+         *         отличаются полями либо участниками.
+         */
+        private Set<Long> diff(View other) {
+            Set<Long> differing = new TreeSet<>();
+            for (long taskId : tasks.keys()) {
+                TaskEntry theirs = other.tasks.get(taskId);
+                if (theirs == null || !theirs.sameAs(tasks.get(taskId))) {
+                    differing.add(taskId);
+                }
+            }
+            for (long taskId : other.tasks.keys()) {
+                if (!tasks.containsKey(taskId)) {
+                    differing.add(taskId);
+                }
+            }
+            return differing;
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package com.avigeya.projectboard.service;
+
+import com.avigeya.projectboard.dto.TaskProjectRow;
+import com.avigeya.projectboard.event.ChangesDroppedEvent;
+import com.avigeya.projectboard.event.ProjectMembersChangedEvent;
+import com.avigeya.projectboard.event.ProjectStagesChangedEvent;
+import com.avigeya.projectboard.event.TaskChangedEvent;
+import com.avigeya.projectboard.repository.TaskRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Шина изменений доски внутри процесса.
+ * <p>
+ * Изменения копятся в текущей транзакции и доставляются слушателям только
+ * после ее коммита; при откате они отбрасываются. Повторные изменения одной
+ * задачи в транзакции схлопываются: слушатели получают по одному
+ * {@link TaskChangedEvent} на проект, а задача попадает в него по последней
+ * операции с ней (удаление и восстановление дают изменение). Задача,
+ * перенесенная в другой проект, приходит в прежний проект как удаленная, если
+ * перед переносом вызван {@link #taskMayMove}.
+ * <p>
+ * События доставляются обычным {@code @EventListener} в ограниченном пуле
+ * потоков, вне транзакции. Если очередь пула заполнена, поток, закоммитивший
+ * транзакцию, ждет места (board.changes.offer-timeout) и только потом
+ * отбрасывает изменения, сразу публикуя {@link ChangesDroppedEvent}. Очередь,
+ * ожидания, потери и задержка доставки видны в метриках board.changes.*.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ChangeEventBus {
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final TaskRepository taskRepository;
+    private final MeterRegistry meterRegistry;
+
+    // Один поток доставляет изменения в порядке коммитов
+    @Value("${board.changes.threads:1}")
+    private int threads;
+
+    @Value("${board.changes.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${board.changes.offer-timeout:PT1S}")
+    private Duration offerTimeout;
+
+    private ThreadPoolExecutor executor;
+    private Counter recorded;
+    private Counter coalesced;
+    private Counter blocked;
+    private Counter dropped;
+    private Timer delivery;
+
+    @PostConstruct
+    void init() {
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), Thread.ofPlatform().name("change-events-", 0).daemon().factory(),
+                this::waitForCapacity);
+        executor.prestartAllCoreThreads();
+
+        Gauge.builder("board.changes.queue", executor, e -> e.getQueue().size())
+                .description("Закоммиченные транзакции, ожидающие доставки изменений")
+                .register(meterRegistry);
+        recorded = Counter.builder("board.changes.recorded")
+                .description("Изменения, записанные в транзакциях").register(meterRegistry);
+        coalesced = Counter.builder("board.changes.coalesced")
+                .description("Повторные изменения, схлопнутые в пределах транзакции").register(meterRegistry);
+        blocked = Counter.builder("board.changes.blocked")
+                .description("Коммиты, ждавшие места в очереди доставки").register(meterRegistry);
+        dropped = Counter.builder("board.changes.dropped")
+                .description("Транзакции, изменения которых не доставлены из-за переполнения очереди")
+                .register(meterRegistry);
+        delivery = Timer.builder("board.changes.delivery")
+                .description("Время от коммита до окончания доставки изменений").register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+            log.warn("Не доставлены изменения {} транзакций при остановке.", executor.shutdownNow().size());
+        }
+    }
+
+    /**
+     * @param projectId Проект задачи; null, если неизвестен — тогда он
+     *                  определяется перед доставкой.
+     */
+    public void taskChanged(Long projectId, Long taskId) {
+        pending().taskChanged(projectId, taskId);
+    }
+
+    /**
+     * Изменения задач без загруженных сущностей: проекты определяются перед
+     * доставкой одним запросом.
+     */
+    public void tasksChanged(Collection<Long> taskIds) {
+        PendingChanges pending = pending();
+        taskIds.forEach(taskId -> pending.taskChanged(null, taskId));
+    }
+
+    public void taskDeleted(Long taskId) {
+        pending().taskDeleted(taskId);
+    }
+
+    /**
+     * Запоминает текущий проект задачи перед изменением, которое может ее
+     * перенести. Если после коммита проект окажется другим, подписчики прежнего
+     * проекта получат задачу в {@link TaskChangedEvent#getDeletedTaskIds()}.
+     * Вызывается до UPDATE; в транзакции учитывается первый вызов.
+     */
+    public void taskMayMove(Long taskId) {
+        PendingChanges pending = pending();
+        if (!pending.previousProjects.containsKey(taskId)) {
+            taskRepository.findProjectIdsByIdIn(List.of(taskId))
+                    .forEach(row -> pending.previousProjects.put(row.taskId(), row.projectId()));
+        }
+    }
+
+    public void projectMembersChanged(Long projectId) {
+        pending().projectMembersChanged(projectId);
+    }
+
+    public void projectStagesChanged(Long projectId) {
+        pending().projectStagesChanged(projectId);
+    }
+
+    private PendingChanges pending() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Изменения доски публикуются только внутри транзакции");
+        }
+        // Синхронизации приостанавливаются вместе с транзакцией (REQUIRES_NEW),
+        // поэтому у вложенной транзакции будет свой набор изменений
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingChanges pending) {
+                return pending;
+            }
+        }
+        PendingChanges pending = new PendingChanges();
+        TransactionSynchronizationManager.registerSynchronization(pending);
+        return pending;
+    }
+
+    private void submit(PendingChanges changes) {
+        long committedAt = System.nanoTime();
+        try {
+            executor.execute(() -> deliver(changes, committedAt));
+        } catch (RejectedExecutionException e) {
+            dropped.increment();
+            log.warn("Очередь доставки изменений переполнена, изменения транзакции отброшены: {}", changes);
+            try {
+                eventPublisher.publishEvent(new ChangesDroppedEvent(Set.copyOf(changes.memberProjects)));
+            } catch (RuntimeException ex) {
+                log.error("Слушатель не обработал потерю изменений {}", changes, ex);
+            }
+        }
+    }
+
+    private void waitForCapacity(Runnable task, ThreadPoolExecutor pool) {
+        if (pool.isShutdown()) {
+            throw new RejectedExecutionException("Шина изменений остановлена");
+        }
+        blocked.increment();
+        try {
+            if (pool.getQueue().offer(task, offerTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        throw new RejectedExecutionException("Очередь доставки изменений переполнена");
+    }
+
+    private void deliver(PendingChanges changes, long committedAt) {
+        List<Object> events = new ArrayList<>();
+        try {
+            events.addAll(changes.taskEvents());
+        } catch (RuntimeException e) {
+            log.warn("Не удалось определить проекты измененных задач {}: {}", changes, e.getMessage());
+        }
+        changes.memberProjects.forEach(projectId -> events.add(new ProjectMembersChangedEvent(projectId)));
+        changes.stageProjects.forEach(projectId -> events.add(new ProjectStagesChangedEvent(projectId)));
+
+        for (Object event : events) {
+            try {
+                eventPublisher.publishEvent(event);
+            } catch (RuntimeException e) {
+                log.error("Слушатель не обработал изменение {}", event, e);
+            }
+        }
+        delivery.record(System.nanoTime() - committedAt, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Изменения одной транзакции. Заполняется только потоком транзакции и
+     * передается в пул после коммита, поэтому синхронизация не нужна.
+     */
+    private final class PendingChanges implements TransactionSynchronization {
+
+        // ID задачи -> последняя операция с ней в транзакции
+        private final Map<Long, TaskChange> tasks = new LinkedHashMap<>();
+        // ID задачи -> ее проект до транзакции (только для задач, которые могли переехать)
+        private final Map<Long, Long> previousProjects = new HashMap<>();
+        private final Set<Long> memberProjects = new LinkedHashSet<>();
+        private final Set<Long> stageProjects = new LinkedHashSet<>();
+
+        void taskChanged(Long projectId, Long taskId) {
+            record(taskId, projectId, false);
+        }
+
+        void taskDeleted(Long taskId) {
+            record(taskId, null, true);
+        }
+
+        private void record(Long taskId, Long projectId, boolean deleted) {
+            recorded.increment();
+            TaskChange previous = tasks.remove(taskId);
+            if (previous != null) {
+                coalesced.increment();
+            }
+            Long known = projectId != null || previous == null ? projectId : previous.projectId();
+            tasks.put(taskId, new TaskChange(known, deleted));
+        }
+
+        void projectMembersChanged(Long projectId) {
+            recorded.increment();
+            if (!memberProjects.add(projectId)) {
+                coalesced.increment();
+            }
+        }
+
+        void projectStagesChanged(Long projectId) {
+            recorded.increment();
+            if (!stageProjects.add(projectId)) {
+                coalesced.increment();
+            }
+        }
+
+        @Override
+        public void afterCommit() {
+            submit(this);
+        }
+
+        List<TaskChangedEvent> taskEvents() {
+            if (tasks.isEmpty()) {
+                return List.of();
+            }
+            // Проект удаленной задачи берем из таблицы: задача могла сменить проект в этой же транзакции
+            Map<Long, Long> projects = new HashMap<>();
+            Set<Long> unresolved = new LinkedHashSet<>();
+            tasks.forEach((taskId, change) -> {
+                if (change.deleted() || change.projectId() == null) {
+                    unresolved.add(taskId);
+                } else {
+                    projects.put(taskId, change.projectId());
+                }
+            });
+            if (!unresolved.isEmpty()) {
+                for (TaskProjectRow row : taskRepository.findProjectIdsByIdIn(unresolved)) {
+                    projects.put(row.taskId(), row.projectId());
+                }
+            }
+
+            Map<Long, Set<Long>> changedByProject = new LinkedHashMap<>();
+            Map<Long, Set<Long>> deletedByProject = new LinkedHashMap<>();
+            tasks.forEach((taskId, change) -> {
+                Long projectId = projects.get(taskId);
+                group(change.deleted() ? deletedByProject : changedByProject, projectId, taskId);
+                // Из прежнего проекта переехавшая задача уходит так же, как удаленная
+                Long previous = previousProjects.get(taskId);
+                if (previous != null && !previous.equals(projectId)) {
+                    group(deletedByProject, previous, taskId);
+                }
+            });
+
+            Set<Long> projectIds = new LinkedHashSet<>(changedByProject.keySet());
+            projectIds.addAll(deletedByProject.keySet());
+            return projectIds.stream()
+                    .map(projectId -> new TaskChangedEvent(projectId,
+                            Set.copyOf(changedByProject.getOrDefault(projectId, Set.of())),
+                            Set.copyOf(deletedByProject.getOrDefault(projectId, Set.of()))))
+                    .toList();
+        }
+
+        private static void group(Map<Long, Set<Long>> byProject, Long projectId, Long taskId) {
+            // Задача без проекта или уже удаленная окончательно никому не интересна
+            if (projectId != null) {
+                byProject.computeIfAbsent(projectId, id -> new LinkedHashSet<>()).add(taskId);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "{tasks=" + tasks + ", members=" + memberProjects + ", stages=" + stageProjects + "}";
+        }
+    }
+
+    /**
+     * @param projectId Проект задачи; null, если неизвестен.
+     * @param deleted   Последней операцией с задачей было удаление.
+     */
+    private record TaskChange(Long projectId, boolean deleted) {
+    }
+}
@@ -0,0 +1,205 @@
+package com.avigeya.projectboard.service;
+
+import com.avigeya.projectboard.domain.ChangeEntityType;
+import com.avigeya.projectboard.domain.ChangeLogEntry;
+import com.avigeya.projectboard.domain.Task;
+import com.avigeya.projectboard.repository.ChangeLogRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Журнал изменений доски.
+ * <p>
+ * Каждая запись получает номер из монотонно растущей последовательности и
+ * пишется в той же транзакции, что и само изменение (и увеличение
+ * {@code @Version} у задачи), поэтому откат изменения откатывает и запись.
+ * Номер записи служит курсором для /api/v1/app-data/changes.
+ * <p>
+ * Номера выдаются при вставке, а транзакции коммитятся в произвольном порядке,
+ * поэтому запись с меньшим номером может стать видимой позже записи с
+ * большим. Курсор поэтому не проходит дальше первого пропуска в номерах (см.
+ * {@link #settledCursor}): записи за пропуском клиент получит еще раз, а
+ * запись, закоммиченная позже, не потеряется. Пропуск от откаченной
+ * транзакции перестает держать курсор, когда после него появляется запись
+ * старше board.change-log.settle-window.
+ * <p>
+ * Каждая запись также передается в {@link ChangeEventBus}, который после
+ * коммита сообщает об изменении остальным частям приложения.
+ */
+@Service
+@RequiredArgsConstructor
+public class ChangeLogService {
+
+    // Хвост журнала длиннее этого читается не целиком: курсор просто не дойдет до его конца
+    private static final int MAX_UNSETTLED_TAIL = 10_000;
+
+    private final ChangeLogRepository changeLogRepository;
+    private final ChangeEventBus changeEventBus;
+
+    // Должно быть не меньше удвоенной длительности самой долгой пишущей транзакции
+    @Value("${board.change-log.settle-window:PT1M}")
+    private Duration settleWindow;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordTaskChange(Task task) {
+        changeLogRepository.save(new ChangeLogEntry(ChangeEntityType.TASK, task.getId(), projectIdOf(task), false));
+        changeEventBus.taskChanged(projectIdOf(task), task.getId());
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordTaskChanges(Collection<Task> tasks) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        changeLogRepository.insertTaskChanges(tasks.stream().map(Task::getId).toList());
+        tasks.forEach(task -> changeEventBus.taskChanged(projectIdOf(task), task.getId()));
+    }
+
+    /**
+     * То же, что {@link #recordTaskChanges}, но без загруженных сущностей:
+     * проект каждой задачи берется из таблицы задач.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordTaskChangesById(Collection<Long> taskIds) {
+        if (taskIds.isEmpty()) {
+            return;
+        }
+        changeLogRepository.insertTaskChanges(taskIds);
+        changeEventBus.tasksChanged(taskIds);
+    }
+
+    /**
+     * Записывает удаление задачи. Строка задачи должна еще оставаться в таблице
+     * (мягкое удаление): из нее берется проект.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordTaskDeletion(Long taskId) {
+        changeLogRepository.insertTaskDeletion(taskId);
+        changeEventBus.taskDeleted(taskId);
+    }
+
+    /**
+     * Записывает, кто из пользователей перестал видеть задачи после смены
+     * куратора или участников (см. {@link ChangeEntityType#TASK_ACCESS}).
+     * Вызывается до пересчета строк видимости. В шину не передается: об
+     * изменении самой задачи сообщает ее запись TASK.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordTaskAccessRevocations(Collection<Long> taskIds) {
+        if (!taskIds.isEmpty()) {
+            changeLogRepository.insertTaskAccessRevocations(taskIds);
+        }
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordProjectMembersChange(Long projectId) {
+        changeLogRepository.save(new ChangeLogEntry(ChangeEntityType.PROJECT_MEMBERS, projectId, projectId, false));
+        changeEventBus.projectMembersChanged(projectId);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordProjectStagesChange(Long projectId) {
+        changeLogRepository.save(new ChangeLogEntry(ChangeEntityType.PROJECT_STAGES, projectId, projectId, false));
+        changeEventBus.projectStagesChanged(projectId);
+    }
+
+    /**
+     * @return Курсор, до которого журнал устоялся: все записи с номерами не
+     *         больше него уже видны или не появятся никогда (0, если журнал
+     *         пуст).
+     */
+    @Transactional(readOnly = true)
+    public long currentCursor() {
+        Instant settledBefore = settledBefore();
+        return settledCursor(0, changeLogRepository.findUnsettledTail(settledBefore, Limit.of(MAX_UNSETTLED_TAIL)),
+                settledBefore);
+    }
+
+    /**
+     * Версия журнала для валидаторов ответа (ETag): устоявшийся курсор и число
+     * уже видимых записей за ним. Пока курсор стоит, множество записей за ним
+     * только растет, поэтому версия меняется при каждом видимом коммите, даже
+     * если он лег за пропуском в номерах.
+     */
+    @Transactional(readOnly = true)
+    public String currentVersion() {
+        Instant settledBefore = settledBefore();
+        List<ChangeLogEntry> tail = changeLogRepository.findUnsettledTail(settledBefore, Limit.of(MAX_UNSETTLED_TAIL));
+        long cursor = settledCursor(0, tail, settledBefore);
+        long visibleAfterCursor = tail.size() < MAX_UNSETTLED_TAIL
+                ? tail.stream().filter(entry -> entry.getId() > cursor).count()
+                : changeLogRepository.countByIdGreaterThan(cursor);
+        return cursor + "." + visibleAfterCursor;
+    }
+
+    /**
+     * Продвигает курсор по прочитанным записям, не перескакивая пропуски в
+     * номерах: номер из пропуска может принадлежать транзакции, которая еще не
+     * закоммичена.
+     * <p>
+     * Номер выдается внутри транзакции, а changedAt записи не позже этого
+     * момента. Поэтому, если запись старше окна settle-window, транзакции всех
+     * меньших номеров уже завершились, и курсор может перейти к ней сразу.
+     *
+     * @param since   Курсор, с которого прочитаны записи.
+     * @param entries Записи с номерами больше since (или хвост журнала) по
+     *                возрастанию номера.
+     */
+    public long settledCursor(long since, List<ChangeLogEntry> entries, Instant settledBefore) {
+        long cursor = since;
+        for (ChangeLogEntry entry : entries) {
+            if (entry.getChangedAt().isBefore(settledBefore)) {
+                cursor = Math.max(cursor, entry.getId());
+            }
+        }
+        for (ChangeLogEntry entry : entries) {
+            if (entry.getId() <= cursor) {
+                continue;
+            }
+            if (entry.getId() != cursor + 1) {
+                break;
+            }
+            cursor = entry.getId();
+        }
+        return cursor;
+    }
+
+    /**
+     * @return Момент, раньше которого записанные номера считаются устоявшимися.
+     */
+    public Instant settledBefore() {
+        return Instant.now().minus(settleWindow);
+    }
+
+    /**
+     * @return true, если записи после since могли быть удалены по сроку
+     *         хранения и клиенту нужно перезагрузить доску целиком.
+     */
+    @Transactional(readOnly = true)
+    public boolean isPruned(long since) {
+        return since < changeLogRepository.findMinId() - 1;
+    }
+
+    /**
+     * Удаляет записи старше срока хранения (board.change-log.retention).
+     *
+     * @return Число удаленных записей.
+     */
+    @Transactional
+    public int prune(Instant changedBefore) {
+        return changeLogRepository.deleteChangedBefore(changedBefore);
+    }
+
+    private Long projectIdOf(Task task) {
+        return task.getProject() != null ? task.getProject().getId() : null;
+    }
+}
@@ -0,0 +1,59 @@
+package com.avigeya.projectboard.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Переносит в архив задачи, выполненные дольше заданного срока. Запускается по
+ * расписанию в часы низкой нагрузки; каждая пачка переносится в своей
+ * транзакции.
+ * <p>
+ * Срок отсчитывается от completed_at. Выполненные задачи без него (старше
+ * столбца) сначала получают время текущего запуска, поэтому первый запуск
+ * ничего не архивирует, а уходят они в архив через полный срок.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CompletedTaskArchiver {
+
+    private final TaskArchiveService taskArchiveService;
+
+    // Сколько выполненная задача остается в tasks после перехода в статус «выполнено»
+    @Value("${board.tasks.archive-after:P30D}")
+    private Duration archiveAfter;
+
+    @Value("${board.tasks.archive-batch-size:500}")
+    private int batchSize;
+
+    // Ограничение на один запуск; остаток будет перенесен в следующий раз
+    @Value("${board.tasks.archive-max-batches:200}")
+    private int maxBatches;
+
+    @Scheduled(cron = "${board.tasks.archive-cron:0 0 4 * * *}")
+    public void archive() {
+        Instant now = Instant.now();
+        int marked = taskArchiveService.markCompletedWithoutTimestamp(now);
+        if (marked > 0) {
+            log.info("Выполненным задачам без времени завершения назначено {}: {}.", now, marked);
+        }
+        Instant completedBefore = now.minus(archiveAfter);
+        int archived = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            int count = taskArchiveService.archiveCompleted(completedBefore, batchSize);
+            archived += count;
+            if (count < batchSize) {
+                break;
+            }
+        }
+        if (archived > 0) {
+            log.info("В архив перенесено выполненных задач: {} (выполнены до {}).", archived, completedBefore);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.avigeya.projectboard.service;
+
+import com.avigeya.projectboard.repository.TaskMemberRepository;
+import com.avigeya.projectboard.repository.TaskRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Окончательно удаляет задачи, помеченные удаленными дольше срока хранения,
+ * вместе с их участниками. Запускается по расписанию в часы низкой нагрузки и
+ * удаляет задачи пачками, каждую в своей транзакции, чтобы не держать долгих
+ * блокировок.
+ * <p>
+ * Заодно удаляет старые записи журнала изменений: клиент с курсором старше
+ * срока хранения журнала получает resyncRequired и загружает доску заново.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DeletedTaskPurger {
+
+    // Сколько удаленная задача хранится и может быть восстановлена
+    static final String RETENTION = "${board.tasks.deleted-retention:P30D}";
+
+    private final TaskRepository taskRepository;
+    private final TaskMemberRepository taskMemberRepository;
+    private final TaskVisibilityService taskVisibilityService;
+    private final ChangeLogService changeLogService;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value(RETENTION)
+    private Duration retention;
+
+    @Value("${board.tasks.purge-batch-size:500}")
+    private int batchSize;
+
+    // Ограничение на один запуск; остаток будет удален в следующий раз
+    @Value("${board.tasks.purge-max-batches:200}")
+    private int maxBatches;
+
+    // Сколько хранятся записи журнала изменений для /app-data/changes
+    @Value("${board.change-log.retention:P30D}")
+    private Duration changeLogRetention;
+
+    private TransactionTemplate transaction;
+
+    @PostConstruct
+    void init() {
+        transaction = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(cron = "${board.tasks.purge-cron:0 30 3 * * *}")
+    public void purge() {
+        Instant deletedBefore = Instant.now().minus(retention);
+        int purged = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            Integer count = transaction.execute(status -> purgeBatch(deletedBefore));
+            purged += count;
+            if (count < batchSize) {
+                break;
+            }
+        }
+        if (purged > 0) {
+            log.info("Окончательно удалено задач: {} (удалены раньше {}).", purged, deletedBefore);
+        }
+
+        // Журнал только дописывается, поэтому удаление старых записей никого не блокирует
+        Instant changedBefore = Instant.now().minus(changeLogRetention);
+        int pruned = changeLogService.prune(changedBefore);
+        if (pruned > 0) {
+            log.info("Удалено записей журнала изменений: {} (старше {}).", pruned, changedBefore);
+        }
+    }
+
+    private int purgeBatch(Instant deletedBefore) {
+        List<Long> taskIds = taskRepository.findDeletedBefore(deletedBefore, batchSize);
+        if (taskIds.isEmpty()) {
+            return 0;
+        }
+        taskMemberRepository.deleteByTaskIdIn(taskIds);
+        taskVisibilityService.removeTasks(taskIds);
+        taskRepository.purgeDeleted(taskIds);
+        return taskIds.size();
+    }
+}
@@ -0,0 +1,162 @@
+package com.avigeya.projectboard.service;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Хеш-таблица с ключами {@code long} без упаковки в {@link Long}: открытая
+ * адресация с линейным пробированием. Значения не могут быть null — пустая
+ * ячейка отмечается null в массиве значений.
+ * <p>
+ * Не потокобезопасна. Читатели получают таблицу только после публикации:
+ * изменения вносятся в копию ({@link #copy()}), в том числе в копии
+ * сегментов {@link ShardedLongObjectMap}.
+ */
+final class LongObjectMap<V> {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+
+    LongObjectMap() {
+        this(MIN_CAPACITY / 2);
+    }
+
+    LongObjectMap(int expectedSize) {
+        int capacity = Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, expectedSize) * 2 - 1) << 1);
+        keys = new long[capacity];
+        values = new Object[capacity];
+    }
+
+    private LongObjectMap(LongObjectMap<V> source) {
+        keys = source.keys.clone();
+        values = source.values.clone();
+        size = source.size;
+    }
+
+    LongObjectMap<V> copy() {
+        return new LongObjectMap<>(this);
+    }
+
+    int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(long key) {
+        int slot = find(key);
+        return slot < 0 ? null : (V) values[slot];
+    }
+
+    boolean containsKey(long key) {
+        return find(key) >= 0;
+    }
+
+    long[] keys() {
+        long[] result = new long[size];
+        int i = 0;
+        for (int slot = 0; slot < values.length; slot++) {
+            if (values[slot] != null) {
+                result[i++] = keys[slot];
+            }
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    void put(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("null values are not supported");
+        }
+        // Заполнение не выше половины: цепочки пробирования остаются короткими
+        if ((size + 1) * 2 > values.length) {
+            resize(values.length * 2);
+        }
+        int mask = values.length - 1;
+        int slot = slot(key, mask);
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+    }
+
+    void remove(long key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return;
+        }
+        values[slot] = null;
+        size--;
+        // Сдвигаем следующие элементы цепочки, чтобы в ней не осталось дыр
+        int mask = values.length - 1;
+        int hole = slot;
+        int next = (slot + 1) & mask;
+        while (values[next] != null) {
+            int home = slot(keys[next], mask);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                values[next] = null;
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    void forEachValue(Consumer<? super V> action) {
+        for (Object value : values) {
+            if (value != null) {
+                action.accept((V) value);
+            }
+        }
+    }
+
+    private int find(long key) {
+        int mask = values.length - 1;
+        int slot = slot(key, mask);
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = slot(oldKeys[i], mask);
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int slot(long key, int mask) {
+        // Фибоначчиево хеширование: последовательные ID расходятся по таблице
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+
+    @Override
+    public String toString() {
+        return "LongObjectMap{size=" + size + ", capacity=" + values.length + "}";
+    }
+}
@@ -0,0 +1,272 @@
+package com.avigeya.projectboard.service;
+
+import com.avigeya.projectboard.domain.ProjectMember;
+import com.avigeya.projectboard.domain.User;
+import com.avigeya.projectboard.dto.ProjectDto;
+import com.avigeya.projectboard.dto.ProjectMemberDto;
+import com.avigeya.projectboard.dto.TaskProjectRow;
+import com.avigeya.projectboard.event.ChangesDroppedEvent;
+import com.avigeya.projectboard.event.ProjectMembersChangedEvent;
+import com.avigeya.projectboard.exception.ForbiddenException;
+import com.avigeya.projectboard.repository.ProjectMemberRepository;
+import com.avigeya.projectboard.repository.TaskRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Индекс прав доступа: для каждого пользователя — набор проектов, где он
+ * активный участник, в виде {@link BitSet} по ID проекта. Роль берется из
+ * {@link SessionUser#getAccess()}, поэтому проверка доступа не обращается ни к
+ * БД, ни к спискам участников.
+ * <p>
+ * Индекс строится при старте из кэша справочников и обновляется по
+ * {@link ProjectMembersChangedEvent}: перечитываются участники только
+ * измененного проекта, и меняются биты только этого проекта. Событие приходит
+ * после коммита, поэтому в течение доставки новые участники проекта еще могут
+ * получать 403.
+ * <p>
+ * Проверки для эндпоинтов записи бросают {@link ForbiddenException} (403).
+ */
+@Service
+@Slf4j
+public class PermissionIndex {
+
+    private static final BitSet NO_PROJECTS = new BitSet();
+
+    private final ReferenceDataCache referenceDataCache;
+    private final ProjectMemberRepository projectMemberRepository;
+    private final TaskRepository taskRepository;
+    private final Counter denied;
+
+    // Неизменяемая после публикации: обновления строят копию и заменяют ее целиком
+    private volatile LongObjectMap<BitSet> projectsByUser;
+
+    public PermissionIndex(ReferenceDataCache referenceDataCache, ProjectMemberRepository projectMemberRepository,
+            TaskRepository taskRepository, MeterRegistry meterRegistry) {
+        this.referenceDataCache = referenceDataCache;
+        this.projectMemberRepository = projectMemberRepository;
+        this.taskRepository = taskRepository;
+        this.denied = Counter.builder("board.permissions.denied")
+                .description("Запросы, отклоненные проверкой прав").register(meterRegistry);
+    }
+
+    /**
+     * Полностью перестраивает индекс по участникам проектов из кэша справочников.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        List<ProjectMemberDto> members = referenceDataCache.getSnapshot().getProjectMembers();
+        LongObjectMap<BitSet> next = new LongObjectMap<>();
+        for (ProjectMemberDto member : members) {
+            int bit = bit(member.getProjectId());
+            if (member.getUserId() == null || bit < 0 || !isActive(member.getIsActive())) {
+                continue;
+            }
+            BitSet projects = next.get(member.getUserId());
+            if (projects == null) {
+                projects = new BitSet();
+                next.put(member.getUserId(), projects);
+            }
+            projects.set(bit);
+        }
+        projectsByUser = next;
+        log.info("Индекс прав построен: пользователей с проектами {}.", next.size());
+    }
+
+    /**
+     * Пересчитывает биты проекта, участники которого изменились. Выполняется
+     * раньше остальных слушателей: они проверяют доступ уже по новым участникам.
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public synchronized void onProjectMembersChanged(ProjectMembersChangedEvent event) {
+        long projectId = event.getProjectId();
+        Set<Long> activeUserIds = projectMemberRepository.findByProjectId(projectId).stream()
+                .filter(member -> isActive(member.getIsActive()))
+                .map(ProjectMember::getUser)
+                .filter(Objects::nonNull)
+                .map(User::getId)
+                .collect(Collectors.toSet());
+
+        LongObjectMap<BitSet> next = index().copy();
+        for (long userId : next.keys()) {
+            if (!activeUserIds.contains(userId)) {
+                setBit(next, userId, projectId, false);
+            }
+        }
+        activeUserIds.forEach(userId -> setBit(next, userId, projectId, true));
+        projectsByUser = next;
+        log.debug("Индекс прав: у проекта {} активных участников {}.", projectId, activeUserIds.size());
+    }
+
+    /**
+     * Изменения участников, которые шина изменений не доставила, применяет
+     * сразу: иначе индекс разойдется с БД до перезапуска.
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onChangesDropped(ChangesDroppedEvent event) {
+        event.getMemberProjectIds()
+                .forEach(projectId -> onProjectMembersChanged(new ProjectMembersChangedEvent(projectId)));
+    }
+
+    /**
+     * @return true, если пользователь видит все проекты или активно участвует в
+     *         этом проекте.
+     */
+    public boolean canSeeProject(SessionUser user, Long projectId) {
+        return user.getAccess().seesAllProjects() || (projectId != null && isMember(user.getId(), projectId));
+    }
+
+    /**
+     * @return Проекты пользователя в порядке справочника.
+     */
+    public List<ProjectDto> visibleProjects(SessionUser user, ReferenceDataSnapshot referenceData) {
+        if (user.getAccess().seesAllProjects()) {
+            return referenceData.getProjects();
+        }
+        BitSet projects = projectsOf(user.getId());
+        return referenceData.getProjects().stream()
+                .filter(project -> contains(projects, project.getId()))
+                .toList();
+    }
+
+    /**
+     * Проверяет право менять этапы и участников проектов.
+     */
+    public void checkManageProjects(SessionUser user) {
+        if (!user.getAccess().managesProjects()) {
+            throw deny(user, "Изменять проекты может только владелец или администратор");
+        }
+    }
+
+    /**
+     * Проверяет право создавать и менять задачи в этих проектах.
+     */
+    public void checkEditProjects(SessionUser user, Collection<Long> projectIds) {
+        checkEditsTasks(user);
+        if (user.getAccess().seesAllProjects()) {
+            return;
+        }
+        for (Long projectId : projectIds) {
+            if (projectId != null && !isMember(user.getId(), projectId)) {
+                throw deny(user, "Нет доступа к проекту " + projectId);
+            }
+        }
+    }
+
+    /**
+     * Проверяет право менять задачи. Проекты задач определяются одним
+     * запросом (и для удаленных задач тоже); владельцу и администратору
+     * запрос не нужен. Несуществующие задачи пропускаются — их обработает
+     * сам эндпоинт.
+     */
+    public void checkEditTasks(SessionUser user, Collection<Long> taskIds) {
+        checkEditsTasks(user);
+        if (user.getAccess().seesAllProjects() || taskIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = taskIds.stream().filter(Objects::nonNull).distinct().toList();
+        for (TaskProjectRow row : ids.isEmpty() ? List.<TaskProjectRow>of() : taskRepository.findProjectIdsByIdIn(ids)) {
+            if (row.projectId() == null || !isMember(user.getId(), row.projectId())) {
+                throw deny(user, "Нет доступа к задаче " + row.taskId());
+            }
+        }
+    }
+
+    /**
+     * Проверяет право применить JSON Merge Patch к задаче: менять саму задачу
+     * и, если патч переносит ее, — задачи целевого проекта.
+     */
+    public void checkPatchTask(SessionUser user, Long taskId, JsonNode patch) {
+        checkEditTasks(user, List.of(taskId));
+        JsonNode projectId = patch != null ? patch.get("projectId") : null;
+        if (projectId != null) {
+            checkEditProjects(user, List.of(TaskServiceImpl.readLong(projectId, "projectId")));
+        }
+    }
+
+    private void checkEditsTasks(SessionUser user) {
+        if (!user.getAccess().editsTasks()) {
+            throw deny(user, "Роль " + user.getRole() + " не позволяет изменять задачи");
+        }
+    }
+
+    private ForbiddenException deny(SessionUser user, String message) {
+        denied.increment();
+        log.info("Доступ запрещен userId: {}: {}", user.getId(), message);
+        return new ForbiddenException(message);
+    }
+
+    private boolean isMember(long userId, long projectId) {
+        return contains(projectsOf(userId), projectId);
+    }
+
+    private BitSet projectsOf(long userId) {
+        BitSet projects = index().get(userId);
+        return projects != null ? projects : NO_PROJECTS;
+    }
+
+    private LongObjectMap<BitSet> index() {
+        LongObjectMap<BitSet> current = projectsByUser;
+        if (current == null) {
+            // Запрос пришел раньше ApplicationReadyEvent
+            rebuild();
+            current = projectsByUser;
+        }
+        return current;
+    }
+
+    private static boolean contains(BitSet projects, Long projectId) {
+        int bit = bit(projectId);
+        return bit >= 0 && projects.get(bit);
+    }
+
+    /**
+     * @return Номер бита проекта; -1, если ID не помещается в int.
+     */
+    private static int bit(Long projectId) {
+        return projectId != null && projectId >= 0 && projectId <= Integer.MAX_VALUE ? projectId.intValue() : -1;
+    }
+
+    /**
+     * Меняет бит в копии индекса. Набор пользователя тоже копируется: прежний
+     * может читать опубликованный индекс.
+     */
+    private static void setBit(LongObjectMap<BitSet> index, long userId, long projectId, boolean value) {
+        int bit = bit(projectId);
+        if (bit < 0) {
+            return;
+        }
+        BitSet current = index.get(userId);
+        if ((current != null && current.get(bit)) == value) {
+            return;
+        }
+        BitSet next = current != null ? (BitSet) current.clone() : new BitSet();
+        next.set(bit, value);
+        if (next.isEmpty()) {
+            index.remove(userId);
+        } else {
+            index.put(userId, next);
+        }
+    }
+
+    private static boolean isActive(Boolean isActive) {
+        // Отключенное участие (isActive = false) не дает доступа к проекту
+        return !Boolean.FALSE.equals(isActive);
+    }
+}
@@ -1,23 +1,25 @@
 package com.avigeya.projectboard.service;
 
-import com.avigeya.projectboard.domain.Project;
 import com.avigeya.projectboard.domain.ProjectMember;
-import com.avigeya.projectboard.domain.Stage;
-import com.avigeya.projectboard.domain.User;
+import com.avigeya.projectboard.domain.ProjectStage;
+import com.avigeya.projectboard.event.ReferenceDataChangedEvent;
 import com.avigeya.projectboard.repository.ProjectRepository;
 import com.avigeya.projectboard.repository.ProjectMemberRepository;
 import com.avigeya.projectboard.repository.ProjectStageRepository;
-import com.avigeya.projectboard.repository.StageRepository;
 import com.avigeya.projectboard.service.ProjectService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -26,27 +28,30 @@ import java.util.stream.Collectors;
 public class ProjectServiceImpl implements ProjectService {
 
     private final ProjectRepository projectRepository;
-    private final StageRepository stageRepository;
     private final ProjectStageRepository projectStageRepository;
     private final ProjectMemberRepository projectMemberRepository;
+    private final ChangeLogService changeLogService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     @Transactional
     public void updateProjectStages(Long projectId, List<Long> stageIds) {
-        Project project = projectRepository.findById(projectId)
-                .orElseThrow(() -> new EntityNotFoundException("Проект с ID " + projectId + " не найден."));
+        requireProject(projectId);
 
-        // Удаляем старые связи
-        projectStageRepository.deleteByProjectId(projectId);
+        LinkDiff diff = syncActiveFlags(projectStageRepository.findByProjectId(projectId),
+                ps -> ps.getStage().getId(), ProjectStage::getIsActive, ProjectStage::setIsActive, stageIds);
+        if (!diff.missing().isEmpty()) {
+            projectStageRepository.insertActiveStages(projectId, diff.missing());
+        }
+        if (diff.isEmpty()) {
+            log.info("Этапы проекта ID {} не изменились.", projectId);
+            return;
+        }
 
-        // Создаем новые связи
-        List<com.avigeya.projectboard.domain.ProjectStage> newProjectStages = stageIds.stream().map(stageId -> {
-            Stage stage = new Stage(stageId); // Создаем прокси-объект Stage
-            return new com.avigeya.projectboard.domain.ProjectStage(null, project, stage, true);
-        }).collect(Collectors.toList());
-
-        projectStageRepository.saveAll(newProjectStages);
-        log.info("Этапы для проекта ID {} обновлены. Новые этапы: {}", projectId, stageIds);
+        changeLogService.recordProjectStagesChange(projectId);
+        eventPublisher.publishEvent(new ReferenceDataChangedEvent("project " + projectId + " stages"));
+        log.info("Этапы для проекта ID {} обновлены. Новые этапы: {} (переключено {}, добавлено {})", projectId,
+                stageIds, diff.toggled(), diff.missing().size());
     }
 
     @Override
@@ -54,19 +59,57 @@ public class ProjectServiceImpl implements ProjectService {
     public void updateProjectMembers(Long projectId, List<Long> memberIds, String modifierName) {
         log.info("Пользователь '{}' обновляет участников для проекта ID: {}. Новые участники: {}", modifierName,
                 projectId, memberIds);
+        requireProject(projectId);
 
-        Project project = projectRepository.findById(projectId)
-                .orElseThrow(() -> new EntityNotFoundException("Проект с ID " + projectId + " не найден."));
+        LinkDiff diff = syncActiveFlags(projectMemberRepository.findByProjectId(projectId),
+                pm -> pm.getUser().getId(), ProjectMember::getIsActive, ProjectMember::setIsActive, memberIds);
+        if (!diff.missing().isEmpty()) {
+            projectMemberRepository.insertActiveMembers(projectId, diff.missing());
+        }
+        if (diff.isEmpty()) {
+            log.info("Участники проекта ID {} не изменились.", projectId);
+            return;
+        }
 
-        // Удаляем старые связи
-        projectMemberRepository.deleteByProjectId(projectId);
+        changeLogService.recordProjectMembersChange(projectId);
+        eventPublisher.publishEvent(new ReferenceDataChangedEvent("project " + projectId + " members"));
+        log.info("Участники проекта ID {} обновлены (переключено {}, добавлено {})", projectId, diff.toggled(),
+                diff.missing().size());
+    }
 
-        // Создаем новые связи
-        List<ProjectMember> newMembers = memberIds.stream().map(memberId -> {
-            User user = new User(memberId); // Создаем прокси-объект User, не загружая его из БД
-            return new ProjectMember(null, project, user, true);
-        }).collect(Collectors.toList());
+    private void requireProject(Long projectId) {
+        if (!projectRepository.existsById(projectId)) {
+            throw new EntityNotFoundException("Проект с ID " + projectId + " не найден.");
+        }
+    }
+
+    /**
+     * Приводит связи проекта к запрошенному набору ID, не удаляя строки:
+     * существующие связи включаются или выключаются через isActive (изменения
+     * уходят одним JDBC-пакетом при flush), а ID без связи возвращаются для
+     * вставки.
+     */
+    private <L> LinkDiff syncActiveFlags(List<L> links, Function<L, Long> targetId, Function<L, Boolean> isActive,
+            BiConsumer<L, Boolean> setActive, List<Long> requestedIds) {
+        Set<Long> requested = requestedIds == null ? Set.of()
+                : requestedIds.stream().filter(Objects::nonNull).collect(Collectors.toSet());
+        Set<Long> missing = new HashSet<>(requested);
+        int toggled = 0;
+        for (L link : links) {
+            Long id = targetId.apply(link);
+            boolean active = requested.contains(id);
+            missing.remove(id);
+            if (!Boolean.valueOf(active).equals(isActive.apply(link))) {
+                setActive.accept(link, active);
+                toggled++;
+            }
+        }
+        return new LinkDiff(toggled, missing);
+    }
 
-        projectMemberRepository.saveAll(newMembers);
+    private record LinkDiff(int toggled, Set<Long> missing) {
+        boolean isEmpty() {
+            return toggled == 0 && missing.isEmpty();
+        }
     }
 }
@@ -0,0 +1,160 @@
+package com.avigeya.projectboard.service;
+
+import com.avigeya.projectboard.dto.ProjectDto;
+import com.avigeya.projectboard.dto.ProjectMemberDto;
+import com.avigeya.projectboard.dto.ProjectStageDto;
+import com.avigeya.projectboard.dto.StageDto;
+import com.avigeya.projectboard.dto.StatusDto;
+import com.avigeya.projectboard.dto.UserDto;
+import com.avigeya.projectboard.event.ReferenceDataChangedEvent;
+import com.avigeya.projectboard.repository.ProjectMemberRepository;
+import com.avigeya.projectboard.repository.ProjectRepository;
+import com.avigeya.projectboard.repository.ProjectStageRepository;
+import com.avigeya.projectboard.repository.StageRepository;
+import com.avigeya.projectboard.repository.StatusRepository;
+import com.avigeya.projectboard.repository.UserRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кэш справочных данных для /api/v1/app-data.
+ * <p>
+ * Хранит неизменяемый {@link ReferenceDataSnapshot} и перестраивает его лениво
+ * при первом запросе после инвалидации. Инвалидация происходит по
+ * {@link ReferenceDataChangedEvent} только после коммита изменяющей транзакции,
+ * поэтому снимок никогда не содержит незакоммиченных данных.
+ */
+@Service
+@Slf4j
+public class ReferenceDataCache {
+
+    private final UserRepository userRepository;
+    private final StatusRepository statusRepository;
+    private final StageRepository stageRepository;
+    private final ProjectRepository projectRepository;
+    private final ProjectMemberRepository projectMemberRepository;
+    private final ProjectStageRepository projectStageRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong rebuilds = new AtomicLong();
+
+    private volatile ReferenceDataSnapshot snapshot;
+
+    public ReferenceDataCache(UserRepository userRepository, StatusRepository statusRepository,
+            StageRepository stageRepository, ProjectRepository projectRepository,
+            ProjectMemberRepository projectMemberRepository, ProjectStageRepository projectStageRepository,
+            PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.statusRepository = statusRepository;
+        this.stageRepository = stageRepository;
+        this.projectRepository = projectRepository;
+        this.projectMemberRepository = projectMemberRepository;
+        this.projectStageRepository = projectStageRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+
+        FunctionCounter.builder("board.reference_cache.requests", hits, AtomicLong::get)
+                .tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("board.reference_cache.requests", misses, AtomicLong::get)
+                .tag("result", "miss").register(meterRegistry);
+        FunctionCounter.builder("board.reference_cache.rebuilds", rebuilds, AtomicLong::get)
+                .register(meterRegistry);
+        Gauge.builder("board.reference_cache.version", generation, AtomicLong::get)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Возвращает актуальный снимок справочников, при необходимости перестраивая
+     * его.
+     *
+     * @return Неизменяемый снимок справочных данных.
+     */
+    public ReferenceDataSnapshot getSnapshot() {
+        ReferenceDataSnapshot current = snapshot;
+        if (current != null && current.getVersion() == generation.get()) {
+            hits.incrementAndGet();
+            return current;
+        }
+        misses.incrementAndGet();
+        return rebuild();
+    }
+
+    /**
+     * Текущая версия справочников. Не требует обращения к БД.
+     */
+    public long getVersion() {
+        return generation.get();
+    }
+
+    /**
+     * Помечает снимок устаревшим. Следующий вызов {@link #getSnapshot()}
+     * перестроит его.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        snapshot = null;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReferenceDataChanged(ReferenceDataChangedEvent event) {
+        log.debug("Справочники изменены ({}). Кэш будет перестроен.", event.getReason());
+        invalidate();
+    }
+
+    private synchronized ReferenceDataSnapshot rebuild() {
+        // Пока мы ждали монитор, снимок мог перестроить другой поток
+        long version = generation.get();
+        ReferenceDataSnapshot current = snapshot;
+        if (current != null && current.getVersion() == version) {
+            return current;
+        }
+
+        // Транзакция открывается только при перестроении: попадание в кэш не берет соединение из пула
+        ReferenceDataSnapshot rebuilt = readOnlyTransaction.execute(status -> load(version));
+        // Если во время загрузки пришла инвалидация, не публикуем устаревший снимок
+        if (generation.get() == version) {
+            snapshot = rebuilt;
+        }
+        rebuilds.incrementAndGet();
+        log.info("Кэш справочников перестроен (версия {}).", version);
+        return rebuilt;
+    }
+
+    private ReferenceDataSnapshot load(long version) {
+        List<UserDto> users = userRepository.findAll().stream()
+                .map(u -> new UserDto(u.getId(), u.getName(), u.getRole()))
+                .toList();
+        List<StatusDto> statuses = statusRepository.findAll().stream()
+                .map(s -> new StatusDto(s.getId(), s.getName(), s.getIcon(), s.getOrder()))
+                .toList();
+        List<StageDto> stages = stageRepository.findAll().stream()
+                .map(s -> new StageDto(s.getId(), s.getName(), s.getDescription()))
+                .toList();
+        List<ProjectDto> projects = projectRepository.findAll().stream()
+                .map(p -> new ProjectDto(p.getId(), p.getName()))
+                .toList();
+        List<ProjectMemberDto> projectMembers = projectMemberRepository.findAll().stream()
+                .map(pm -> new ProjectMemberDto(pm.getId(), pm.getProject().getId(), pm.getUser().getId(),
+                        pm.getIsActive()))
+                .toList();
+        List<ProjectStageDto> projectStages = projectStageRepository.findAll().stream()
+                .map(ps -> new ProjectStageDto(ps.getId(), ps.getProject().getId(), ps.getStage().getId(),
+                        ps.getIsActive()))
+                .toList();
+
+        return new ReferenceDataSnapshot(version, users, statuses, stages, projects, projectMembers,
+                projectStages);
+    }
+}
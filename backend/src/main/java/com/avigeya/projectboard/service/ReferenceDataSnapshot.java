@@ -0,0 +1,30 @@
+package com.avigeya.projectboard.service;
+
+import com.avigeya.projectboard.dto.ProjectDto;
+import com.avigeya.projectboard.dto.ProjectMemberDto;
+import com.avigeya.projectboard.dto.ProjectStageDto;
+import com.avigeya.projectboard.dto.StageDto;
+import com.avigeya.projectboard.dto.StatusDto;
+import com.avigeya.projectboard.dto.UserDto;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Неизменяемый снимок справочников, общих для всех пользователей.
+ * Списки создаются через {@code Stream.toList()} и не могут быть изменены.
+ */
+@Value
+public class ReferenceDataSnapshot {
+    /**
+     * Версия снимка. Увеличивается при каждой инвалидации кэша.
+     */
+    long version;
+
+    List<UserDto> users;
+    List<StatusDto> statuses;
+    List<StageDto> stages;
+    List<ProjectDto> projects;
+    List<ProjectMemberDto> projectMembers;
+    List<ProjectStageDto> projectStages;
+}
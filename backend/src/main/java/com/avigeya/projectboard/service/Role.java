@@ -0,0 +1,66 @@
+package com.avigeya.projectboard.service;
+
+import java.util.Locale;
+
+/**
+ * Роль пользователя (users.role) и права, которые она дает.
+ * <p>
+ * Владелец и администратор видят все проекты и управляют их этапами и
+ * участниками. Дизайнер, подрядчик и партнер работают с задачами проектов, где
+ * они участники. Клиент только просматривает доску своих проектов.
+ */
+public enum Role {
+    OWNER(true, true),
+    ADMIN(true, true),
+    DESIGNER(false, true),
+    CONTRACTOR(false, true),
+    PARTNER(false, true),
+    CLIENT(false, false),
+    /**
+     * Роль, которой нет в перечислении: доступ только на чтение.
+     */
+    UNKNOWN(false, false);
+
+    private final boolean administrator;
+    private final boolean editsTasks;
+
+    Role(boolean administrator, boolean editsTasks) {
+        this.administrator = administrator;
+        this.editsTasks = editsTasks;
+    }
+
+    /**
+     * @param role Значение users.role, например "owner".
+     */
+    public static Role of(String role) {
+        if (role == null || role.isBlank()) {
+            return UNKNOWN;
+        }
+        try {
+            return valueOf(role.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return UNKNOWN;
+        }
+    }
+
+    /**
+     * @return true, если роль видит все проекты и задачи независимо от участия.
+     */
+    public boolean seesAllProjects() {
+        return administrator;
+    }
+
+    /**
+     * @return true, если роль может менять этапы и участников проектов.
+     */
+    public boolean managesProjects() {
+        return administrator;
+    }
+
+    /**
+     * @return true, если роль может создавать и менять задачи доступных проектов.
+     */
+    public boolean editsTasks() {
+        return editsTasks;
+    }
+}
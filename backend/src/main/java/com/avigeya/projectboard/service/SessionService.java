@@ -0,0 +1,111 @@
+package com.avigeya.projectboard.service;
+
+import com.avigeya.projectboard.event.ReferenceDataChangedEvent;
+import com.avigeya.projectboard.exception.ResourceNotFoundException;
+import com.avigeya.projectboard.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Кэш проверенных сессий Telegram.
+ * <p>
+ * Повторные запросы с теми же initData не проверяют HMAC и не читают таблицу
+ * users: по строке initData сразу возвращается {@link SessionUser}. Ключом
+ * служит вся строка initData, а не только параметр hash, — иначе подделанные
+ * данные с чужим hash попали бы в кэш. Кэш ограничен по размеру и времени
+ * жизни записи и сбрасывается при изменении справочников (в том числе
+ * пользователей).
+ */
+@Service
+@Slf4j
+public class SessionService {
+
+    private final TelegramValidationService telegramValidationService;
+    private final UserRepository userRepository;
+
+    private final Cache<String, SessionUser> sessions;
+    private final Cache<Long, SessionUser> debugSessions;
+
+    public SessionService(TelegramValidationService telegramValidationService, UserRepository userRepository,
+            MeterRegistry meterRegistry,
+            @Value("${board.session.ttl:PT10M}") Duration ttl,
+            @Value("${board.session.max-size:10000}") long maxSize) {
+        this.telegramValidationService = telegramValidationService;
+        this.userRepository = userRepository;
+        this.sessions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.debugSessions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, sessions, "board.sessions");
+    }
+
+    /**
+     * Проверяет initData и возвращает пользователя сессии.
+     *
+     * @param initData window.Telegram.WebApp.initData.
+     * @return Пользователь или null, если initData не прошли проверку.
+     * @throws ResourceNotFoundException если пользователя с таким Telegram ID нет.
+     */
+    public SessionUser getSession(String initData) {
+        if (initData == null || initData.isEmpty()) {
+            return null;
+        }
+        SessionUser cached = sessions.getIfPresent(initData);
+        if (cached != null) {
+            return cached;
+        }
+
+        Map<String, String> params = telegramValidationService.parseInitData(initData);
+        if (!telegramValidationService.isDataSafe(params)) {
+            return null;
+        }
+        Long tgUserId = telegramValidationService.getTelegramUserId(params);
+        if (tgUserId == null) {
+            return null;
+        }
+        SessionUser user = loadUser(tgUserId);
+        sessions.put(initData, user);
+        return user;
+    }
+
+    /**
+     * Пользователь для режима отладки (без проверки подписи).
+     *
+     * @param tgUserId Telegram ID пользователя.
+     * @throws ResourceNotFoundException если пользователя с таким Telegram ID нет.
+     */
+    public SessionUser getDebugSession(Long tgUserId) {
+        return debugSessions.get(tgUserId, this::loadUser);
+    }
+
+    public void invalidateAll() {
+        sessions.invalidateAll();
+        debugSessions.invalidateAll();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReferenceDataChanged(ReferenceDataChangedEvent event) {
+        log.debug("Справочники изменены ({}). Кэш сессий сброшен.", event.getReason());
+        invalidateAll();
+    }
+
+    private SessionUser loadUser(Long tgUserId) {
+        return userRepository.findByTgUserId(tgUserId)
+                .map(SessionUser::of)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with Telegram ID: " + tgUserId));
+    }
+}
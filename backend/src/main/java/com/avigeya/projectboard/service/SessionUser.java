@@ -0,0 +1,35 @@
+package com.avigeya.projectboard.service;
+
+import com.avigeya.projectboard.domain.User;
+import lombok.Value;
+
+/**
+ * Пользователь проверенной сессии: то, что нужно обработчикам запросов, без
+ * обращения к таблице users.
+ */
+@Value
+public class SessionUser {
+    /**
+     * Внутренний ID пользователя (users.id).
+     */
+    Long id;
+    Long tgUserId;
+    String name;
+    String role;
+    /**
+     * Роль, разобранная из {@link #role} один раз при создании сессии.
+     */
+    Role access;
+
+    public static SessionUser of(User user) {
+        return new SessionUser(user.getId(), user.getTgUserId(), user.getName(), user.getRole(),
+                Role.of(user.getRole()));
+    }
+
+    /**
+     * @return true для владельца и администратора, которые видят все задачи.
+     */
+    public boolean seesAllTasks() {
+        return access.seesAllProjects();
+    }
+}
@@ -0,0 +1,152 @@
+package com.avigeya.projectboard.service;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Неизменяемая таблица с ключами {@code long}, разбитая на сегменты
+ * {@link LongObjectMap}. Изменения собираются в {@link Editor}: он копирует
+ * массив ссылок на сегменты и только те сегменты, которые меняет, а остальные
+ * делит с исходной таблицей. Поэтому обновление {@link BoardReadModel} на одну
+ * задачу копирует несколько сегментов, а не всю доску.
+ * <p>
+ * Число сегментов выбирается при создании по ожидаемому размеру и дальше не
+ * меняется; сегменты растут сами, а при полной перезагрузке модели таблица
+ * строится заново.
+ */
+final class ShardedLongObjectMap<V> {
+
+    // Ожидаемое число элементов в сегменте: столько копирует изменение одного ключа
+    private static final int SHARD_SIZE = 64;
+    private static final int MAX_SHARD_BITS = 16;
+
+    private final LongObjectMap<V>[] shards;
+    private final int shardBits;
+    private final int size;
+
+    private ShardedLongObjectMap(LongObjectMap<V>[] shards, int shardBits, int size) {
+        this.shards = shards;
+        this.shardBits = shardBits;
+        this.size = size;
+    }
+
+    /**
+     * @return Редактор пустой таблицы с числом сегментов под expectedSize
+     *         элементов.
+     */
+    static <V> Editor<V> builder(int expectedSize) {
+        int shardBits = Math.min(MAX_SHARD_BITS,
+                32 - Integer.numberOfLeadingZeros(Math.max(1, expectedSize / SHARD_SIZE) - 1));
+        @SuppressWarnings("unchecked")
+        LongObjectMap<V>[] shards = new LongObjectMap[1 << shardBits];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new LongObjectMap<>(SHARD_SIZE);
+        }
+        Editor<V> editor = new ShardedLongObjectMap<>(shards, shardBits, 0).edit();
+        // Сегменты созданы только что, копировать их незачем
+        Arrays.fill(editor.owned, true);
+        return editor;
+    }
+
+    /**
+     * @return Редактор новой версии таблицы; сама таблица не меняется.
+     */
+    Editor<V> edit() {
+        return new Editor<>(this);
+    }
+
+    int size() {
+        return size;
+    }
+
+    V get(long key) {
+        return shards[shard(key, shardBits)].get(key);
+    }
+
+    boolean containsKey(long key) {
+        return shards[shard(key, shardBits)].containsKey(key);
+    }
+
+    /**
+     * @return Ключи по возрастанию.
+     */
+    long[] keys() {
+        long[] result = new long[size];
+        int i = 0;
+        for (LongObjectMap<V> shard : shards) {
+            long[] keys = shard.keys();
+            System.arraycopy(keys, 0, result, i, keys.length);
+            i += keys.length;
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    void forEachValue(Consumer<? super V> action) {
+        for (LongObjectMap<V> shard : shards) {
+            shard.forEachValue(action);
+        }
+    }
+
+    private static int shard(long key, int shardBits) {
+        // Старшие биты хеша: младшие LongObjectMap использует для ячеек внутри сегмента
+        return shardBits == 0 ? 0 : (int) ((key * 0x9E3779B97F4A7C15L) >>> (64 - shardBits));
+    }
+
+    @Override
+    public String toString() {
+        return "ShardedLongObjectMap{size=" + size + ", shards=" + shards.length + "}";
+    }
+
+    /**
+     * Изменяемая версия таблицы. Сегмент копируется при первом изменении;
+     * после {@link #build()} редактор использовать нельзя.
+     */
+    static final class Editor<V> {
+
+        private final LongObjectMap<V>[] shards;
+        private final boolean[] owned;
+        private final int shardBits;
+        private int size;
+
+        private Editor(ShardedLongObjectMap<V> source) {
+            shards = source.shards.clone();
+            owned = new boolean[shards.length];
+            shardBits = source.shardBits;
+            size = source.size;
+        }
+
+        V get(long key) {
+            return shards[shard(key, shardBits)].get(key);
+        }
+
+        void put(long key, V value) {
+            LongObjectMap<V> shard = writable(key);
+            int before = shard.size();
+            shard.put(key, value);
+            size += shard.size() - before;
+        }
+
+        void remove(long key) {
+            int index = shard(key, shardBits);
+            if (!shards[index].containsKey(key)) {
+                return;
+            }
+            writable(key).remove(key);
+            size--;
+        }
+
+        ShardedLongObjectMap<V> build() {
+            return new ShardedLongObjectMap<>(shards, shardBits, size);
+        }
+
+        private LongObjectMap<V> writable(long key) {
+            int index = shard(key, shardBits);
+            if (!owned[index]) {
+                shards[index] = shards[index].copy();
+                owned[index] = true;
+            }
+            return shards[index];
+        }
+    }
+}
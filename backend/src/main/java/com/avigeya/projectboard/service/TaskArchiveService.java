@@ -0,0 +1,137 @@
+package com.avigeya.projectboard.service;
+
+import com.avigeya.projectboard.domain.ArchivedTask;
+import com.avigeya.projectboard.domain.Status;
+import com.avigeya.projectboard.dto.StageDto;
+import com.avigeya.projectboard.dto.StatusDto;
+import com.avigeya.projectboard.dto.TaskDto;
+import com.avigeya.projectboard.dto.TaskHistoryPage;
+import com.avigeya.projectboard.dto.UserDto;
+import com.avigeya.projectboard.repository.ArchivedTaskRepository;
+import com.avigeya.projectboard.repository.TaskMemberRepository;
+import com.avigeya.projectboard.repository.TaskRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Архив выполненных задач: перенос из tasks и чтение истории.
+ * <p>
+ * Выполненные задачи не показываются на доске, но остаются в tasks и ее
+ * индексах. После переноса в archived_tasks горячая таблица содержит только
+ * текущую работу.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TaskArchiveService {
+
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private final TaskRepository taskRepository;
+    private final TaskMemberRepository taskMemberRepository;
+    private final TaskVisibilityService taskVisibilityService;
+    private final ArchivedTaskRepository archivedTaskRepository;
+    private final ReferenceDataCache referenceDataCache;
+
+    /**
+     * Отмечает выполненные задачи без момента завершения (выполнены до
+     * появления completed_at или загружены из CSV) моментом {@code now}.
+     *
+     * @return Сколько задач отмечено.
+     */
+    @Transactional
+    public int markCompletedWithoutTimestamp(Instant now) {
+        return taskRepository.markCompletedWithoutTimestamp(Status.DONE, now);
+    }
+
+    /**
+     * Переносит в архив не больше {@code limit} задач, выполненных раньше
+     * {@code completedBefore}, вместе с участниками.
+     *
+     * @return Сколько задач перенесено.
+     */
+    @Transactional
+    public int archiveCompleted(Instant completedBefore, int limit) {
+        List<Long> taskIds = taskRepository.lockCompletedBefore(Status.DONE, completedBefore, limit);
+        if (taskIds.isEmpty()) {
+            return 0;
+        }
+        archivedTaskRepository.copyTasks(taskIds, Instant.now());
+        archivedTaskRepository.copyMembers(taskIds);
+        taskMemberRepository.deleteByTaskIdIn(taskIds);
+        taskVisibilityService.removeTasks(taskIds);
+        taskRepository.deleteAllByIdInBatch(taskIds);
+        return taskIds.size();
+    }
+
+    /**
+     * Страница архива проекта, начиная с последних перенесенных задач.
+     * Пользователь, который видит не все задачи, получает только те, где он был
+     * куратором, автором или участником.
+     *
+     * @param page Номер страницы с нуля.
+     * @param size Размер страницы, не больше {@value #MAX_PAGE_SIZE}.
+     */
+    @Transactional(readOnly = true)
+    public TaskHistoryPage findHistory(Long projectId, SessionUser user, int page, int size) {
+        PageRequest pageRequest = PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_PAGE_SIZE));
+        Slice<ArchivedTask> slice = user.seesAllTasks()
+                ? archivedTaskRepository.findByProjectId(projectId, pageRequest)
+                : archivedTaskRepository.findByProjectIdVisibleToUser(projectId, user.getId(), pageRequest);
+
+        ReferenceDataSnapshot refs = referenceDataCache.getSnapshot();
+        Map<Long, StatusDto> statuses = indexById(refs.getStatuses(), StatusDto::getId);
+        Map<Long, StageDto> stages = indexById(refs.getStages(), StageDto::getId);
+        Map<Long, UserDto> users = indexById(refs.getUsers(), UserDto::getId);
+        List<TaskDto> tasks = slice.getContent().stream()
+                .map(task -> toTaskDto(task, statuses, stages, users))
+                .toList();
+        return new TaskHistoryPage(tasks, pageRequest.getPageNumber(), pageRequest.getPageSize(), slice.hasNext());
+    }
+
+    private static TaskDto toTaskDto(ArchivedTask task, Map<Long, StatusDto> statuses, Map<Long, StageDto> stages,
+            Map<Long, UserDto> users) {
+        TaskDto dto = new TaskDto();
+        dto.setId(task.getId());
+        dto.setName(task.getName());
+        dto.setMessage(task.getMessage());
+        dto.setPriority(task.getPriority());
+        dto.setStartDate(task.getStartDate());
+        dto.setFinishDate(task.getFinishDate());
+        dto.setProjectId(task.getProjectId());
+        dto.setVersion(task.getVersion());
+        dto.setStatus(task.getStatusId() != null ? statuses.get(task.getStatusId()) : null);
+        dto.setStage(task.getStageId() != null ? stages.get(task.getStageId()) : null);
+        dto.setCurator(user(task.getCuratorId(), users));
+        dto.setAuthor(user(task.getAuthorId(), users));
+        dto.setMembers(task.getMemberIds().stream()
+                .sorted(Comparator.naturalOrder())
+                .map(id -> user(id, users))
+                .toList());
+        return dto;
+    }
+
+    // Пользователя могли удалить после архивации: тогда остается только ID
+    private static UserDto user(Long userId, Map<Long, UserDto> users) {
+        if (userId == null) {
+            return null;
+        }
+        UserDto user = users.get(userId);
+        return user != null ? user : new UserDto(userId, null);
+    }
+
+    private static <T> Map<Long, T> indexById(List<T> items, Function<T, Long> id) {
+        return items.stream().collect(Collectors.toMap(id, Function.identity()));
+    }
+}
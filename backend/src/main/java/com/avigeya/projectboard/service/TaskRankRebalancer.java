@@ -0,0 +1,44 @@
+package com.avigeya.projectboard.service;
+
+import com.avigeya.projectboard.dto.TaskColumn;
+import com.avigeya.projectboard.repository.TaskRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Фоновая перебалансировка рангов: назначает ранги новым задачам и заранее
+ * раздвигает колонки, в которых промежутки между рангами почти закончились.
+ * Каждая колонка обрабатывается в своей транзакции.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TaskRankRebalancer {
+
+    private final TaskRepository taskRepository;
+    private final TaskRankService taskRankService;
+
+    @Scheduled(fixedDelayString = "${board.rank.rebalance-interval:PT10M}",
+            initialDelayString = "${board.rank.rebalance-initial-delay:PT1M}")
+    public void rebalance() {
+        Set<TaskColumn> columns = new LinkedHashSet<>(taskRepository.findColumnsWithUnrankedTasks());
+        columns.addAll(taskRepository.findColumnsWithTightRanks(TaskRanks.MIN_GAP));
+        if (columns.isEmpty()) {
+            return;
+        }
+        log.info("Перебалансировка рангов: {} колонок.", columns.size());
+        for (TaskColumn column : columns) {
+            try {
+                taskRankService.rebalanceColumn(column.projectId(), column.statusId(), false);
+            } catch (RuntimeException e) {
+                // Например, конфликт с параллельным перемещением — колонка будет обработана в следующий раз
+                log.warn("Не удалось перебалансировать колонку {}: {}", column, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.avigeya.projectboard.service;
+
+import com.avigeya.projectboard.domain.Task;
+import com.avigeya.projectboard.dto.TaskMoveRequest;
+import com.avigeya.projectboard.dto.TaskRankDto;
+import com.avigeya.projectboard.exception.BadRequestException;
+import com.avigeya.projectboard.exception.ResourceNotFoundException;
+import com.avigeya.projectboard.repository.TaskRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Порядок задач внутри колонки на основе разреженных рангов (см. {@link TaskRanks}).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TaskRankService {
+
+    private final TaskRepository taskRepository;
+    private final ChangeLogService changeLogService;
+
+    /**
+     * Ставит задачу между двумя соседями. Обычно меняется ранг только у самой
+     * задачи; если между соседями не осталось места, колонка сначала
+     * перебалансируется.
+     *
+     * @param request ID задачи и ее новых соседей.
+     * @return Задачи, у которых изменился ранг (всегда включает перемещенную).
+     */
+    @Transactional
+    public List<TaskRankDto> moveTask(TaskMoveRequest request) {
+        Task task = findOpenTask(request.getTaskId());
+        Task previous = request.getPreviousTaskId() != null ? findOpenTask(request.getPreviousTaskId()) : null;
+        Task next = request.getNextTaskId() != null ? findOpenTask(request.getNextTaskId()) : null;
+        requireSameColumn(task, previous);
+        requireSameColumn(task, next);
+
+        Map<Long, TaskRankDto> changed = new LinkedHashMap<>();
+        Long rank = rankBetween(previous, next);
+        if (rank == null) {
+            // Места между соседями нет (или у них еще нет рангов): раздвигаем колонку
+            log.info("Нет места для задачи {} между {} и {}. Перебалансировка колонки.", task.getId(),
+                    request.getPreviousTaskId(), request.getNextTaskId());
+            for (Task rebalanced : rebalanceColumn(task.getProject().getId(), task.getStatus().getId(), true)) {
+                changed.put(rebalanced.getId(), new TaskRankDto(rebalanced.getId(), rebalanced.getRank()));
+            }
+            rank = rankBetween(previous, next);
+        }
+
+        task.setRank(rank);
+        changeLogService.recordTaskChange(task);
+        changed.put(task.getId(), new TaskRankDto(task.getId(), rank));
+        log.info("Задача {} перемещена, новый ранг {}.", task.getId(), rank);
+        return List.copyOf(changed.values());
+    }
+
+    /**
+     * Назначает ранги задачам колонки. Если в колонке есть слишком близкие ранги
+     * (или {@code force}), ранги всех задач раздвигаются с шагом
+     * {@link TaskRanks#GAP}; иначе ранги получают только задачи без ранга — в
+     * конце колонки.
+     *
+     * @return Задачи, у которых изменился ранг.
+     */
+    @Transactional
+    public List<Task> rebalanceColumn(Long projectId, Long statusId, boolean force) {
+        List<Task> column = taskRepository.findColumnOrderedByRank(projectId, statusId);
+        List<Task> changed = new ArrayList<>();
+
+        if (force || hasTightGap(column)) {
+            long rank = 0;
+            for (Task task : column) {
+                rank += TaskRanks.GAP;
+                if (!Objects.equals(task.getRank(), rank)) {
+                    task.setRank(rank);
+                    changed.add(task);
+                }
+            }
+        } else {
+            // Задачи без ранга идут в конце списка, после максимального ранга
+            long rank = column.stream().map(Task::getRank).filter(Objects::nonNull)
+                    .reduce((first, second) -> second).orElse(0L);
+            for (Task task : column) {
+                if (task.getRank() == null) {
+                    rank += TaskRanks.GAP;
+                    task.setRank(rank);
+                    changed.add(task);
+                }
+            }
+        }
+
+        if (!changed.isEmpty()) {
+            changeLogService.recordTaskChanges(changed);
+            log.info("Колонка (проект {}, статус {}): обновлены ранги {} из {} задач.", projectId, statusId,
+                    changed.size(), column.size());
+        }
+        return changed;
+    }
+
+    private Long rankBetween(Task previous, Task next) {
+        Long previousRank = previous != null ? previous.getRank() : null;
+        Long nextRank = next != null ? next.getRank() : null;
+        if ((previous != null && previousRank == null) || (next != null && nextRank == null)) {
+            return null;
+        }
+        // Соседи в неправильном порядке означают устаревшую картину у клиента: раздвигаем и считаем заново
+        if (previousRank != null && nextRank != null && previousRank >= nextRank) {
+            return null;
+        }
+        return TaskRanks.between(previousRank, nextRank);
+    }
+
+    private boolean hasTightGap(List<Task> column) {
+        Long previous = null;
+        for (Task task : column) {
+            if (task.getRank() == null) {
+                break;
+            }
+            if (previous != null && task.getRank() - previous < TaskRanks.MIN_GAP) {
+                return true;
+            }
+            previous = task.getRank();
+        }
+        return false;
+    }
+
+    private Task findOpenTask(Long taskId) {
+        return taskRepository.findById(taskId)
+                .filter(task -> !task.isDeleted())
+                .orElseThrow(() -> new ResourceNotFoundException("Task not found with id: " + taskId));
+    }
+
+    private void requireSameColumn(Task task, Task neighbour) {
+        if (neighbour == null) {
+            return;
+        }
+        if (neighbour.getId().equals(task.getId())
+                || !neighbour.getProject().getId().equals(task.getProject().getId())
+                || task.getStatus() == null || neighbour.getStatus() == null
+                || !neighbour.getStatus().getId().equals(task.getStatus().getId())) {
+            throw new BadRequestException("Задача " + neighbour.getId() + " не находится в той же колонке, что и "
+                    + task.getId());
+        }
+    }
+}
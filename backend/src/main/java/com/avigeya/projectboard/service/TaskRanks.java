@@ -0,0 +1,50 @@
+package com.avigeya.projectboard.service;
+
+/**
+ * Разреженные ранги задач внутри колонки доски.
+ * <p>
+ * Соседние задачи получают ранги с шагом {@link #GAP}, поэтому задачу можно
+ * поставить между любыми двумя соседями, изменив только ее собственный ранг.
+ * Каждое такое перемещение делит промежуток пополам; когда промежуток
+ * заканчивается, колонку нужно перебалансировать.
+ */
+public final class TaskRanks {
+
+    /**
+     * Шаг между соседними рангами после перебалансировки. Его хватает примерно
+     * на 20 вставок подряд в одно и то же место.
+     */
+    public static final long GAP = 1L << 20;
+
+    /**
+     * Если два соседних ранга ближе этого значения, фоновая перебалансировка
+     * раздвигает колонку заранее, до того как место закончится совсем.
+     */
+    public static final long MIN_GAP = 1L << 6;
+
+    private TaskRanks() {
+    }
+
+    /**
+     * Вычисляет ранг между двумя соседями.
+     *
+     * @param previous Ранг задачи выше (null — вставка в начало колонки).
+     * @param next     Ранг задачи ниже (null — вставка в конец колонки).
+     * @return Новый ранг или null, если между соседями нет свободного значения.
+     */
+    public static Long between(Long previous, Long next) {
+        if (previous == null && next == null) {
+            return GAP;
+        }
+        if (previous == null) {
+            return next - GAP;
+        }
+        if (next == null) {
+            return previous + GAP;
+        }
+        if (next - previous < 2) {
+            return null;
+        }
+        return previous + (next - previous) / 2;
+    }
+}
@@ -1,21 +1,56 @@
 package com.avigeya.projectboard.service;
 
 import com.avigeya.projectboard.dto.TaskBatchUpdateRequest;
+import com.avigeya.projectboard.dto.TaskBatchUpdateResult;
 import com.avigeya.projectboard.dto.TaskDto;
+import com.fasterxml.jackson.databind.JsonNode;
 
 import java.util.List;
 
 public interface TaskService {
     TaskDto updateTask(Long taskId, TaskDto taskDto); // This line is already present, no change needed.
 
+    /**
+     * Частично обновляет задачу по JSON Merge Patch (RFC 7396): меняются только
+     * поля, присутствующие в патче; null очищает поле, массив members
+     * заменяется целиком.
+     *
+     * @param taskId          ID задачи.
+     * @param patch           JSON-объект с изменениями.
+     * @param expectedVersion Ожидаемая версия (из If-Match); если null, берется
+     *                        поле version патча, а без него версия не проверяется.
+     * @return Задача после изменения.
+     * @throws com.avigeya.projectboard.exception.TaskVersionConflictException
+     *         если версия не совпала.
+     */
+    TaskDto patchTask(Long taskId, JsonNode patch, Integer expectedVersion);
+
     void updateTaskPriorities(List<Long> taskIds);
 
+    /**
+     * Создает задачи. Автором каждой задачи становится пользователь сессии; если
+     * куратор не указан, им тоже становится автор.
+     *
+     * @param taskDtos Данные новых задач. Обязательны name и projectId.
+     * @param author   Пользователь, создающий задачи.
+     * @return Созданные задачи в том же порядке, с присвоенными ID.
+     * @throws com.avigeya.projectboard.exception.BadRequestException если задача
+     *         не заполнена или ссылается на несуществующий проект, статус, этап
+     *         или пользователя.
+     */
+    List<TaskDto> createTasks(List<TaskDto> taskDtos, SessionUser author);
+
     /**
      * Обновляет статус и/или приоритет для списка задач.
      * 
-     * @param updates Список объектов с taskId, priority и statusId для обновления.
+     * Задачи, которые не найдены или версия которых не совпала с переданной,
+     * пропускаются; остальные обновляются.
+     *
+     * @param updates Список объектов с taskId, priority, statusId и (необязательно)
+     *                version для обновления.
+     * @return Результат для каждого элемента запроса в том же порядке.
      */
-    void batchUpdateTasks(List<TaskBatchUpdateRequest> updates);
+    List<TaskBatchUpdateResult> batchUpdateTasks(List<TaskBatchUpdateRequest> updates);
 
     /**
      * Обновляет куратора и список участников для задачи.
@@ -28,9 +63,20 @@ public interface TaskService {
     void updateTaskMembers(Long taskId, Long curatorId, List<Long> memberIds, String modifierName);
 
     /**
-     * Удаляет задачу по ее ID.
+     * Помечает задачу удаленной. Пока не истек срок хранения, ее можно
+     * восстановить через {@link #restoreTask}.
      *
      * @param taskId ID задачи для удаления.
      */
     void deleteTask(Long taskId);
+
+    /**
+     * Восстанавливает удаленную задачу.
+     *
+     * @param taskId ID задачи.
+     * @return Восстановленная задача.
+     * @throws com.avigeya.projectboard.exception.ResourceNotFoundException если
+     *         задача не удалена или уже удалена окончательно.
+     */
+    TaskDto restoreTask(Long taskId);
 }
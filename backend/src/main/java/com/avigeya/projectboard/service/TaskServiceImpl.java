@@ -1,20 +1,43 @@
 package com.avigeya.projectboard.service;
 
 import com.avigeya.projectboard.domain.*;
+import com.avigeya.projectboard.dto.ProjectDto;
 import com.avigeya.projectboard.dto.TaskBatchUpdateRequest;
+import com.avigeya.projectboard.dto.TaskBatchUpdateResult;
 import com.avigeya.projectboard.dto.TaskDto;
+import com.avigeya.projectboard.dto.TaskRow;
 import com.avigeya.projectboard.dto.StageDto;
 import com.avigeya.projectboard.dto.UserDto;
 import com.avigeya.projectboard.dto.StatusDto;
+import com.avigeya.projectboard.exception.BadRequestException;
 import com.avigeya.projectboard.exception.ResourceNotFoundException;
+import com.avigeya.projectboard.exception.TaskVersionConflictException;
 import com.avigeya.projectboard.repository.*;
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 import java.util.Map;
 import java.util.function.Function;
@@ -31,59 +54,208 @@ public class TaskServiceImpl implements TaskService {
     private final UserRepository userRepository;
     private final ProjectRepository projectRepository;
     private final StageRepository stageRepository;
+    private final ChangeLogService changeLogService;
+    private final ChangeEventBus changeEventBus;
+    private final TaskVisibilityService taskVisibilityService;
+    private final ReferenceDataCache referenceDataCache;
+    private final EntityManager entityManager;
+
+    @Value(DeletedTaskPurger.RETENTION)
+    private Duration deletedRetention;
 
     @Override
     @Transactional
     public TaskDto updateTask(Long taskId, TaskDto taskDto) {
         log.info("Updating task with ID: {}", taskId);
-        Task task = taskRepository.findById(taskId)
-                .orElseThrow(() -> new ResourceNotFoundException("Task not found with id: " + taskId));
 
-        // Update simple fields
-        task.setName(taskDto.getName());
-        task.setMessage(taskDto.getMessage());
-        // --- ИСПРАВЛЕНИЕ: Обновляем приоритет, только если он был передан ---
-        if (taskDto.getPriority() != null) {
-            task.setPriority(taskDto.getPriority());
+        // Ссылки проверяем по кэшу справочников, а в UPDATE передаем только их ID:
+        // ни задача, ни связанные сущности перед изменением не загружаются
+        ReferenceDataSnapshot refs = referenceDataCache.getSnapshot();
+        Map<Long, UserDto> users = indexById(refs.getUsers(), UserDto::getId);
+        Map<Long, StatusDto> statuses = indexById(refs.getStatuses(), StatusDto::getId);
+        Long statusId = taskDto.getStatus() != null ? taskDto.getStatus().getId() : null;
+        Long stageId = taskDto.getStage() != null ? taskDto.getStage().getId() : null;
+        // Куратор меняется вместе с участниками, как в updateTaskMembers
+        Long curatorId = taskDto.getMembers() != null && taskDto.getCurator() != null
+                ? taskDto.getCurator().getId()
+                : null;
+        requireKnown(statuses, statusId, "Status");
+        requireKnown(indexById(refs.getStages(), StageDto::getId), stageId, "Stage");
+        requireKnown(indexById(refs.getProjects(), ProjectDto::getId), taskDto.getProjectId(), "Project");
+        requireKnown(users, curatorId, "User");
+        if (taskDto.getProjectId() != null) {
+            changeEventBus.taskMayMove(taskId);
         }
-        task.setStartDate(taskDto.getStartDate());
-        task.setFinishDate(taskDto.getFinishDate());
-        // НЕ КОПИРУЕМ ВЕРСИЮ! Hibernate управляет этим полем.
 
-        // Update related entities
-        if (taskDto.getStatus() != null && taskDto.getStatus().getId() != null) {
-            Status status = statusRepository.findById(taskDto.getStatus().getId())
-                    .orElseThrow(() -> new ResourceNotFoundException(
-                            "Status not found with id: " + taskDto.getStatus().getId()));
-            task.setStatus(status);
+        int updated = taskRepository.updateIfVersionMatches(taskId, taskDto.getVersion(), taskDto.getName(),
+                taskDto.getMessage(), taskDto.getPriority(), taskDto.getStartDate(), taskDto.getFinishDate(),
+                statusId, stageId, taskDto.getProjectId(), curatorId,
+                statusId != null && isDone(statuses.get(statusId)), Instant.now());
+        if (updated == 0) {
+            throw versionConflict(taskId, taskDto.getVersion());
         }
 
-        if (taskDto.getProjectId() != null) {
-            Project project = projectRepository.findById(taskDto.getProjectId())
-                    .orElseThrow(() -> new ResourceNotFoundException(
-                            "Project not found with id: " + taskDto.getProjectId()));
-            task.setProject(project);
+        List<UserDto> members = null;
+        if (taskDto.getMembers() != null) {
+            // Автор задачи не меняется при обновлении; его имя нужно только для журнала
+            String modifierName = taskDto.getAuthor() != null ? taskDto.getAuthor().getName() : "SYSTEM";
+            Set<Long> memberIds = taskDto.getMembers().stream()
+                    .map(UserDto::getId)
+                    .filter(users::containsKey)
+                    .collect(Collectors.toCollection(LinkedHashSet::new));
+            syncMembers(taskId, memberIds, modifierName);
+            members = memberIds.stream().map(users::get).toList();
+            // Вместе с участниками мог смениться и куратор
+            taskVisibilityService.refreshTasks(List.of(taskId));
         }
+        changeLogService.recordTaskChangesById(List.of(taskId));
 
-        if (taskDto.getStage() != null && taskDto.getStage().getId() != null) {
-            Stage stage = stageRepository.findById(taskDto.getStage().getId())
-                    .orElseThrow(() -> new ResourceNotFoundException(
-                            "Stage not found with id: " + taskDto.getStage().getId()));
-            task.setStage(stage);
+        TaskDto result = readTask(taskId, members);
+        log.info("Task with ID: {} successfully updated to version {}", taskId, result.getVersion());
+        return result;
+    }
+
+    @Override
+    @Transactional
+    public TaskDto patchTask(Long taskId, JsonNode patch, Integer expectedVersion) {
+        if (patch == null || !patch.isObject()) {
+            throw new BadRequestException("Тело PATCH должно быть JSON-объектом (RFC 7396).");
+        }
+        ReferenceDataSnapshot refs = referenceDataCache.getSnapshot();
+        Map<Long, UserDto> users = indexById(refs.getUsers(), UserDto::getId);
+        Integer version = expectedVersion;
+        if (version == null && patch.hasNonNull("version")) {
+            version = readInt(patch.get("version"), "version");
         }
 
-        // Update members and curator
-        if (taskDto.getMembers() != null) {
-            // Автор задачи не меняется при обновлении, поэтому мы его не трогаем.
-            // Hibernate видит, что поле author не изменилось, и не будет его обновлять.
-            String modifierName = taskDto.getAuthor() != null ? taskDto.getAuthor().getName() : "SYSTEM";
-            updateTaskMembers(taskId, taskDto.getCurator() != null ? taskDto.getCurator().getId() : null,
-                    taskDto.getMembers().stream().map(UserDto::getId).toList(), modifierName);
+        // В SET попадают только поля, которые есть в патче; остальные столбцы
+        // (в том числе TEXT message) не пересылаются и не перезаписываются
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Task> update = cb.createCriteriaUpdate(Task.class);
+        Root<Task> task = update.from(Task.class);
+        boolean columnsChanged = false;
+        boolean curatorChanged = false;
+        Set<Long> memberIds = null;
+
+        Iterator<Map.Entry<String, JsonNode>> fields = patch.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            String name = field.getKey();
+            JsonNode value = field.getValue();
+            switch (name) {
+                case "id" -> {
+                    if (!value.isNull() && value.asLong() != taskId) {
+                        throw new BadRequestException("ID в теле не совпадает с ID в пути.");
+                    }
+                    continue;
+                }
+                case "version" -> {
+                    continue;
+                }
+                case "name" -> {
+                    if (value.isNull() || !value.isTextual() || value.asText().isBlank()) {
+                        throw new BadRequestException("Поле name не может быть пустым.");
+                    }
+                    update.set(task.<String>get("name"), value.asText());
+                }
+                case "message" -> setOrNull(cb, update, task.get("message"),
+                        value.isNull() ? null : readText(value, name), String.class);
+                case "priority" -> setOrNull(cb, update, task.get("priority"),
+                        value.isNull() ? null : readInt(value, name), Integer.class);
+                case "startDate", "finishDate" -> setOrNull(cb, update, task.get(name),
+                        value.isNull() ? null : readDate(value, name), LocalDate.class);
+                case "status" -> {
+                    Long statusId = readRefId(value, name);
+                    Map<Long, StatusDto> statuses = indexById(refs.getStatuses(), StatusDto::getId);
+                    requireKnown(statuses, statusId, "Status");
+                    // SET вычисляется по старой строке: ранг и момент завершения
+                    // сбрасываются, только если статус сменился
+                    Predicate sameStatus = cb.equal(task.get("status").get("id"), statusId);
+                    update.set(task.<Long>get("rank"), cb.<Long>selectCase()
+                            .when(sameStatus, task.<Long>get("rank"))
+                            .otherwise(cb.nullLiteral(Long.class)));
+                    update.set(task.<Instant>get("completedAt"), cb.<Instant>selectCase()
+                            .when(sameStatus, task.<Instant>get("completedAt"))
+                            .otherwise(isDone(statuses.get(statusId)) ? cb.literal(Instant.now())
+                                    : cb.nullLiteral(Instant.class)));
+                    update.set(task.<Status>get("status"), statusRepository.getReferenceById(statusId));
+                }
+                case "stage" -> {
+                    Long stageId = value.isNull() ? null : readRefId(value, name);
+                    requireKnown(indexById(refs.getStages(), StageDto::getId), stageId, "Stage");
+                    setOrNull(cb, update, task.get("stage"),
+                            stageId != null ? stageRepository.getReferenceById(stageId) : null, Stage.class);
+                }
+                case "projectId" -> {
+                    Long projectId = readLong(value, name);
+                    requireKnown(indexById(refs.getProjects(), ProjectDto::getId), projectId, "Project");
+                    changeEventBus.taskMayMove(taskId);
+                    update.set(task.<Project>get("project"), projectRepository.getReferenceById(projectId));
+                }
+                case "curator" -> {
+                    Long curatorId = readRefId(value, name);
+                    requireKnown(users, curatorId, "User");
+                    update.set(task.<User>get("curator"), userRepository.getReferenceById(curatorId));
+                    curatorChanged = true;
+                }
+                case "members" -> {
+                    // По RFC 7396 массив заменяется целиком
+                    memberIds = new LinkedHashSet<>();
+                    if (!value.isNull()) {
+                        if (!value.isArray()) {
+                            throw new BadRequestException("Поле members должно быть массивом.");
+                        }
+                        for (JsonNode member : value) {
+                            Long memberId = readRefId(member, name);
+                            if (users.containsKey(memberId)) {
+                                memberIds.add(memberId);
+                            }
+                        }
+                    }
+                    continue;
+                }
+                default -> throw new BadRequestException("Поле " + name + " нельзя изменить через PATCH.");
+            }
+            columnsChanged = true;
         }
 
-        Task updatedTask = taskRepository.save(task);
-        log.info("Task with ID: {} successfully updated to version {}", updatedTask.getId(), updatedTask.getVersion());
-        return convertToDto(updatedTask);
+        if (!columnsChanged && memberIds == null) {
+            // Пустой патч ничего не меняет, но предусловие по версии все равно проверяем
+            TaskRow current = taskRepository.findTaskRowById(taskId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Task not found with id: " + taskId));
+            if (version != null && version != current.version()) {
+                throw versionConflict(taskId, version);
+            }
+            return current.toTaskDto(loadMembers(taskId));
+        }
+
+        // Версия растет и при смене одних участников: так конкурирующее
+        // редактирование увидит изменение задачи
+        update.set(task.<Integer>get("version"), cb.sum(task.<Integer>get("version"), 1));
+        List<Predicate> where = new ArrayList<>(3);
+        where.add(cb.equal(task.get("id"), taskId));
+        where.add(cb.isFalse(task.get("isDeleted")));
+        if (version != null) {
+            where.add(cb.equal(task.get("version"), version));
+        }
+        update.where(where.toArray(Predicate[]::new));
+        if (entityManager.createQuery(update).executeUpdate() == 0) {
+            throw versionConflict(taskId, version);
+        }
+
+        List<UserDto> members = null;
+        if (memberIds != null) {
+            syncMembers(taskId, memberIds, "PATCH");
+            members = memberIds.stream().map(users::get).toList();
+        }
+        if (curatorChanged || memberIds != null) {
+            taskVisibilityService.refreshTasks(List.of(taskId));
+        }
+        changeLogService.recordTaskChangesById(List.of(taskId));
+
+        TaskDto result = readTask(taskId, members);
+        log.info("Task with ID: {} patched ({}) to version {}", taskId, patch.size(), result.getVersion());
+        return result;
     }
 
     @Override
@@ -95,7 +267,9 @@ public class TaskServiceImpl implements TaskService {
         }
         log.info("Обновление приоритетов для {} задач.", taskIds.size());
 
-        List<Task> tasksToUpdate = taskRepository.findAllById(taskIds);
+        List<Task> tasksToUpdate = taskRepository.findAllById(taskIds).stream()
+                .filter(task -> !task.isDeleted())
+                .toList();
 
         Map<Long, Task> taskMap = tasksToUpdate.stream()
                 .collect(Collectors.toMap(Task::getId, Function.identity()));
@@ -112,70 +286,361 @@ public class TaskServiceImpl implements TaskService {
         }
 
         taskRepository.saveAll(tasksToUpdate);
+        changeLogService.recordTaskChanges(tasksToUpdate);
         log.info("Приоритеты для {} задач успешно обновлены.", tasksToUpdate.size());
     }
 
     @Override
     @Transactional
-    public void batchUpdateTasks(List<TaskBatchUpdateRequest> updates) {
+    public List<TaskDto> createTasks(List<TaskDto> taskDtos, SessionUser author) {
+        if (taskDtos == null || taskDtos.isEmpty()) {
+            return List.of();
+        }
+
+        // Ссылки проверяются по кэшу справочников, а в задачу подставляются прокси
+        // getReferenceById, поэтому создание не делает ни одного SELECT
+        ReferenceDataSnapshot refs = referenceDataCache.getSnapshot();
+        Map<Long, ProjectDto> projects = indexById(refs.getProjects(), ProjectDto::getId);
+        Map<Long, StatusDto> statuses = indexById(refs.getStatuses(), StatusDto::getId);
+        Map<Long, StageDto> stages = indexById(refs.getStages(), StageDto::getId);
+        Map<Long, UserDto> users = indexById(refs.getUsers(), UserDto::getId);
+        User authorRef = userRepository.getReferenceById(author.getId());
+        UserDto authorDto = new UserDto(author.getId(), author.getName(), author.getRole());
+
+        List<Task> tasks = new ArrayList<>(taskDtos.size());
+        List<TaskDto> created = new ArrayList<>(taskDtos.size());
+        for (int i = 0; i < taskDtos.size(); i++) {
+            TaskDto source = taskDtos.get(i);
+            String item = "Задача №" + (i + 1);
+            if (source.getName() == null || source.getName().isBlank()) {
+                throw new BadRequestException(item + ": не указано наименование.");
+            }
+            require(projects, source.getProjectId(), item, "проект");
+            StatusDto status = source.getStatus() != null && source.getStatus().getId() != null
+                    ? require(statuses, source.getStatus().getId(), item, "статус")
+                    : null;
+            StageDto stage = source.getStage() != null && source.getStage().getId() != null
+                    ? require(stages, source.getStage().getId(), item, "этап")
+                    : null;
+            UserDto curator = source.getCurator() != null && source.getCurator().getId() != null
+                    ? require(users, source.getCurator().getId(), item, "куратор")
+                    : authorDto;
+            Set<Long> memberIds = new LinkedHashSet<>();
+            if (source.getMembers() != null) {
+                for (UserDto member : source.getMembers()) {
+                    if (member != null && member.getId() != null) {
+                        memberIds.add(require(users, member.getId(), item, "участник").getId());
+                    }
+                }
+            }
+
+            Task task = new Task();
+            task.setName(source.getName());
+            task.setMessage(source.getMessage());
+            task.setPriority(source.getPriority());
+            task.setStartDate(source.getStartDate());
+            task.setFinishDate(source.getFinishDate());
+            task.setProject(projectRepository.getReferenceById(source.getProjectId()));
+            task.setStatus(status != null ? statusRepository.getReferenceById(status.getId()) : null);
+            task.setCompletedAt(isDone(status) ? Instant.now() : null);
+            task.setStage(stage != null ? stageRepository.getReferenceById(stage.getId()) : null);
+            task.setCurator(curator == authorDto ? authorRef : userRepository.getReferenceById(curator.getId()));
+            task.setAuthor(authorRef);
+            // Ранг не задаем: задача встает в конец колонки, ранг назначит TaskRankRebalancer
+            for (Long memberId : memberIds) {
+                task.getTaskMembers().add(new TaskMember(null, task, userRepository.getReferenceById(memberId)));
+            }
+            tasks.add(task);
+
+            TaskDto dto = new TaskDto();
+            dto.setName(task.getName());
+            dto.setMessage(task.getMessage());
+            dto.setPriority(task.getPriority());
+            dto.setStartDate(task.getStartDate());
+            dto.setFinishDate(task.getFinishDate());
+            dto.setProjectId(source.getProjectId());
+            dto.setStatus(status);
+            dto.setStage(stage);
+            dto.setCurator(curator);
+            dto.setAuthor(authorDto);
+            dto.setMembers(memberIds.stream().map(users::get).toList());
+            created.add(dto);
+        }
+
+        // ID выдаются из последовательности блоками, поэтому INSERT задач и участников
+        // уходят JDBC-пакетами (см. JpaConfig). Журнал пишется INSERT ... SELECT по
+        // таблице задач, так что сначала нужен flush.
+        taskRepository.saveAll(tasks);
+        taskRepository.flush();
+        changeLogService.recordTaskChanges(tasks);
+        taskVisibilityService.addTasks(tasks.stream().map(Task::getId).toList());
+
+        for (int i = 0; i < tasks.size(); i++) {
+            created.get(i).setId(tasks.get(i).getId());
+            created.get(i).setVersion(tasks.get(i).getVersion());
+        }
+        log.info("Пользователь {} создал задач: {}.", author.getName(), tasks.size());
+        return created;
+    }
+
+    @Override
+    @Transactional
+    public List<TaskBatchUpdateResult> batchUpdateTasks(List<TaskBatchUpdateRequest> updates) {
         if (updates == null || updates.isEmpty()) {
             log.warn("Получен пустой список для пакетного обновления задач.");
-            return;
+            return List.of();
         }
         log.info("Пакетное обновление {} задач.", updates.size());
 
+        // Задачи и статусы загружаются одним запросом IN каждый, а не по одному на элемент
+        Set<Long> taskIds = updates.stream()
+                .map(TaskBatchUpdateRequest::getTaskId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Set<Long> statusIds = updates.stream()
+                .map(TaskBatchUpdateRequest::getStatusId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, Task> tasks = taskRepository.findAllById(taskIds).stream()
+                .filter(task -> !task.isDeleted())
+                .collect(Collectors.toMap(Task::getId, Function.identity()));
+        Map<Long, Status> statuses = statusIds.isEmpty() ? Map.of()
+                : statusRepository.findAllById(statusIds).stream()
+                        .collect(Collectors.toMap(Status::getId, Function.identity()));
+
+        List<TaskBatchUpdateResult> results = new ArrayList<>(updates.size());
+        Map<Long, Task> updatedTasks = new LinkedHashMap<>();
         for (TaskBatchUpdateRequest update : updates) {
-            Task task = taskRepository.findById(update.getTaskId())
-                    .orElseThrow(() -> new EntityNotFoundException(
-                            "Задача с ID " + update.getTaskId() + " не найдена при пакетном обновлении."));
+            Task task = tasks.get(update.getTaskId());
+            if (task == null) {
+                results.add(new TaskBatchUpdateResult(update.getTaskId(), TaskBatchUpdateResult.Outcome.NOT_FOUND,
+                        null, "Задача не найдена"));
+                continue;
+            }
+            if (update.getVersion() != null && update.getVersion() != task.getVersion()) {
+                results.add(new TaskBatchUpdateResult(task.getId(), TaskBatchUpdateResult.Outcome.VERSION_CONFLICT,
+                        task.getVersion(), null));
+                continue;
+            }
+            Status newStatus = null;
+            if (update.getStatusId() != null) {
+                newStatus = statuses.get(update.getStatusId());
+                if (newStatus == null) {
+                    results.add(new TaskBatchUpdateResult(task.getId(), TaskBatchUpdateResult.Outcome.NOT_FOUND,
+                            task.getVersion(), "Статус с ID " + update.getStatusId() + " не найден"));
+                    continue;
+                }
+            }
 
             if (update.getPriority() != null) {
                 task.setPriority(update.getPriority());
             }
-
-            if (update.getStatusId() != null
-                    && (task.getStatus() == null || !task.getStatus().getId().equals(update.getStatusId()))) {
-                Status newStatus = statusRepository.findById(update.getStatusId())
-                        .orElseThrow(() -> new EntityNotFoundException(
-                                "Статус с ID " + update.getStatusId() + " не найден."));
+            if (newStatus != null
+                    && (task.getStatus() == null || !task.getStatus().getId().equals(newStatus.getId()))) {
                 task.setStatus(newStatus);
+                task.setCompletedAt(Status.DONE.equals(newStatus.getName()) ? Instant.now() : null);
+                // В новой колонке задача встает в конец; ранг назначит TaskRankRebalancer
+                task.setRank(null);
             }
+            updatedTasks.put(task.getId(), task);
+            // Версия будет известна только после flush, заполняем ниже
+            results.add(new TaskBatchUpdateResult(task.getId(), TaskBatchUpdateResult.Outcome.UPDATED, null, null));
+        }
 
-            taskRepository.save(task);
+        // Изменения уходят одним flush: UPDATE группируются в JDBC-пакеты (см. JpaConfig)
+        changeLogService.recordTaskChanges(updatedTasks.values());
+        taskRepository.flush();
+        for (TaskBatchUpdateResult result : results) {
+            if (result.getOutcome() == TaskBatchUpdateResult.Outcome.UPDATED) {
+                result.setVersion(updatedTasks.get(result.getTaskId()).getVersion());
+            }
         }
-        log.info("Пакетное обновление задач завершено.");
+        log.info("Пакетное обновление задач завершено: обновлено {} из {}.", updatedTasks.size(), updates.size());
+        return results;
     }
 
     @Override
     @Transactional
     public void updateTaskMembers(Long taskId, Long curatorId, List<Long> memberIds, String modifierName) {
         Task task = taskRepository.findById(taskId)
+                .filter(t -> !t.isDeleted())
                 .orElseThrow(() -> new EntityNotFoundException("Задача с ID " + taskId + " не найдена."));
+        boolean changed = false;
 
         // --- ИСПРАВЛЕНИЕ: Обновляем куратора, только если пришел новый ID ---
-        if (curatorId != null) {
-            task.setCurator(new User(curatorId));
+        if (curatorId != null && (task.getCurator() == null || !curatorId.equals(task.getCurator().getId()))) {
+            task.setCurator(userRepository.getReferenceById(curatorId));
+            changed = true;
+        }
+        Set<Long> requested = memberIds == null ? Set.of()
+                : memberIds.stream().filter(Objects::nonNull).collect(Collectors.toSet());
+        if (syncMembers(taskId, requested, modifierName)) {
+            changed = true;
+        }
+        if (changed) {
+            // Новый куратор должен попасть в БД до пересчета видимости
+            taskRepository.flush();
+            taskVisibilityService.refreshTasks(List.of(taskId));
+            changeLogService.recordTaskChange(task);
+        }
+    }
+
+    /**
+     * Приводит состав участников задачи к {@code requested}: удаляет и добавляет
+     * только разницу.
+     * Изменения пишутся массовыми запросами в обход контекста персистентности,
+     * поэтому task.taskMembers, если уже загружена в этой транзакции, их не увидит.
+     *
+     * @return true, если состав изменился.
+     */
+    private boolean syncMembers(Long taskId, Set<Long> requested, String modifierName) {
+        Set<Long> current = new HashSet<>(taskMemberRepository.findUserIdsByTaskId(taskId));
+        Set<Long> removed = new HashSet<>(current);
+        removed.removeAll(requested);
+        Set<Long> added = new HashSet<>(requested);
+        added.removeAll(current);
+
+        if (!removed.isEmpty()) {
+            taskMemberRepository.deleteByTaskIdAndUserIdIn(taskId, removed);
+        }
+        if (!added.isEmpty()) {
+            taskMemberRepository.insertMembers(taskId, added);
+        }
+        if (removed.isEmpty() && added.isEmpty()) {
+            return false;
         }
+        log.info("Участники задачи {} изменены ({}): +{} -{}", taskId, modifierName, added.size(), removed.size());
+        return true;
+    }
 
-        // Обновляем список участников
-        taskMemberRepository.deleteByTaskId(taskId);
-        Set<TaskMember> newTaskMembers = memberIds.stream().map(memberId -> {
-            TaskMember tm = new TaskMember(null, task, new User(memberId));
-            return tm;
-        }).collect(Collectors.toSet());
-        taskMemberRepository.saveAll(newTaskMembers);
+    /**
+     * Условный UPDATE не затронул ни одной строки: задачи нет (404) или ее
+     * версия не совпала (409 с текущим состоянием).
+     */
+    private RuntimeException versionConflict(Long taskId, Integer expectedVersion) {
+        TaskRow current = taskRepository.findTaskRowById(taskId)
+                .orElseThrow(() -> new ResourceNotFoundException("Task not found with id: " + taskId));
+        log.info("Task with ID: {} was not updated: expected version {}, current {}", taskId, expectedVersion,
+                current.version());
+        return new TaskVersionConflictException(
+                "Задача была изменена другим пользователем. Текущая версия: " + current.version(),
+                current.toTaskDto(loadMembers(taskId)));
+    }
+
+    /**
+     * Читает задачу после изменения одним запросом.
+     *
+     * @param members Участники, если они уже известны; иначе загружаются из БД.
+     */
+    private TaskDto readTask(Long taskId, List<UserDto> members) {
+        TaskDto result = taskRepository.findTaskRowById(taskId)
+                .map(row -> row.toTaskDto(null))
+                .orElseThrow(() -> new ResourceNotFoundException("Task not found with id: " + taskId));
+        result.setMembers(members != null ? members : loadMembers(taskId));
+        return result;
+    }
+
+    private List<UserDto> loadMembers(Long taskId) {
+        return taskMemberRepository.findMemberRowsByTaskIds(List.of(taskId)).stream()
+                .map(row -> new UserDto(row.userId(), row.userName(), row.userRole()))
+                .toList();
     }
 
     @Override
     @Transactional
     public void deleteTask(Long taskId) {
-        if (!taskRepository.existsById(taskId)) {
-            throw new EntityNotFoundException("Задача с ID " + taskId + " не найдена для удаления.");
+        // Задача только помечается удаленной; участников и саму строку позже
+        // удалит DeletedTaskPurger
+        if (taskRepository.markDeleted(taskId, Instant.now()) == 0) {
+            throw new ResourceNotFoundException("Задача с ID " + taskId + " не найдена для удаления.");
+        }
+        changeLogService.recordTaskDeletion(taskId);
+        log.info("Задача с ID {} помечена удаленной.", taskId);
+    }
+
+    @Override
+    @Transactional
+    public TaskDto restoreTask(Long taskId) {
+        if (taskRepository.restoreDeleted(taskId, Instant.now().minus(deletedRetention)) == 0) {
+            throw new ResourceNotFoundException("Удаленная задача с ID " + taskId
+                    + " не найдена или срок ее восстановления истек.");
+        }
+        changeLogService.recordTaskChangesById(List.of(taskId));
+        log.info("Задача с ID {} восстановлена.", taskId);
+        return readTask(taskId, null);
+    }
+
+    private static <T> Map<Long, T> indexById(List<T> items, Function<T, Long> id) {
+        return items.stream().collect(Collectors.toMap(id, Function.identity()));
+    }
+
+    private static boolean isDone(StatusDto status) {
+        return status != null && Status.DONE.equals(status.getName());
+    }
+
+    private static <Y> void setOrNull(CriteriaBuilder cb, CriteriaUpdate<Task> update, Path<Y> path, Y value,
+            Class<Y> type) {
+        if (value == null) {
+            update.set(path, cb.nullLiteral(type));
+        } else {
+            update.set(path, value);
+        }
+    }
+
+    private static String readText(JsonNode value, String field) {
+        if (!value.isTextual()) {
+            throw new BadRequestException("Поле " + field + " должно быть строкой.");
+        }
+        return value.asText();
+    }
+
+    private static Integer readInt(JsonNode value, String field) {
+        if (!value.canConvertToInt() || !value.isIntegralNumber()) {
+            throw new BadRequestException("Поле " + field + " должно быть целым числом.");
+        }
+        return value.intValue();
+    }
+
+    /**
+     * Читает ID из поля патча. Так же читает projectId и проверка прав
+     * {@link PermissionIndex#checkPatchTask}, чтобы проверялся тот же проект,
+     * который будет записан.
+     */
+    static Long readLong(JsonNode value, String field) {
+        // ID с клиента могут прийти строкой (значения из data-атрибутов)
+        if (value.isIntegralNumber() || (value.isTextual() && value.asText().matches("\\d+"))) {
+            return value.asLong();
+        }
+        throw new BadRequestException("Поле " + field + " должно быть ID.");
+    }
+
+    private static Long readRefId(JsonNode value, String field) {
+        if (value == null || !value.isObject() || !value.hasNonNull("id")) {
+            throw new BadRequestException("Поле " + field + " должно быть объектом с id.");
+        }
+        return readLong(value.get("id"), field);
+    }
+
+    private static LocalDate readDate(JsonNode value, String field) {
+        try {
+            return LocalDate.parse(readText(value, field));
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException("Поле " + field + " должно быть датой в формате ГГГГ-ММ-ДД.");
+        }
+    }
+
+    private static void requireKnown(Map<Long, ?> refs, Long id, String entity) {
+        if (id != null && !refs.containsKey(id)) {
+            throw new ResourceNotFoundException(entity + " not found with id: " + id);
+        }
+    }
+
+    private static <T> T require(Map<Long, T> refs, Long id, String item, String what) {
+        T ref = id != null ? refs.get(id) : null;
+        if (ref == null) {
+            throw new BadRequestException(item + ": " + what + " с ID " + id + " не найден.");
         }
-        // Сначала удаляем все связанные записи в task_members, чтобы избежать ошибок
-        taskMemberRepository.deleteByTaskId(taskId);
-        taskRepository.deleteById(taskId);
-        log.info("Задача с ID {} была успешно удалена.", taskId);
+        return ref;
     }
 
     /**
@@ -190,6 +655,7 @@ public class TaskServiceImpl implements TaskService {
         dto.setName(task.getName());
         dto.setMessage(task.getMessage());
         dto.setPriority(task.getPriority());
+        dto.setRank(task.getRank());
         dto.setStartDate(task.getStartDate());
         dto.setFinishDate(task.getFinishDate());
         dto.setVersion(task.getVersion());
@@ -0,0 +1,94 @@
+package com.avigeya.projectboard.service;
+
+import com.avigeya.projectboard.domain.UserTaskVisibility;
+import com.avigeya.projectboard.repository.UserTaskVisibilityRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+
+/**
+ * Поддерживает таблицу {@link UserTaskVisibility}: кто из пользователей видит
+ * задачу как ее куратор, автор или участник.
+ * <p>
+ * Методы записи вызываются в транзакции, меняющей куратора, автора или
+ * участников, поэтому доска пользователя не видит задачу без строки
+ * видимости. Удаленные задачи строки сохраняют (их отсекает фильтр по
+ * is_deleted), а строки удаляются вместе с самими задачами.
+ * <p>
+ * Сверка всей таблицы выполняется после создания всех бинов (в том числе
+ * после импорта {@link com.avigeya.projectboard.config.DataInitializer}), но
+ * до запуска веб-сервера: иначе первые запросы получили бы пустые доски.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TaskVisibilityService implements SmartInitializingSingleton {
+
+    private final UserTaskVisibilityRepository visibilityRepository;
+    private final ChangeLogService changeLogService;
+    private final PlatformTransactionManager transactionManager;
+
+    /**
+     * Добавляет строки для только что созданных задач.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void addTasks(Collection<Long> taskIds) {
+        if (!taskIds.isEmpty()) {
+            visibilityRepository.insertForTasks(taskIds);
+        }
+    }
+
+    /**
+     * Пересчитывает строки задач после смены куратора или участников. Изменения
+     * связей к этому моменту должны быть записаны в БД (flush). Строки задач
+     * блокируются: два одновременных пересчета одной задачи иначе вставили бы
+     * одни и те же строки, и второй упал бы на первичном ключе. Пользователи,
+     * которые перестали видеть задачу, записываются в журнал изменений.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void refreshTasks(Collection<Long> taskIds) {
+        if (!taskIds.isEmpty()) {
+            visibilityRepository.lockTasks(taskIds);
+            changeLogService.recordTaskAccessRevocations(taskIds);
+            visibilityRepository.deleteByTaskIdIn(taskIds);
+            visibilityRepository.insertForTasks(taskIds);
+        }
+    }
+
+    /**
+     * Удаляет строки задач перед их физическим удалением.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void removeTasks(Collection<Long> taskIds) {
+        if (!taskIds.isEmpty()) {
+            visibilityRepository.deleteByTaskIdIn(taskIds);
+        }
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        // Вызов изнутри бина не проходит через транзакционный прокси
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> reconcile());
+    }
+
+    /**
+     * Сверяет всю таблицу со связями задач. Запускается при старте, после
+     * импорта из CSV: заполняет таблицу при первом развертывании и исправляет
+     * расхождения, если задачи менялись в обход сервисов.
+     */
+    @Transactional
+    public void reconcile() {
+        int stale = visibilityRepository.deleteStale();
+        int missing = visibilityRepository.insertMissing();
+        if (stale > 0 || missing > 0) {
+            log.info("Таблица видимости задач сверена: удалено строк {}, добавлено {}.", stale, missing);
+        }
+    }
+}
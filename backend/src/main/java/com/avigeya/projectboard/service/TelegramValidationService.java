@@ -1,5 +1,10 @@
 package com.avigeya.projectboard.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -7,82 +12,151 @@ import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
-import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
-import java.util.Arrays;
-import java.util.Formatter;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @Service
+@Slf4j
 public class TelegramValidationService {
 
+    private static final String HMAC_SHA256 = "HmacSHA256";
+
     @Value("${telegram.bot.token}")
     private String botToken;
 
-    public boolean isDataSafe(String initData) {
-        if (initData == null || initData.isEmpty()) {
-            return false;
-        }
-        try {
-            Map<String, String> params = parseInitData(initData);
-            String receivedHash = params.remove("hash");
-            if (receivedHash == null) {
-                return false;
-            }
+    private final ObjectMapper objectMapper;
 
-            String dataCheckString = params.entrySet().stream()
-                    .sorted(Map.Entry.comparingByKey())
-                    .map(entry -> entry.getKey() + "=" + entry.getValue())
-                    .collect(Collectors.joining("\n"));
+    // Ключ HMAC("WebAppData", botToken) зависит только от токена бота: считаем его один раз
+    private SecretKeySpec secretKey;
+    // Mac не потокобезопасен; держим по экземпляру на поток, уже инициализированному ключом
+    private ThreadLocal<Mac> mac;
 
-            Mac hmacSha256 = Mac.getInstance("HmacSHA256");
-            SecretKeySpec secretKeySpec = new SecretKeySpec("WebAppData".getBytes(StandardCharsets.UTF_8),
-                    "HmacSHA256");
-            hmacSha256.init(secretKeySpec);
-            byte[] secretKey = hmacSha256.doFinal(botToken.getBytes(StandardCharsets.UTF_8));
+    public TelegramValidationService(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
 
-            secretKeySpec = new SecretKeySpec(secretKey, "HmacSHA256");
-            hmacSha256.init(secretKeySpec);
-            byte[] hashBytes = hmacSha256.doFinal(dataCheckString.getBytes(StandardCharsets.UTF_8));
+    @PostConstruct
+    void init() throws GeneralSecurityException {
+        Mac keyMac = Mac.getInstance(HMAC_SHA256);
+        keyMac.init(new SecretKeySpec("WebAppData".getBytes(StandardCharsets.UTF_8), HMAC_SHA256));
+        secretKey = new SecretKeySpec(keyMac.doFinal(botToken.getBytes(StandardCharsets.UTF_8)), HMAC_SHA256);
+        mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac instance = Mac.getInstance(HMAC_SHA256);
+                instance.init(secretKey);
+                return instance;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HmacSHA256 is not available", e);
+            }
+        });
+    }
 
-            String calculatedHash = toHexString(hashBytes);
-            return calculatedHash.equals(receivedHash);
+    public boolean isDataSafe(String initData) {
+        if (initData == null || initData.isEmpty()) {
+            return false;
+        }
+        return isDataSafe(parseInitData(initData));
+    }
 
-        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
-            e.printStackTrace();
+    /**
+     * Проверяет подпись уже разобранных initData.
+     *
+     * @param params Результат {@link #parseInitData(String)}. Не изменяется.
+     * @return true, если hash совпадает с подписью остальных параметров.
+     */
+    public boolean isDataSafe(Map<String, String> params) {
+        String receivedHash = params.get("hash");
+        if (receivedHash == null || receivedHash.length() != 64) {
+            return false;
+        }
+        byte[] expected;
+        try {
+            expected = HexFormat.of().parseHex(receivedHash);
+        } catch (IllegalArgumentException e) {
             return false;
         }
+
+        // data-check-string: пары key=value без hash, отсортированные по ключу, через \n
+        String[] keys = params.keySet().stream()
+                .filter(key -> !"hash".equals(key))
+                .sorted()
+                .toArray(String[]::new);
+        StringBuilder dataCheckString = new StringBuilder(256);
+        for (String key : keys) {
+            if (!dataCheckString.isEmpty()) {
+                dataCheckString.append('\n');
+            }
+            dataCheckString.append(key).append('=').append(params.get(key));
+        }
+
+        byte[] calculated = mac.get().doFinal(dataCheckString.toString().getBytes(StandardCharsets.UTF_8));
+        // Сравнение за постоянное время, чтобы не раскрывать подпись по времени ответа
+        return MessageDigest.isEqual(calculated, expected);
     }
 
     /**
      * Парсит строку initData в Map<String, String>.
-     * 
+     *
      * @param initData строка window.Telegram.WebApp.initData
      * @return Map с параметрами
      */
     public Map<String, String> parseInitData(String initData) {
-        return Arrays.stream(initData.split("&"))
-                .map(param -> param.split("=", 2))
-                .collect(Collectors.toMap(
-                        p -> decode(p[0]),
-                        p -> decode(p.length > 1 ? p[1] : "")));
+        Map<String, String> params = new HashMap<>();
+        int start = 0;
+        while (start <= initData.length()) {
+            int end = initData.indexOf('&', start);
+            if (end < 0) {
+                end = initData.length();
+            }
+            // Пустые фрагменты (например, после завершающего '&') пропускаем
+            if (start < end) {
+                int eq = initData.indexOf('=', start);
+                if (eq < 0 || eq > end) {
+                    params.put(decode(initData.substring(start, end)), "");
+                } else {
+                    params.put(decode(initData.substring(start, eq)), decode(initData.substring(eq + 1, end)));
+                }
+            }
+            start = end + 1;
+        }
+        return params;
     }
 
-    private String decode(String value) {
+    /**
+     * Извлекает Telegram ID пользователя из параметра user (JSON-объект), который
+     * Telegram кладет в initData.
+     *
+     * @param params Результат {@link #parseInitData(String)}.
+     * @return Telegram ID или null, если его нет.
+     */
+    public Long getTelegramUserId(Map<String, String> params) {
+        String user = params.get("user");
+        if (user == null) {
+            // Совместимость со старыми клиентами, передававшими id отдельным параметром
+            String id = params.get("id");
+            return id != null ? Long.valueOf(id) : null;
+        }
         try {
-            return URLDecoder.decode(value, StandardCharsets.UTF_8.name());
-        } catch (Exception e) {
-            return value;
+            JsonNode id = objectMapper.readTree(user).get("id");
+            return id != null && id.canConvertToLong() ? id.asLong() : null;
+        } catch (JsonProcessingException e) {
+            log.warn("Не удалось разобрать параметр user из initData: {}", e.getOriginalMessage());
+            return null;
         }
     }
 
-    private String toHexString(byte[] bytes) {
-        try (Formatter formatter = new Formatter()) {
-            for (byte b : bytes) {
-                formatter.format("%02x", b);
-            }
-            return formatter.toString();
+    private String decode(String value) {
+        // Большинство параметров не закодированы: не создаем лишних строк
+        if (value.indexOf('%') < 0 && value.indexOf('+') < 0) {
+            return value;
+        }
+        try {
+            return URLDecoder.decode(value, StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            return value;
         }
     }
-}
\ No newline at end of file
+}
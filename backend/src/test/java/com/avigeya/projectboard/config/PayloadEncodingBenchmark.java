@@ -0,0 +1,136 @@
+package com.avigeya.projectboard.config;
+
+import com.avigeya.projectboard.dto.AppDataDto;
+import com.avigeya.projectboard.dto.ProjectDto;
+import com.avigeya.projectboard.dto.StageDto;
+import com.avigeya.projectboard.dto.StatusDto;
+import com.avigeya.projectboard.dto.TaskDto;
+import com.avigeya.projectboard.dto.UserDto;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Сравнение размера и скорости кодирования AppDataDto в JSON, CBOR и Smile
+ * на сгенерированной доске из 10 000 задач.
+ * <p>
+ * Не входит в обычный прогон тестов. Запуск:
+ * {@code mvn test -DskipTests=false -Dtest=PayloadEncodingBenchmark}.
+ */
+class PayloadEncodingBenchmark {
+
+    private static final int TASKS = 10_000;
+    private static final int WARMUP_ITERATIONS = 20;
+    private static final int ITERATIONS = 50;
+
+    @Test
+    void compareEncodings() throws IOException {
+        AppDataDto board = generateBoard();
+        compare("json", new JsonFactory(), board);
+        compare("cbor", new CBORFactory(), board);
+        compare("smile", new SmileFactory(), board);
+    }
+
+    private void compare(String format, JsonFactory factory, AppDataDto board) throws IOException {
+        // Те же настройки дат, что у маппера Spring Boot, из которого строятся конвертеры WebConfig
+        ObjectMapper mapper = new Jackson2ObjectMapperBuilder().factory(factory)
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+
+        byte[] encoded = mapper.writeValueAsBytes(board);
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            mapper.readValue(mapper.writeValueAsBytes(board), AppDataDto.class);
+        }
+
+        long[] encodeNanos = new long[ITERATIONS];
+        long[] decodeNanos = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            encoded = mapper.writeValueAsBytes(board);
+            encodeNanos[i] = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            mapper.readValue(encoded, AppDataDto.class);
+            decodeNanos[i] = System.nanoTime() - start;
+        }
+
+        System.out.printf("%-5s size=%8d B gzip=%7d B encode p50=%6.2f ms decode p50=%6.2f ms%n",
+                format, encoded.length, gzip(encoded).length, median(encodeNanos), median(decodeNanos));
+    }
+
+    private AppDataDto generateBoard() {
+        List<UserDto> users = new ArrayList<>();
+        for (long id = 1; id <= 50; id++) {
+            users.add(new UserDto(id, "Пользователь " + id, id % 5 == 0 ? "admin" : "designer"));
+        }
+        List<StatusDto> statuses = List.of(new StatusDto(1L, "Новая", "🆕", 1),
+                new StatusDto(2L, "В работе", "🔨", 2), new StatusDto(3L, "На проверке", "👀", 3));
+        List<StageDto> stages = List.of(new StageDto(1L, "Эскиз", "Первичный эскиз"),
+                new StageDto(2L, "Макет", "Рабочий макет"), new StageDto(3L, "Сдача", "Передача заказчику"));
+        List<ProjectDto> projects = new ArrayList<>();
+        for (long id = 1; id <= 20; id++) {
+            projects.add(new ProjectDto(id, "Проект " + id));
+        }
+
+        List<TaskDto> tasks = new ArrayList<>(TASKS);
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        for (int i = 0; i < TASKS; i++) {
+            TaskDto task = new TaskDto();
+            task.setId((long) i + 1);
+            task.setName("Задача " + i);
+            task.setMessage(i % 3 == 0 ? "Комментарий к задаче " + i : null);
+            task.setPriority(i + 1);
+            task.setStartDate(start.plusDays(i % 365));
+            task.setFinishDate(start.plusDays(i % 365 + 14));
+            task.setStatus(statuses.get(i % statuses.size()));
+            task.setStage(stages.get(i % stages.size()));
+            task.setCurator(users.get(i % users.size()));
+            task.setAuthor(users.get((i + 7) % users.size()));
+            task.setProjectId(projects.get(i % projects.size()).getId());
+            task.setMembers(List.of(users.get((i + 1) % users.size()), users.get((i + 2) % users.size())));
+            task.setVersion(i % 4);
+            tasks.add(task);
+        }
+
+        return AppDataDto.builder()
+                .currentUserId(1L)
+                .userName("Пользователь 1")
+                .userRole("admin")
+                .changeCursor(42L)
+                .projects(projects)
+                .tasks(tasks)
+                .allProjects(projects)
+                .allUsers(users)
+                .allStatuses(statuses)
+                .allStages(stages)
+                .projectMembers(List.of())
+                .projectStages(List.of())
+                .build();
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    private static double median(long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2] / 1_000_000.0;
+    }
+}
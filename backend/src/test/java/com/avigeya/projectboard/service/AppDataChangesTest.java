@@ -0,0 +1,109 @@
+package com.avigeya.projectboard.service;
+
+import com.avigeya.projectboard.domain.*;
+import com.avigeya.projectboard.dto.AppDataChangesDto;
+import com.avigeya.projectboard.dto.StatusDto;
+import com.avigeya.projectboard.dto.TaskDto;
+import com.avigeya.projectboard.dto.UserDto;
+import com.avigeya.projectboard.repository.ChangeLogRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * /app-data/changes отдает участнику только его задачи и проекты: чужие задачи
+ * не приходят даже "надгробиями", а изменения участников чужих проектов не
+ * заставляют клиента перезагружать доску.
+ */
+class AppDataChangesTest extends BoardFixture {
+
+    private static final long CURATOR_TG_ID = 5001L;
+    private static final long MEMBER_TG_ID = 5002L;
+    private static final long OUTSIDER_TG_ID = 5003L;
+
+    @Autowired
+    private AppDataService appDataService;
+    @Autowired
+    private TaskService taskService;
+    @Autowired
+    private ProjectService projectService;
+    @Autowired
+    private PermissionIndex permissionIndex;
+    @Autowired
+    private ChangeLogRepository changeLogRepository;
+
+    private User curator;
+    private User member;
+    private User outsider;
+    private Project project;
+    private Project foreignProject;
+    private Long taskId;
+
+    @BeforeEach
+    void setUp() {
+        curator = saveUser("Куратор", "designer", CURATOR_TG_ID);
+        member = saveUser("Участник", "designer", MEMBER_TG_ID);
+        outsider = saveUser("Коллега", "designer", OUTSIDER_TG_ID);
+        project = saveProject("Проект");
+        foreignProject = saveProject("Чужой проект");
+        addProjectMember(project, curator);
+        addProjectMember(project, member);
+        addProjectMember(project, outsider);
+        addProjectMember(foreignProject, curator);
+        Status status = saveStatus("В работе", 1);
+        refreshReferenceData();
+        permissionIndex.rebuild();
+
+        TaskDto task = new TaskDto();
+        task.setName("Задача");
+        task.setProjectId(project.getId());
+        task.setStatus(new StatusDto(status.getId(), status.getName(), null, status.getOrder()));
+        task.setCurator(new UserDto(curator.getId(), curator.getName()));
+        taskId = taskService.createTasks(List.of(task), sessionService.getDebugSession(CURATOR_TG_ID)).get(0).getId();
+    }
+
+    @Test
+    void taskChangesReachOnlyUsersWhoSeeTheTask() {
+        long since = changeLogRepository.findMaxId();
+        taskService.updateTaskMembers(taskId, curator.getId(), List.of(member.getId()), "test");
+
+        assertThat(changes(MEMBER_TG_ID, since).getTasks()).extracting(TaskDto::getId).containsExactly(taskId);
+        AppDataChangesDto outsiderChanges = changes(OUTSIDER_TG_ID, since);
+        assertThat(outsiderChanges.getTasks()).isEmpty();
+        assertThat(outsiderChanges.getDeletedTaskIds()).isEmpty();
+    }
+
+    @Test
+    void removedMemberGetsTombstone() {
+        taskService.updateTaskMembers(taskId, curator.getId(), List.of(member.getId()), "test");
+        long since = changeLogRepository.findMaxId();
+        taskService.updateTaskMembers(taskId, curator.getId(), List.of(), "test");
+
+        AppDataChangesDto memberChanges = changes(MEMBER_TG_ID, since);
+        assertThat(memberChanges.getTasks()).isEmpty();
+        assertThat(memberChanges.getDeletedTaskIds()).containsExactly(taskId);
+        assertThat(changes(OUTSIDER_TG_ID, since).getDeletedTaskIds()).isEmpty();
+        assertThat(changes(CURATOR_TG_ID, since).getTasks()).extracting(TaskDto::getId).containsExactly(taskId);
+    }
+
+    @Test
+    void memberChangesOfForeignProjectsAreNotReported() {
+        long since = changeLogRepository.findMaxId();
+        projectService.updateProjectMembers(foreignProject.getId(), List.of(), "test");
+        projectService.updateProjectMembers(project.getId(), List.of(curator.getId(), member.getId()), "test");
+
+        assertThat(changes(MEMBER_TG_ID, since).getChangedMemberProjectIds()).containsExactly(project.getId());
+        // Исключенный из проекта узнает об этом, хотя проект больше не видит
+        assertThat(changes(OUTSIDER_TG_ID, since).getChangedMemberProjectIds()).containsExactly(project.getId());
+        assertThat(changes(CURATOR_TG_ID, since).getChangedMemberProjectIds())
+                .containsExactlyInAnyOrder(foreignProject.getId(), project.getId());
+    }
+
+    private AppDataChangesDto changes(long tgUserId, long since) {
+        return appDataService.getChanges(sessionService.getDebugSession(tgUserId), since);
+    }
+}
@@ -0,0 +1,129 @@
+package com.avigeya.projectboard.service;
+
+import com.avigeya.projectboard.domain.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Сравнение задержки /app-data в режимах SEQUENTIAL, PARALLEL и READ_MODEL.
+ * <p>
+ * Не входит в обычный прогон тестов (имя не оканчивается на Test). Запуск:
+ * {@code mvn test -DskipTests=false -Dtest=AppDataFetchModeBenchmark}.
+ * По умолчанию используется H2 в памяти, где сетевой задержки нет, поэтому
+ * выигрыш параллельного режима заметен только на настоящей БД: передайте
+ * {@code -Dspring.datasource.url=jdbc:postgresql://...} и учетные данные.
+ */
+@SpringBootTest(properties = "spring.datasource.hikari.maximum-pool-size=10")
+class AppDataFetchModeBenchmark extends BoardFixture {
+
+    private static final int TASKS = 2000;
+    private static final int CLIENTS = 8;
+    private static final int REQUESTS_PER_CLIENT = 50;
+    private static final int WARMUP_REQUESTS = 20;
+
+    private static final long ADMIN_TG_ID = 2001L;
+    private static final long MEMBER_TG_ID = 2002L;
+
+    @Autowired
+    private AppDataService appDataService;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private BoardReadModel boardReadModel;
+    @Autowired
+    private TaskVisibilityService taskVisibilityService;
+
+    @BeforeEach
+    void setUp() {
+        User admin = saveUser("Админ", "admin", ADMIN_TG_ID);
+        User member = saveUser("Участник", "designer", MEMBER_TG_ID);
+        Status status = saveStatus("В работе", 1);
+
+        List<Project> projects = new ArrayList<>();
+        for (int p = 0; p < 10; p++) {
+            projects.add(saveProject("Проект " + p));
+            addProjectMember(projects.get(p), member);
+        }
+        refreshReferenceData();
+
+        transactionTemplate.executeWithoutResult(tx -> {
+            List<Task> tasks = new ArrayList<>(TASKS);
+            for (int i = 0; i < TASKS; i++) {
+                Task task = new Task();
+                task.setName("Задача " + i);
+                task.setPriority(i + 1);
+                task.setProject(projects.get(i % projects.size()));
+                task.setStatus(status);
+                task.setCurator(admin);
+                task.setAuthor(admin);
+                task.getTaskMembers().add(new TaskMember(null, task, member));
+                tasks.add(task);
+            }
+            taskRepository.saveAll(tasks);
+        });
+        // Задачи созданы в обход сервисов и журнала: видимость и модель чтения пересчитываем сами
+        taskVisibilityService.reconcile();
+        boardReadModel.load();
+    }
+
+    @Test
+    void compareFetchModes() throws Exception {
+        for (long tgUserId : new long[] { ADMIN_TG_ID, MEMBER_TG_ID }) {
+            SessionUser user = sessionService.getDebugSession(tgUserId);
+            for (AppDataFetchMode mode : AppDataFetchMode.values()) {
+                Object target = AopTestUtils.getTargetObject(appDataService);
+                ReflectionTestUtils.setField(target, "fetchMode", mode);
+                for (int i = 0; i < WARMUP_REQUESTS; i++) {
+                    appDataService.getAppData(user);
+                }
+                long[] latencies = measure(user);
+                System.out.printf("user=%d mode=%-10s p50=%6.2f ms p99=%6.2f ms (%d requests, %d clients)%n",
+                        tgUserId, mode, percentile(latencies, 0.50), percentile(latencies, 0.99),
+                        latencies.length, CLIENTS);
+            }
+        }
+    }
+
+    private long[] measure(SessionUser user) throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        try {
+            List<Future<long[]>> results = new ArrayList<>();
+            for (int c = 0; c < CLIENTS; c++) {
+                results.add(clients.submit(() -> {
+                    long[] own = new long[REQUESTS_PER_CLIENT];
+                    for (int i = 0; i < REQUESTS_PER_CLIENT; i++) {
+                        long start = System.nanoTime();
+                        appDataService.getAppData(user);
+                        own[i] = System.nanoTime() - start;
+                    }
+                    return own;
+                }));
+            }
+            long[] all = new long[CLIENTS * REQUESTS_PER_CLIENT];
+            for (int c = 0; c < CLIENTS; c++) {
+                System.arraycopy(results.get(c).get(), 0, all, c * REQUESTS_PER_CLIENT, REQUESTS_PER_CLIENT);
+            }
+            Arrays.sort(all);
+            return all;
+        } finally {
+            clients.shutdown();
+        }
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,123 @@
+package com.avigeya.projectboard.service;
+
+import com.avigeya.projectboard.domain.*;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Регрессионный тест на N+1: число SQL-запросов при загрузке доски
+ * не должно зависеть от количества задач. Проверяется чтение из БД, которым
+ * getAppData пользуется, пока модель чтения не загружена.
+ */
+@SpringBootTest(properties = "board.app-data.fetch-mode=SEQUENTIAL")
+class AppDataStatementCountTest extends BoardFixture {
+
+    private static final long ADMIN_TG_ID = 1001L;
+    private static final long MEMBER_TG_ID = 1002L;
+
+    @Autowired
+    private AppDataService appDataService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private TaskVisibilityService taskVisibilityService;
+
+    private Statistics statistics;
+    private User admin;
+    private User member;
+    private Project project;
+    private Status status;
+    private Stage stage;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        admin = saveUser("Админ", "admin", ADMIN_TG_ID);
+        member = saveUser("Участник", "designer", MEMBER_TG_ID);
+        project = saveProject("Проект");
+        status = saveStatus("В работе", 1);
+        stage = saveStage("Этап");
+        refreshReferenceData();
+    }
+
+    @Test
+    void adminBoardStatementCountDoesNotDependOnTaskCount() {
+        createTasks(10);
+        long smallBoard = countStatements(ADMIN_TG_ID);
+
+        createTasks(990);
+        long largeBoard = countStatements(ADMIN_TG_ID);
+
+        assertThat(appDataService.getAppData(sessionService.getDebugSession(ADMIN_TG_ID)).getTasks()).hasSize(1000);
+        assertThat(largeBoard).isEqualTo(smallBoard);
+    }
+
+    @Test
+    void memberBoardStatementCountDoesNotDependOnTaskCount() {
+        createTasks(10);
+        long smallBoard = countStatements(MEMBER_TG_ID);
+
+        createTasks(990);
+        long largeBoard = countStatements(MEMBER_TG_ID);
+
+        assertThat(appDataService.getAppData(sessionService.getDebugSession(MEMBER_TG_ID)).getTasks()).hasSize(1000);
+        assertThat(largeBoard).isEqualTo(smallBoard);
+    }
+
+    @Test
+    void detailsQueryLoadsMembersWithoutExtraStatements() {
+        createTasks(1000);
+
+        statistics.clear();
+        int memberCount = transactionTemplate.execute(tx -> taskRepository.findAllWithDetails().stream()
+                .mapToInt(task -> task.getMembers().size())
+                .sum());
+
+        assertThat(memberCount).isEqualTo(1000);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    private long countStatements(long tgUserId) {
+        // Прогрев: кэш справочников строится при первом обращении
+        SessionUser user = sessionService.getDebugSession(tgUserId);
+        appDataService.getAppData(user);
+        statistics.clear();
+        appDataService.getAppData(user);
+        return statistics.getPrepareStatementCount();
+    }
+
+    private void createTasks(int count) {
+        transactionTemplate.executeWithoutResult(tx -> {
+            List<Task> tasks = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Task task = new Task();
+                task.setName("Задача " + i);
+                task.setPriority(i + 1);
+                task.setProject(project);
+                task.setStatus(status);
+                task.setStage(stage);
+                task.setCurator(admin);
+                task.setAuthor(admin);
+                task.getTaskMembers().add(new TaskMember(null, task, member));
+                tasks.add(task);
+            }
+            taskRepository.saveAll(tasks);
+        });
+        // Задачи созданы в обход TaskService: строки видимости пересчитываем сами
+        taskVisibilityService.reconcile();
+    }
+}
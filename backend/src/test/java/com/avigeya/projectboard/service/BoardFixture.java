@@ -0,0 +1,99 @@
+package com.avigeya.projectboard.service;
+
+import com.avigeya.projectboard.config.DataInitializer;
+import com.avigeya.projectboard.domain.*;
+import com.avigeya.projectboard.repository.*;
+import org.junit.jupiter.api.AfterEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Общая основа тестов на встроенной БД: вместо загрузки CSV каждый тест
+ * заводит собственных пользователей, проекты и статусы через методы ниже, а
+ * после теста все таблицы доски очищаются.
+ * <p>
+ * После изменения справочников вызовите {@link #refreshReferenceData()}:
+ * кэш справочников и сессии строятся при первом обращении.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+abstract class BoardFixture {
+
+    // Заменяем загрузку CSV, чтобы тесты работали на собственных данных
+    @MockBean
+    private DataInitializer dataInitializer;
+
+    @Autowired
+    protected TaskRepository taskRepository;
+    @Autowired
+    protected TaskMemberRepository taskMemberRepository;
+    @Autowired
+    protected UserRepository userRepository;
+    @Autowired
+    protected ProjectRepository projectRepository;
+    @Autowired
+    protected ProjectMemberRepository projectMemberRepository;
+    @Autowired
+    protected StatusRepository statusRepository;
+    @Autowired
+    protected StageRepository stageRepository;
+    @Autowired
+    protected ReferenceDataCache referenceDataCache;
+    @Autowired
+    protected SessionService sessionService;
+    @Autowired
+    private ProjectStageRepository projectStageRepository;
+    @Autowired
+    private UserTaskVisibilityRepository visibilityRepository;
+    @Autowired
+    private ChangeLogRepository changeLogRepository;
+
+    @AfterEach
+    void deleteBoardData() {
+        visibilityRepository.deleteAllInBatch();
+        changeLogRepository.deleteAllInBatch();
+        taskMemberRepository.deleteAllInBatch();
+        taskRepository.deleteAllInBatch();
+        projectStageRepository.deleteAllInBatch();
+        projectMemberRepository.deleteAllInBatch();
+        stageRepository.deleteAllInBatch();
+        statusRepository.deleteAllInBatch();
+        projectRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    protected User saveUser(String name, String role, long tgUserId) {
+        return userRepository.save(new User(null, name, null, role, tgUserId));
+    }
+
+    protected Project saveProject(String name) {
+        Project project = new Project();
+        project.setName(name);
+        return projectRepository.save(project);
+    }
+
+    protected Status saveStatus(String name, int order) {
+        Status status = new Status();
+        status.setName(name);
+        status.setOrder(order);
+        return statusRepository.save(status);
+    }
+
+    protected Stage saveStage(String name) {
+        return stageRepository.save(new Stage(null, name, null));
+    }
+
+    protected void addProjectMember(Project project, User user) {
+        projectMemberRepository.save(new ProjectMember(null, project, user, true));
+    }
+
+    /**
+     * Сбрасывает кэш справочников и сессий после изменения данных теста.
+     */
+    protected void refreshReferenceData() {
+        referenceDataCache.invalidate();
+        sessionService.invalidateAll();
+    }
+}
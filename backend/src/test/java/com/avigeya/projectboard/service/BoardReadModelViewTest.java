@@ -0,0 +1,118 @@
+package com.avigeya.projectboard.service;
+
+import com.avigeya.projectboard.dto.TaskDto;
+import com.avigeya.projectboard.dto.TaskRow;
+import com.avigeya.projectboard.dto.UserDto;
+import com.avigeya.projectboard.service.BoardReadModel.TaskEntry;
+import com.avigeya.projectboard.service.BoardReadModel.View;
+import org.assertj.core.api.InstanceOfAssertFactories;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Применение изменений к снимку модели: задача должна исчезать из старых
+ * индексов и появляться в новых.
+ */
+class BoardReadModelViewTest {
+
+    private static final long PROJECT = 10;
+    private static final long OTHER_PROJECT = 20;
+    private static final long CURATOR = 100;
+    private static final long OTHER_CURATOR = 200;
+    private static final long AUTHOR = 300;
+    private static final long MEMBER = 400;
+
+    private final View view = View.of(5, 0, List.of(
+            entry(row(1, PROJECT, CURATOR)),
+            entry(row(2, PROJECT, OTHER_CURATOR))));
+
+    @Test
+    void movesTaskToOtherProject() {
+        View next = view.apply(6, Set.of(1L), List.of(entry(row(1, OTHER_PROJECT, CURATOR))));
+
+        assertThat(ids(next.tasksOfProject(PROJECT))).containsExactly(2L);
+        assertThat(ids(next.tasksOfProject(OTHER_PROJECT))).containsExactly(1L);
+        assertThat(ids(next.tasksVisibleTo(CURATOR))).containsExactly(1L);
+    }
+
+    @Test
+    void movesTaskToNewCurator() {
+        View next = view.apply(6, Set.of(1L), List.of(entry(row(1, PROJECT, OTHER_CURATOR))));
+
+        assertThat(next.tasksVisibleTo(CURATOR)).isEmpty();
+        assertThat(ids(next.tasksVisibleTo(OTHER_CURATOR))).containsExactlyInAnyOrder(1L, 2L);
+        // Автор видит задачу и после смены куратора
+        assertThat(ids(next.tasksVisibleTo(AUTHOR))).containsExactlyInAnyOrder(1L, 2L);
+    }
+
+    @Test
+    void indexesTaskForNewMember() {
+        View next = view.apply(6, Set.of(1L),
+                List.of(entry(row(1, PROJECT, CURATOR), new UserDto(MEMBER, "member", null))));
+
+        assertThat(ids(next.tasksVisibleTo(MEMBER))).containsExactly(1L);
+        assertThat(next.allTasks()).filteredOn(task -> task.getId() == 1L)
+                .singleElement().extracting(TaskDto::getMembers, InstanceOfAssertFactories.LIST).hasSize(1);
+
+        View withoutMember = next.apply(7, Set.of(1L), List.of(entry(row(1, PROJECT, CURATOR))));
+        assertThat(withoutMember.tasksVisibleTo(MEMBER)).isEmpty();
+    }
+
+    @Test
+    void removesCompletedOrDeletedTask() {
+        // Выполненная или удаленная задача не загружается как открытая
+        View next = view.apply(6, Set.of(1L), List.of());
+
+        assertThat(next.size()).isEqualTo(1);
+        assertThat(ids(next.allTasks())).containsExactly(2L);
+        assertThat(ids(next.tasksOfProject(PROJECT))).containsExactly(2L);
+        assertThat(next.tasksVisibleTo(CURATOR)).isEmpty();
+        assertThat(ids(next.tasksVisibleTo(AUTHOR))).containsExactly(2L);
+    }
+
+    @Test
+    void addsTaskMissingFromView() {
+        View next = view.apply(6, Set.of(3L), List.of(entry(row(3, OTHER_PROJECT, CURATOR))));
+
+        assertThat(next.size()).isEqualTo(3);
+        assertThat(ids(next.tasksVisibleTo(CURATOR))).containsExactlyInAnyOrder(1L, 3L);
+    }
+
+    @Test
+    void keepsPreviousSnapshotUnchanged() {
+        view.apply(6, Set.of(1L), List.of());
+
+        assertThat(view.size()).isEqualTo(2);
+        assertThat(ids(view.tasksVisibleTo(CURATOR))).containsExactly(1L);
+        assertThat(view.getCursor()).isEqualTo(5);
+    }
+
+    @Test
+    void bumpsGenerationOnlyWhenTasksChange() {
+        View moved = view.apply(6, Set.of(), List.of());
+        assertThat(moved.getCursor()).isEqualTo(6);
+        assertThat(moved.getGeneration()).isEqualTo(view.getGeneration());
+
+        // Задача за пропуском в журнале применяется без движения курсора
+        View changed = view.apply(5, Set.of(1L), List.of(entry(row(1, PROJECT, CURATOR))));
+        assertThat(changed.getCursor()).isEqualTo(5);
+        assertThat(changed.getGeneration()).isEqualTo(view.getGeneration() + 1);
+    }
+
+    private static TaskEntry entry(TaskRow row, UserDto... members) {
+        return TaskEntry.of(row, List.of(members));
+    }
+
+    private static TaskRow row(long id, long projectId, long curatorId) {
+        return new TaskRow(id, "task " + id, null, null, id, null, null, 0, projectId, 1L, "В работе", null, 1,
+                null, null, null, curatorId, "curator", AUTHOR, "author");
+    }
+
+    private static List<Long> ids(List<TaskDto> tasks) {
+        return tasks.stream().map(TaskDto::getId).toList();
+    }
+}
@@ -0,0 +1,68 @@
+package com.avigeya.projectboard.service;
+
+import com.avigeya.projectboard.domain.ChangeEntityType;
+import com.avigeya.projectboard.domain.ChangeLogEntry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Курсор журнала не должен проходить мимо номеров транзакций, которые еще
+ * могут закоммититься.
+ */
+class ChangeLogServiceTest {
+
+    private static final Instant SETTLED_BEFORE = Instant.parse("2024-06-01T12:00:00Z");
+    private static final Instant OLD = SETTLED_BEFORE.minusSeconds(1);
+    private static final Instant RECENT = SETTLED_BEFORE.plusSeconds(1);
+
+    private final ChangeLogService changeLogService = new ChangeLogService(null, null);
+
+    @Test
+    void advancesOverContiguousEntries() {
+        assertThat(cursor(10, entry(11, RECENT), entry(12, RECENT), entry(13, RECENT))).isEqualTo(13);
+    }
+
+    @Test
+    void stopsBeforeRecentGap() {
+        // 12 выдан транзакции, которая еще может закоммититься
+        assertThat(cursor(10, entry(11, RECENT), entry(13, RECENT), entry(14, RECENT))).isEqualTo(11);
+    }
+
+    @Test
+    void doesNotMoveWhenFirstEntryIsMissing() {
+        assertThat(cursor(10, entry(12, RECENT))).isEqualTo(10);
+    }
+
+    @Test
+    void skipsGapBelowSettledEntry() {
+        // 13 записан раньше окна: транзакция с номером 12 уже завершилась (откатилась)
+        assertThat(cursor(10, entry(11, RECENT), entry(13, OLD), entry(14, RECENT), entry(16, RECENT)))
+                .isEqualTo(14);
+    }
+
+    @Test
+    void startsFromSettledBaseOfTail() {
+        assertThat(cursor(0, entry(500, OLD), entry(501, RECENT), entry(503, RECENT))).isEqualTo(501);
+    }
+
+    @Test
+    void keepsSinceWithoutEntries() {
+        assertThat(cursor(42)).isEqualTo(42);
+        assertThat(cursor(0)).isZero();
+    }
+
+    private long cursor(long since, ChangeLogEntry... entries) {
+        return changeLogService.settledCursor(since, List.of(entries), SETTLED_BEFORE);
+    }
+
+    private static ChangeLogEntry entry(long id, Instant changedAt) {
+        ChangeLogEntry entry = new ChangeLogEntry(ChangeEntityType.TASK, id, 1L, false);
+        entry.setId(id);
+        entry.setChangedAt(changedAt);
+        return entry;
+    }
+}
@@ -0,0 +1,138 @@
+package com.avigeya.projectboard.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LongObjectMapTest {
+
+    // Емкость пустой таблицы: до 8 элементов она не растет
+    private static final int INITIAL_MASK = 15;
+
+    @Test
+    void putReplacesValueOfExistingKey() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        map.put(7, "a");
+        map.put(7, "b");
+
+        assertThat(map.size()).isEqualTo(1);
+        assertThat(map.get(7)).isEqualTo("b");
+        assertThat(map.get(8)).isNull();
+        assertThat(map.containsKey(8)).isFalse();
+    }
+
+    @Test
+    void rejectsNullValues() {
+        assertThatThrownBy(() -> new LongObjectMap<String>().put(1, null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void removeShiftsCollisionChainAcrossTableEnd() {
+        // Три ключа с домашней ячейкой 15 занимают 15, 0 и 1, ключ с ячейкой 0 — ячейку 2
+        List<Long> lastSlot = keysWithSlot(INITIAL_MASK, 3);
+        long firstSlot = keysWithSlot(0, 1).get(0);
+        LongObjectMap<Long> map = new LongObjectMap<>();
+        lastSlot.forEach(key -> map.put(key, key));
+        map.put(firstSlot, firstSlot);
+
+        map.remove(lastSlot.get(0));
+
+        assertThat(map.size()).isEqualTo(3);
+        assertThat(map.containsKey(lastSlot.get(0))).isFalse();
+        assertThat(map.get(lastSlot.get(1))).isEqualTo(lastSlot.get(1));
+        assertThat(map.get(lastSlot.get(2))).isEqualTo(lastSlot.get(2));
+        assertThat(map.get(firstSlot)).isEqualTo(firstSlot);
+
+        map.remove(lastSlot.get(2));
+        map.remove(firstSlot);
+        assertThat(map.keys()).containsExactly(lastSlot.get(1));
+    }
+
+    @Test
+    void removeOfMissingKeyKeepsMap() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        map.put(1, "a");
+        map.remove(2);
+
+        assertThat(map.size()).isEqualTo(1);
+        assertThat(map.get(1)).isEqualTo("a");
+    }
+
+    @Test
+    void resizeKeepsAllEntries() {
+        LongObjectMap<Long> map = new LongObjectMap<>();
+        for (long key = -500; key < 500; key++) {
+            map.put(key, key * 2);
+        }
+
+        assertThat(map.size()).isEqualTo(1000);
+        for (long key = -500; key < 500; key++) {
+            assertThat(map.get(key)).isEqualTo(key * 2);
+        }
+        long[] keys = map.keys();
+        assertThat(keys).hasSize(1000);
+        assertThat(keys[0]).isEqualTo(-500);
+        assertThat(keys[999]).isEqualTo(499);
+    }
+
+    @Test
+    void copyIsIndependent() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        map.put(1, "a");
+        LongObjectMap<String> copy = map.copy();
+        copy.put(2, "b");
+        copy.remove(1);
+
+        assertThat(map.keys()).containsExactly(1L);
+        assertThat(copy.keys()).containsExactly(2L);
+    }
+
+    @Test
+    void behavesLikeHashMapUnderRandomOperations() {
+        Random random = new Random(42);
+        LongObjectMap<Integer> map = new LongObjectMap<>();
+        Map<Long, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            // Узкий диапазон ключей: много коллизий, удалений и повторных вставок
+            long key = random.nextInt(64) - 8;
+            if (random.nextInt(3) == 0) {
+                map.remove(key);
+                expected.remove(key);
+            } else {
+                map.put(key, i);
+                expected.put(key, i);
+            }
+            assertThat(map.size()).isEqualTo(expected.size());
+        }
+        for (long key = -8; key < 56; key++) {
+            assertThat(map.get(key)).isEqualTo(expected.get(key));
+        }
+        assertThat(map.keys()).containsExactly(expected.keySet().stream().sorted().mapToLong(Long::longValue).toArray());
+
+        List<Integer> values = new ArrayList<>();
+        map.forEachValue(values::add);
+        assertThat(values).containsExactlyInAnyOrderElementsOf(expected.values());
+    }
+
+    /**
+     * Ключи, которые попадают в ячейку slot пустой таблицы. Повторяет хеш
+     * {@link LongObjectMap}.
+     */
+    private static List<Long> keysWithSlot(int slot, int count) {
+        List<Long> keys = new ArrayList<>();
+        for (long key = 1; keys.size() < count; key++) {
+            if (((int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & INITIAL_MASK) == slot) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,73 @@
+package com.avigeya.projectboard.service;
+
+import com.avigeya.projectboard.domain.*;
+import com.avigeya.projectboard.exception.ForbiddenException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Перенос задачи патчем проверяется по тому же projectId, который запишет
+ * TaskService, в том числе когда ID пришел строкой.
+ */
+class PermissionIndexTest extends BoardFixture {
+
+    private static final long MEMBER_TG_ID = 4001L;
+
+    @Autowired
+    private PermissionIndex permissionIndex;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private SessionUser member;
+    private Project ownProject;
+    private Project foreignProject;
+    private Long taskId;
+
+    @BeforeEach
+    void setUp() {
+        User user = saveUser("Участник", "designer", MEMBER_TG_ID);
+        ownProject = saveProject("Свой проект");
+        foreignProject = saveProject("Чужой проект");
+        addProjectMember(ownProject, user);
+
+        Task task = new Task();
+        task.setName("Задача");
+        task.setProject(ownProject);
+        task.setStatus(saveStatus("В работе", 1));
+        task.setCurator(user);
+        task.setAuthor(user);
+        taskId = taskRepository.save(task).getId();
+
+        refreshReferenceData();
+        permissionIndex.rebuild();
+        member = sessionService.getDebugSession(MEMBER_TG_ID);
+    }
+
+    @Test
+    void patchIntoForeignProjectIsDenied() {
+        assertThatThrownBy(() -> checkPatch("{\"projectId\": " + foreignProject.getId() + "}"))
+                .isInstanceOf(ForbiddenException.class);
+    }
+
+    @Test
+    void patchIntoForeignProjectByStringIdIsDenied() {
+        assertThatThrownBy(() -> checkPatch("{\"projectId\": \"" + foreignProject.getId() + "\"}"))
+                .isInstanceOf(ForbiddenException.class);
+    }
+
+    @Test
+    void patchWithinOwnProjectIsAllowed() {
+        assertThatCode(() -> checkPatch("{\"projectId\": \"" + ownProject.getId() + "\", \"name\": \"Новое\"}"))
+                .doesNotThrowAnyException();
+        assertThatCode(() -> checkPatch("{\"name\": \"Новое\"}")).doesNotThrowAnyException();
+    }
+
+    private void checkPatch(String json) throws Exception {
+        permissionIndex.checkPatchTask(member, taskId, objectMapper.readTree(json));
+    }
+}
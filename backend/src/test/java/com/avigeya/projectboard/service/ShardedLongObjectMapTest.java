@@ -0,0 +1,76 @@
+package com.avigeya.projectboard.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShardedLongObjectMapTest {
+
+    private static final int SIZE = 1000;
+
+    private final ShardedLongObjectMap<Long> map = build();
+
+    @Test
+    void editDoesNotChangeSourceMap() {
+        ShardedLongObjectMap.Editor<Long> editor = map.edit();
+        editor.put(5, -5L);
+        editor.put(SIZE + 1, 1L);
+        editor.remove(7);
+        ShardedLongObjectMap<Long> next = editor.build();
+
+        assertThat(map.size()).isEqualTo(SIZE);
+        assertThat(map.get(5)).isEqualTo(10L);
+        assertThat(map.containsKey(7)).isTrue();
+        assertThat(map.containsKey(SIZE + 1)).isFalse();
+
+        assertThat(next.size()).isEqualTo(SIZE);
+        assertThat(next.get(5)).isEqualTo(-5L);
+        assertThat(next.containsKey(7)).isFalse();
+        assertThat(next.get(SIZE + 1)).isEqualTo(1L);
+        assertThat(next.get(8)).isEqualTo(16L);
+    }
+
+    @Test
+    void removeOfMissingKeyKeepsSize() {
+        ShardedLongObjectMap.Editor<Long> editor = map.edit();
+        editor.remove(-1);
+        editor.remove(3);
+        editor.remove(3);
+
+        assertThat(editor.build().size()).isEqualTo(SIZE - 1);
+    }
+
+    @Test
+    void keysAndValuesCoverAllShards() {
+        assertThat(map.keys()).containsExactly(LongStream.range(0, SIZE).toArray());
+
+        List<Long> values = new ArrayList<>();
+        map.forEachValue(values::add);
+        assertThat(values).hasSize(SIZE).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void smallMapUsesSingleShard() {
+        ShardedLongObjectMap.Editor<String> editor = ShardedLongObjectMap.builder(0);
+        for (long key = 0; key < 100; key++) {
+            editor.put(key, "v" + key);
+        }
+        ShardedLongObjectMap<String> small = editor.build();
+
+        assertThat(small.size()).isEqualTo(100);
+        assertThat(small.get(99)).isEqualTo("v99");
+        assertThat(small).hasToString("ShardedLongObjectMap{size=100, shards=1}");
+    }
+
+    private static ShardedLongObjectMap<Long> build() {
+        ShardedLongObjectMap.Editor<Long> editor = ShardedLongObjectMap.builder(SIZE);
+        for (long key = 0; key < SIZE; key++) {
+            editor.put(key, key * 2);
+        }
+        return editor.build();
+    }
+}
@@ -0,0 +1,103 @@
+package com.avigeya.projectboard.service;
+
+import com.avigeya.projectboard.domain.*;
+import com.avigeya.projectboard.dto.StageDto;
+import com.avigeya.projectboard.dto.StatusDto;
+import com.avigeya.projectboard.dto.TaskDto;
+import com.avigeya.projectboard.dto.UserDto;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Скорость массового создания задач через {@link TaskService#createTasks}:
+ * 10 000 задач с двумя участниками каждая, запросами разного размера.
+ * <p>
+ * Не входит в обычный прогон тестов (имя не оканчивается на Test). Запуск:
+ * {@code mvn test -DskipTests=false -Dtest=TaskCreationBenchmark}.
+ * На H2 в памяти нет сетевой задержки, поэтому выигрыш от пакетной вставки на
+ * настоящей БД больше: передайте {@code -Dspring.datasource.url=jdbc:postgresql://...}
+ * и учетные данные.
+ */
+class TaskCreationBenchmark extends BoardFixture {
+
+    private static final int TASKS = 10_000;
+    private static final int WARMUP_TASKS = 2_000;
+    private static final int[] REQUEST_SIZES = { 1, 100, 1_000, TASKS };
+
+    private static final long AUTHOR_TG_ID = 3001L;
+
+    @Autowired
+    private TaskService taskService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Long projectId;
+    private StatusDto status;
+    private StageDto stage;
+    private List<UserDto> members;
+
+    @BeforeEach
+    void setUp() {
+        saveUser("Автор", "admin", AUTHOR_TG_ID);
+        User first = saveUser("Участник 1", "designer", AUTHOR_TG_ID + 1);
+        User second = saveUser("Участник 2", "designer", AUTHOR_TG_ID + 2);
+        members = List.of(new UserDto(first.getId(), first.getName()), new UserDto(second.getId(), second.getName()));
+
+        projectId = saveProject("Проект").getId();
+
+        Status savedStatus = saveStatus("К выполнению", 1);
+        status = new StatusDto(savedStatus.getId(), savedStatus.getName());
+
+        Stage savedStage = saveStage("Этап");
+        stage = new StageDto(savedStage.getId(), savedStage.getName(), null);
+
+        refreshReferenceData();
+    }
+
+    @Test
+    void createTenThousandTasks() {
+        SessionUser author = sessionService.getDebugSession(AUTHOR_TG_ID);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        create(author, WARMUP_TASKS, 100);
+        for (int requestSize : REQUEST_SIZES) {
+            long before = taskRepository.count();
+            statistics.clear();
+            long start = System.nanoTime();
+            create(author, TASKS, requestSize);
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+            assertThat(taskRepository.count() - before).isEqualTo(TASKS);
+            System.out.printf("request size %5d: %6.2f s, %8.0f tasks/s, %6d statements%n",
+                    requestSize, seconds, TASKS / seconds, statistics.getPrepareStatementCount());
+        }
+    }
+
+    private void create(SessionUser author, int total, int requestSize) {
+        for (int offset = 0; offset < total; offset += requestSize) {
+            int size = Math.min(requestSize, total - offset);
+            List<TaskDto> request = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                TaskDto task = new TaskDto();
+                task.setName("Задача " + (offset + i));
+                task.setPriority(offset + i + 1);
+                task.setProjectId(projectId);
+                task.setStatus(status);
+                task.setStage(stage);
+                task.setCurator(members.get(0));
+                task.setMembers(members);
+                request.add(task);
+            }
+            taskService.createTasks(request, author);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.avigeya.projectboard.service;
+
+import com.avigeya.projectboard.domain.*;
+import com.avigeya.projectboard.dto.StatusDto;
+import com.avigeya.projectboard.dto.TaskDto;
+import com.avigeya.projectboard.dto.UserDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Обновление задачи одним UPDATE: незаданные статус, версия, приоритет и даты
+ * передаются в запрос как null, и PostgreSQL должен принять такие параметры.
+ */
+class TaskUpdateTest extends BoardFixture {
+
+    private static final long CURATOR_TG_ID = 6001L;
+
+    @Autowired
+    private TaskService taskService;
+
+    private Status status;
+    private Long taskId;
+
+    @BeforeEach
+    void setUp() {
+        User curator = saveUser("Куратор", "designer", CURATOR_TG_ID);
+        Project project = saveProject("Проект");
+        status = saveStatus("В работе", 1);
+        refreshReferenceData();
+
+        TaskDto task = new TaskDto();
+        task.setName("Задача");
+        task.setProjectId(project.getId());
+        task.setStatus(new StatusDto(status.getId(), status.getName(), null, status.getOrder()));
+        task.setCurator(new UserDto(curator.getId(), curator.getName()));
+        task.setPriority(2);
+        task.setStartDate(LocalDate.of(2026, 1, 10));
+        taskId = taskService.createTasks(List.of(task), sessionService.getDebugSession(CURATOR_TG_ID)).get(0).getId();
+    }
+
+    @Test
+    void updateWithoutOptionalFieldsKeepsReferences() {
+        TaskDto patch = new TaskDto();
+        patch.setName("Новое имя");
+
+        taskService.updateTask(taskId, patch);
+
+        Task task = taskRepository.findById(taskId).orElseThrow();
+        assertThat(task.getName()).isEqualTo("Новое имя");
+        assertThat(task.getStatus().getId()).isEqualTo(status.getId());
+        assertThat(task.getPriority()).isEqualTo(2);
+        assertThat(task.getStartDate()).isNull();
+    }
+
+    @Test
+    void statusChangeWithMatchingVersionCompletesTask() {
+        Status done = saveStatus(Status.DONE, 2);
+        refreshReferenceData();
+        int version = taskRepository.findById(taskId).orElseThrow().getVersion();
+
+        TaskDto patch = new TaskDto();
+        patch.setName("Задача");
+        patch.setVersion(version);
+        patch.setStatus(new StatusDto(done.getId(), done.getName(), null, done.getOrder()));
+        taskService.updateTask(taskId, patch);
+
+        Task task = taskRepository.findById(taskId).orElseThrow();
+        assertThat(task.getStatus().getId()).isEqualTo(done.getId());
+        assertThat(task.getCompletedAt()).isNotNull();
+        assertThat(task.getVersion()).isEqualTo(version + 1);
+    }
+}
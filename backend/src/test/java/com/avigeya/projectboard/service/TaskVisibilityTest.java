@@ -0,0 +1,103 @@
+package com.avigeya.projectboard.service;
+
+import com.avigeya.projectboard.domain.*;
+import com.avigeya.projectboard.dto.StatusDto;
+import com.avigeya.projectboard.dto.TaskDto;
+import com.avigeya.projectboard.dto.TaskRow;
+import com.avigeya.projectboard.dto.UserDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Доска участника читается через user_task_visibility, поэтому смена куратора
+ * и участников должна сразу менять то, что видят старый и новый пользователь.
+ */
+class TaskVisibilityTest extends BoardFixture {
+
+    private static final long AUTHOR_TG_ID = 2001L;
+
+    @Autowired
+    private TaskService taskService;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private User author;
+    private User oldCurator;
+    private User newCurator;
+    private User member;
+    private Long taskId;
+
+    @BeforeEach
+    void setUp() {
+        author = saveUser("Автор", "contractor", AUTHOR_TG_ID);
+        oldCurator = saveUser("Прежний куратор", "designer", 2002L);
+        newCurator = saveUser("Новый куратор", "designer", 2003L);
+        member = saveUser("Участник", "designer", 2004L);
+        Project project = saveProject("Проект");
+        Status status = saveStatus("В работе", 1);
+        refreshReferenceData();
+
+        TaskDto task = new TaskDto();
+        task.setName("Задача");
+        task.setProjectId(project.getId());
+        task.setStatus(new StatusDto(status.getId(), status.getName(), null, status.getOrder()));
+        task.setCurator(new UserDto(oldCurator.getId(), oldCurator.getName()));
+        taskId = taskService.createTasks(List.of(task), sessionService.getDebugSession(AUTHOR_TG_ID)).get(0).getId();
+    }
+
+    @Test
+    void createdTaskIsVisibleToAuthorAndCuratorOnly() {
+        assertThat(openTaskIds(author)).containsExactly(taskId);
+        assertThat(openTaskIds(oldCurator)).containsExactly(taskId);
+        assertThat(openTaskIds(newCurator)).isEmpty();
+        assertThat(openTaskIds(member)).isEmpty();
+    }
+
+    @Test
+    void updateTaskMembersMovesTaskToNewCuratorAndMembers() {
+        taskService.updateTaskMembers(taskId, newCurator.getId(), List.of(member.getId()), "test");
+
+        assertThat(openTaskIds(oldCurator)).isEmpty();
+        assertThat(openTaskIds(newCurator)).containsExactly(taskId);
+        assertThat(openTaskIds(member)).containsExactly(taskId);
+        assertThat(openTaskIds(author)).containsExactly(taskId);
+
+        taskService.updateTaskMembers(taskId, null, List.of(), "test");
+
+        assertThat(openTaskIds(member)).isEmpty();
+        assertThat(openTaskIds(newCurator)).containsExactly(taskId);
+    }
+
+    @Test
+    void patchOfCuratorMovesTaskToNewCurator() throws Exception {
+        taskService.patchTask(taskId, objectMapper.readTree("{\"curator\": {\"id\": " + newCurator.getId() + "}}"),
+                null);
+
+        assertThat(openTaskIds(oldCurator)).isEmpty();
+        assertThat(openTaskIds(newCurator)).containsExactly(taskId);
+        assertThat(openTaskIds(author)).containsExactly(taskId);
+    }
+
+    @Test
+    void patchOfMembersChangesMemberBoards() throws Exception {
+        taskService.patchTask(taskId, objectMapper.readTree("{\"members\": [{\"id\": " + member.getId() + "}]}"),
+                null);
+        assertThat(openTaskIds(member)).containsExactly(taskId);
+
+        taskService.patchTask(taskId, objectMapper.readTree("{\"members\": []}"), null);
+        assertThat(openTaskIds(member)).isEmpty();
+        assertThat(openTaskIds(oldCurator)).containsExactly(taskId);
+    }
+
+    private List<Long> openTaskIds(User user) {
+        return taskRepository.findOpenTaskRowsForUser(Status.DONE, user.getId()).stream()
+                .map(TaskRow::id)
+                .toList();
+    }
+}
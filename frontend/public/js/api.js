@@ -3,6 +3,11 @@
 // При развертывании на сервере здесь будет реальный адрес вашего бэкенда.
 const API_BASE_URL = 'http://localhost:8080/api/v1';
 
+// Режим отладки: пользователь берется из ?debug_user_id= без подписи Telegram.
+// Включается только в отладочной сборке; бэкенд без board.session.debug-enabled=true
+// все равно отвечает на такие запросы 403.
+export const DEBUG_MODE = false;
+
 /**
  * Отправляет унифицированный запрос на бэкенд и обрабатывает базовые ошибки.
  * @param {string} endpoint - Путь к эндпоинту (например, '/app-data').
@@ -18,12 +23,15 @@ async function fetchApi(endpoint, options = {}) {
     // ---------------------------------------------
     try {
         // --- ДОБАВЛЕНО: Логирование полного объекта запроса ---
+        // headers собираем после ...options, иначе заголовки вызова затрут Content-Type.
+        // Заголовки сессии нужны каждому запросу: по ним бэкенд проверяет права
         const fetchOptions = {
+            ...options,
             headers: {
                 'Content-Type': 'application/json',
+                ...sessionHeaders(),
                 ...options.headers,
             },
-            ...options,
         };
         console.log(`[API] > Полные параметры для fetch:`, JSON.parse(JSON.stringify(fetchOptions)));
         // ----------------------------------------------------
@@ -42,13 +50,19 @@ async function fetchApi(endpoint, options = {}) {
             console.error(`--- КОНЕЦ ТЕЛА ОШИБКИ ---`);
 
             // Попробуем распарсить как JSON для стандартной обработки
+            let errorData = null;
             try {
-                const errorData = JSON.parse(errorText);
-                throw new Error(errorData.message || `HTTP ошибка! Статус: ${response.status}`);
+                errorData = JSON.parse(errorText);
             } catch (e) {
-                // Если это не JSON, выбрасываем общую ошибку
-                throw new Error(`HTTP ошибка! Статус: ${response.status}. Тело ответа не в формате JSON (см. консоль).`);
+                // Если это не JSON, ниже выбросим общую ошибку
             }
+            const error = new Error(errorData
+                ? (errorData.message || `HTTP ошибка! Статус: ${response.status}`)
+                : `HTTP ошибка! Статус: ${response.status}. Тело ответа не в формате JSON (см. консоль).`);
+            // Статус и тело нужны обработчикам, например, чтобы при 409 показать актуальную задачу
+            error.status = response.status;
+            error.data = errorData;
+            throw error;
         }
 
         // Если у ответа нет тела (например, статус 204 No Content), возвращаем success
@@ -75,6 +89,31 @@ async function fetchApi(endpoint, options = {}) {
     }
 }
 
+/**
+ * ID пользователя для отладки из URL (например, ?debug_user_id=1).
+ * @returns {string|null} - null вне режима отладки.
+ */
+export function getDebugUserId() {
+    if (!DEBUG_MODE) {
+        return null;
+    }
+    return new URLSearchParams(window.location.search).get('debug_user_id');
+}
+
+/**
+ * Заголовки, по которым бэкенд определяет пользователя: initData от Telegram
+ * или debug_user_id из URL в режиме отладки.
+ * @returns {object}
+ */
+function sessionHeaders() {
+    const debugUserId = getDebugUserId();
+    if (debugUserId) {
+        return { 'X-Debug-User-Id': debugUserId };
+    }
+    const initData = window.Telegram?.WebApp?.initData;
+    return initData ? { 'X-Telegram-Init-Data': initData } : {};
+}
+
 /**
  * Загружает начальные данные для приложения.
  * @param {object} payload - Объект, содержащий либо `initData`, либо `debugUserId`.
@@ -87,8 +126,68 @@ export const getAppData = (payload) => {
     });
 };
 
+/**
+ * Загружает изменения доски после курсора (начальный курсор — changeCursor из getAppData).
+ * @param {object} payload - Объект, содержащий либо `initData`, либо `debugUserId`.
+ * @param {number} since - Курсор из предыдущего ответа.
+ * @returns {Promise<object>} - { cursor, hasMore, tasks, deletedTaskIds, changedMemberProjectIds, ... }.
+ */
+export const getBoardChanges = (payload, since) => {
+    return fetchApi(`/app-data/changes?since=${since}`, {
+        method: 'POST',
+        body: JSON.stringify(payload),
+    });
+};
+
+/**
+ * Подписывается на поток изменений доски (Server-Sent Events). EventSource не
+ * умеет передавать заголовки сессии, поэтому поток читается через fetch.
+ * @param {Array<string|number>} projectIds - Проекты подписки.
+ * @param {function(string, any): void} onEvent - Вызывается с именем события (ready, change, resync) и данными.
+ * @param {AbortSignal} signal - Сигнал для отписки.
+ * @returns {Promise<void>} - Завершается, когда сервер закрыл поток.
+ */
+export async function subscribeBoardEvents(projectIds, onEvent, signal) {
+    const query = new URLSearchParams();
+    projectIds.forEach(id => query.append('projectIds', id));
+    const response = await fetch(`${API_BASE_URL}/board/events?${query}`, {
+        headers: { 'Accept': 'text/event-stream', ...sessionHeaders() },
+        signal,
+    });
+    if (!response.ok) {
+        const error = new Error(`HTTP ошибка! Статус: ${response.status}`);
+        error.status = response.status;
+        throw error;
+    }
+
+    const reader = response.body.pipeThrough(new TextDecoderStream()).getReader();
+    let buffer = '';
+    for (;;) {
+        const { value, done } = await reader.read();
+        if (done) return;
+        buffer += value;
+        // События разделены пустой строкой; строки без event/data (комментарии-heartbeat) пропускаем
+        let boundary;
+        while ((boundary = buffer.indexOf('\n\n')) >= 0) {
+            const block = buffer.slice(0, boundary);
+            buffer = buffer.slice(boundary + 2);
+            let event = 'message';
+            const data = [];
+            for (const line of block.split('\n')) {
+                if (line.startsWith('event:')) event = line.slice(6).trim();
+                else if (line.startsWith('data:')) data.push(line.slice(5));
+            }
+            if (data.length > 0) {
+                onEvent(event, JSON.parse(data.join('\n')));
+            }
+        }
+    }
+}
+
 /**
  * Сохраняет изменения в существующей задаче.
+ * Поле version служит предусловием: если задачу уже изменили, сервер
+ * отвечает 409, и в error.data.task приходит ее текущее состояние.
  * @param {object} payload - Объект с данными задачи.
  */
 export function saveTask(payload) {
@@ -100,8 +199,29 @@ export function saveTask(payload) {
 }
 
 /**
- * Добавляет новую задачу.
- * @param {object} payload - Объект с данными новой задачи.
+ * Частично обновляет задачу (JSON Merge Patch): отправляются только
+ * измененные поля. Версия передается в If-Match; при конфликте сервер
+ * отвечает 409, как и для saveTask.
+ * @param {string|number} taskId - ID задачи.
+ * @param {object} changes - Измененные поля, например { finishDate: '2024-06-01' }.
+ * @param {number} version - Версия задачи, на основе которой сделаны изменения.
+ */
+export function patchTask(taskId, changes, version) {
+    return fetchApi(`/tasks/${taskId}`, {
+        method: 'PATCH',
+        headers: {
+            'Content-Type': 'application/merge-patch+json',
+            'If-Match': `"${version}"`,
+        },
+        body: JSON.stringify(changes),
+    });
+}
+
+/**
+ * Добавляет новую задачу (или несколько, если передан массив).
+ * Автора бэкенд берет из сессии, поле author в payload не используется.
+ * @param {object|object[]} payload - Данные новой задачи или массив задач.
+ * @returns {Promise<{status: string, message: string, task: object|object[]}>}
  */
 export const addTask = (payload) => {
     // REST-подход: используем POST для создания нового ресурса
@@ -122,6 +242,30 @@ export const deleteTask = (payload) => {
     });
 };
 
+/**
+ * Восстанавливает удаленную задачу (пока не истек срок хранения удаленных задач).
+ * @param {string|number} taskId - ID задачи.
+ * @returns {Promise<{status: string, message: string, task: object}>}
+ */
+export function restoreTask(taskId) {
+    return fetchApi(`/tasks/${taskId}/restore`, {
+        method: 'POST',
+    });
+}
+
+/**
+ * Загружает страницу архива выполненных задач проекта (сначала последние).
+ * @param {string|number} projectId - ID проекта.
+ * @param {number} [page=0] - Номер страницы с нуля.
+ * @param {number} [size=50] - Размер страницы (не больше 100).
+ * @returns {Promise<{tasks: Array<object>, page: number, size: number, hasMore: boolean}>}
+ */
+export function getTaskHistory(projectId, page = 0, size = 50) {
+    const query = new URLSearchParams({ projectId, page, size });
+    return fetchApi(`/tasks/archive?${query}`, {
+    });
+}
+
 /**
  * Отправляет на сервер новый порядок задач для обновления их приоритетов.
  * @param {string[]} taskIds - Массив ID задач в новом порядке.
@@ -137,8 +281,10 @@ export async function updateTaskPriorities(taskIds) {
 
 /**
  * Отправляет на сервер список задач для пакетного обновления их статусов и/или приоритетов.
- * @param {Array<object>} updates - Массив объектов, каждый из которых содержит taskId, priority и statusId.
- * @returns {Promise<object>}
+ * @param {Array<object>} updates - Массив объектов, каждый из которых содержит taskId, priority, statusId
+ *   и, необязательно, version.
+ * @returns {Promise<Array<object>>} - Результат по каждой задаче: { taskId, outcome, version, message },
+ *   где outcome — UPDATED, NOT_FOUND или VERSION_CONFLICT.
  */
 export async function batchUpdateTaskStatusAndPriorities(updates) {
     return fetchApi(`/tasks/batch-update`, {
@@ -147,14 +293,37 @@ export async function batchUpdateTaskStatusAndPriorities(updates) {
     });
 }
 
-// Старая функция updatePriorities больше не используется и может быть удалена.
-// Она была предназначена для другого эндпоинта и формата данных.
-// Если вы хотите сохранить ее для справки, оставьте закомментированной.
-/*
-export const updatePriorities = (payload) => {
-    return fetchApi('/tasks/reorder', { method: 'PUT', body: JSON.stringify(payload.tasks) });
-};
-*/
+/**
+ * Перемещает задачу между двумя соседями в той же колонке.
+ * На сервере меняется ранг только у перемещенной задачи.
+ * @param {string|number} taskId - ID перемещенной задачи.
+ * @param {string|number|null} previousTaskId - ID задачи над ней (null — в начало).
+ * @param {string|number|null} nextTaskId - ID задачи под ней (null — в конец).
+ * @returns {Promise<Array<object>>} - Новые ранги: [{ taskId, rank }].
+ */
+export async function moveTask(taskId, previousTaskId, nextTaskId) {
+    return fetchApi('/tasks/reorder', {
+        method: 'PUT',
+        body: JSON.stringify({ taskId, previousTaskId, nextTaskId }),
+    });
+}
+
+/**
+ * Выполняет несколько операций за один запрос и в одной транзакции.
+ * Если какая-то операция не удалась, сервер откатывает весь пакет и отвечает
+ * ее статусом; результаты по операциям тогда приходят в error.data.results
+ * (выполненные до ошибки — с outcome ROLLED_BACK и без result).
+ * @param {Array<object>} operations - [{ type, taskId, projectId, version, body }],
+ *   где type — TASK_PATCH, TASK_MEMBERS, TASK_MOVE, PROJECT_STAGES и т.д.
+ * @returns {Promise<{committed: boolean, results: Array<object>}>} - Результаты
+ *   в порядке операций: { index, type, outcome, status, result, message }.
+ */
+export function batch(operations) {
+    return fetchApi('/batch', {
+        method: 'POST',
+        body: JSON.stringify(operations),
+    });
+}
 
 /**
  * Загружает все связи (участники проектов, этапы проектов и т.д.).
@@ -3,14 +3,15 @@ import * as render from './ui/render.js';
 import * as uiUtils from './ui/utils.js';
 import * as store from './store.js';
 import * as handlers from './handlers.js';
+import * as sync from './sync.js';
 
 /**
- * Получает ID пользователя для отладки из URL (например, ?debug_user_id=1).
- * @returns {string|null}
+ * Payload для /app-data: ID пользователя для отладки (только в режиме отладки,
+ * см. api.DEBUG_MODE) или initData от Telegram.
+ * @returns {object}
  */
 function getDebugPayload() {
-    const urlParams = new URLSearchParams(window.location.search);
-    const userId = urlParams.get('debug_user_id');
+    const userId = api.getDebugUserId();
     if (userId) {
         // Явно преобразуем ID в число, чтобы соответствовать Long на бэкенде
         return { debugUserId: parseInt(userId, 10) };
@@ -75,6 +76,9 @@ export async function initializeApp() {
         const accordionState = {}; // Начальное состояние - все свернуто
         render.renderProjects(appData.projects, appData.userName, appData.userRole, accordionState, store.getStageFilters());
 
+        // 6. Подписываемся на изменения коллег, чтобы не перезагружать доску целиком
+        sync.startBoardSync(payload, initializeApp);
+
         // 7. Показываем основную кнопку Telegram
         tg.MainButton.setText('Новая задача');
         tg.MainButton.show();
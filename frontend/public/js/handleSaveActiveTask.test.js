@@ -56,4 +56,26 @@ describe('handleSaveActiveTask', () => {
         expect(uiUtils.updateFabButtonUI).toHaveBeenCalledWith(false, null, expect.any(Function));
     });
 
-});
\ No newline at end of file
+    test('should not call the API when nothing was changed in the form', async () => {
+        const originalTask = {
+            id: '101',
+            name: 'Same Name',
+            message: 'Same message',
+            status: { id: 1 },
+            stage: { id: 2 },
+            curator: { id: 3 },
+            members: [{ id: 3 }],
+            version: 1,
+        };
+        store.findTask.mockReturnValue({ task: originalTask });
+        const updatedTaskData = { ...originalTask, stageId: '2' };
+
+        const result = await handleSaveActiveTask(updatedTaskData);
+
+        expect(result).toBe(true);
+        expect(api.patchTask).not.toHaveBeenCalled();
+        expect(api.saveTask).not.toHaveBeenCalled();
+        expect(uiUtils.updateFabButtonUI).toHaveBeenCalledWith(false, null, expect.any(Function));
+    });
+
+});
@@ -16,7 +16,18 @@ export async function handleSaveActiveTask(updatedTaskData) {
     console.log('[HANDLERS] > handleSaveActiveTask: Отправляемые данные:', JSON.stringify(updatedTaskData, null, 2));
 
     try {
-        const result = await api.saveTask(updatedTaskData);
+        // Если исходная задача есть в store, отправляем только изменившиеся поля
+        const found = store.findTask(updatedTaskData.id);
+        const originalTask = found && found.task;
+        const changes = originalTask ? buildTaskPatch(originalTask, updatedTaskData) : null;
+        if (changes && Object.keys(changes).length === 0) {
+            // В форме ничего не изменилось: запрос не нужен, только выходим из редактирования
+            leaveEditMode();
+            return true;
+        }
+        const result = changes
+            ? await api.patchTask(updatedTaskData.id, changes, updatedTaskData.version)
+            : await api.saveTask(updatedTaskData);
 
         if (result.status === 'success') {
             uiUtils.showMessage('Изменения сохранены', 'success');
@@ -24,26 +35,61 @@ export async function handleSaveActiveTask(updatedTaskData) {
             // Обновляем задачу в store, используя данные из ответа сервера
             store.updateTask(result.task);
 
-            // Находим DOM-элемент, чтобы выйти из режима редактирования
-            const activeEditElement = document.querySelector(`.task-details.edit-mode[data-version]`);
-            const backButtonHandler = uiUtils.getBackButtonHandler();
-            if (activeEditElement) {
-                uiUtils.exitEditMode(activeEditElement, backButtonHandler);
-            }
-            uiUtils.updateFabButtonUI(false, null, handleShowAddTaskModal);
-            
+            leaveEditMode();
+
             // Возвращаем true для индикации успеха
             return true;
         } else {
             throw new Error(result.message || 'Неизвестная ошибка сервера');
         }
     } catch (error) {
+        if (error.status === 409 && error.data && error.data.task) {
+            // Задачу изменили параллельно: показываем ее актуальное состояние с сервера
+            store.updateTask(error.data.task);
+            leaveEditMode();
+            const appData = store.getAppData();
+            render.renderProjects(appData.projects, appData.userName, appData.userRole, uiUtils.getAccordionState(), store.getStageFilters());
+        }
         uiUtils.showMessage(`Ошибка сохранения: ${error.message}`, 'error');
         return false;
     }
 }
 // --- КОНЕЦ ЗАМЕНЫ ФУНКЦИИ ---
 
+/**
+ * Выводит активную задачу из режима редактирования и возвращает FAB в режим добавления.
+ */
+function leaveEditMode() {
+    const activeEditElement = document.querySelector(`.task-details.edit-mode[data-version]`);
+    if (activeEditElement) {
+        uiUtils.exitEditMode(activeEditElement, uiUtils.getBackButtonHandler());
+    }
+    uiUtils.updateFabButtonUI(false, null, handleShowAddTaskModal);
+}
+
+/**
+ * Собирает JSON Merge Patch из отличий отредактированной задачи от исходной.
+ * Ссылки передаются как { id }, участники — массивом целиком.
+ * @param {object} original - Задача из store.
+ * @param {object} updated - Данные из формы редактирования.
+ * @returns {object} - Только изменившиеся поля (может быть пустым объектом).
+ */
+function buildTaskPatch(original, updated) {
+    const changes = {};
+    const idOf = (ref) => (ref && ref.id != null ? String(ref.id) : null);
+    const idsOf = (refs) => (refs || []).map(idOf).sort().join(',');
+
+    if (updated.name !== original.name) changes.name = updated.name;
+    if ((updated.message || null) !== (original.message || null)) changes.message = updated.message || null;
+    if (updated.status && idOf(updated.status) !== idOf(original.status)) changes.status = { id: updated.status.id };
+    if (updated.stageId && String(updated.stageId) !== idOf(original.stage)) changes.stage = { id: updated.stageId };
+    if (updated.curator && idOf(updated.curator) !== idOf(original.curator)) changes.curator = { id: updated.curator.id };
+    if (idsOf(updated.members) !== idsOf(original.members)) {
+        changes.members = (updated.members || []).map(m => ({ id: m.id }));
+    }
+    return changes;
+}
+
 export function handleShowAddTaskModal() {
     const appData = store.getAppData();
     modals.openAddTaskModal(store.getAllProjects(), store.getAllUsers(), appData.userRole);
@@ -131,8 +177,17 @@ export async function handleStatusUpdate(taskId, newStatusName) {
     });
 
     try {
-        const result = await api.batchUpdateTaskStatusAndPriorities(tasksToUpdate);
-        if (result.status !== 'success') throw new Error(result.error || 'Ошибка сохранения');
+        const response = await api.batchUpdateTaskStatusAndPriorities(tasksToUpdate);
+        // Сервер возвращает результат по каждой задаче; успешна только та, что получила UPDATED
+        const results = Array.isArray(response) ? response : [];
+        const failed = results.filter(r => r.outcome !== 'UPDATED');
+        if (failed.length > 0) {
+            throw new Error(`не сохранено задач: ${failed.length} (${failed.map(r => r.outcome).join(', ')})`);
+        }
+        results.forEach(r => {
+            const { task: updated } = store.findTask(r.taskId);
+            if (updated) updated.version = r.version;
+        });
         uiUtils.showMessage('Сохранение завершено', 'success');
     } catch (error) {
         console.error('[HANDLERS.JS ERROR] Failed to update priorities:', error);
@@ -144,15 +199,28 @@ export async function handleStatusUpdate(taskId, newStatusName) {
 
 /**
  * Обрабатывает завершение перетаскивания задачи.
- * Отправляет новый порядок задач на сервер для обновления приоритетов.
+ * Если известна перемещенная задача, на сервер уходят только она и ее новые соседи;
+ * иначе отправляется весь новый порядок для обновления приоритетов.
  * @param {string[]} updatedTaskIds - Массив ID задач в новом порядке.
+ * @param {string} [movedTaskId] - ID перемещенной задачи.
  */
-export async function handleDragDrop(updatedTaskIds) {
+export async function handleDragDrop(updatedTaskIds, movedTaskId) {
     console.log('[HANDLERS] > Новый порядок задач для сохранения:', updatedTaskIds);
     try {
         // Оптимистичное обновление: мы уже передвинули карточку,
         // поэтому просто отправляем запрос на сервер.
-        await api.updateTaskPriorities(updatedTaskIds);
+        const index = movedTaskId ? updatedTaskIds.indexOf(movedTaskId) : -1;
+        if (index >= 0) {
+            const previousTaskId = index > 0 ? updatedTaskIds[index - 1] : null;
+            const nextTaskId = index < updatedTaskIds.length - 1 ? updatedTaskIds[index + 1] : null;
+            const ranks = await api.moveTask(movedTaskId, previousTaskId, nextTaskId);
+            (Array.isArray(ranks) ? ranks : []).forEach(({ taskId, rank }) => {
+                const { task } = store.findTask(taskId);
+                if (task) task.rank = rank;
+            });
+        } else {
+            await api.updateTaskPriorities(updatedTaskIds);
+        }
         
         // Обновляем приоритеты в локальном хранилище (store)
         updatedTaskIds.forEach((taskId, index) => {
@@ -289,7 +289,7 @@ function initializeApp() {
         // Собираем обновленный список ID задач в этой группе
         const updatedTaskIds = Array.from(dropContainer.querySelectorAll('[draggable="true"]')).map(card => card.dataset.taskId);
         // Вызываем обработчик, передавая только нужные данные
-        handlers.handleDragDrop(updatedTaskIds);
+        handlers.handleDragDrop(updatedTaskIds, draggedElement.dataset.taskId);
     });
     mainContainer.addEventListener('dragend', () => {
         if (draggedElement) draggedElement.classList.remove('dragging');
@@ -0,0 +1,112 @@
+import * as api from './api.js';
+import * as render from './ui/render.js';
+import * as uiUtils from './ui/utils.js';
+import * as store from './store.js';
+
+const MIN_RECONNECT_DELAY_MS = 1000;
+const MAX_RECONNECT_DELAY_MS = 30000;
+
+let controller = null;
+let pulling = false;
+let pullPending = false;
+
+/**
+ * Подписывается на изменения доски и применяет их к store без полной перезагрузки.
+ * Повторный вызов закрывает предыдущую подписку.
+ * @param {object} payload - Объект, содержащий либо `initData`, либо `debugUserId`.
+ * @param {function(): void} reloadApp - Полная перезагрузка доски (нужна, если изменились
+ *   участники или этапы проектов или журнал изменений после курсора уже удален).
+ */
+export function startBoardSync(payload, reloadApp) {
+    stopBoardSync();
+    const projectIds = store.getAppData().projects.map(p => p.id);
+    if (projectIds.length === 0) return;
+
+    const current = new AbortController();
+    controller = current;
+    listen(projectIds, payload, reloadApp, current.signal);
+}
+
+export function stopBoardSync() {
+    if (controller) {
+        controller.abort();
+        controller = null;
+    }
+}
+
+async function listen(projectIds, payload, reloadApp, signal) {
+    let delay = MIN_RECONNECT_DELAY_MS;
+    while (!signal.aborted) {
+        try {
+            await api.subscribeBoardEvents(projectIds, (event) => {
+                delay = MIN_RECONNECT_DELAY_MS;
+                // ready: после переподключения догоняем пропущенное; resync: часть событий потеряна
+                if (event === 'ready' || event === 'change' || event === 'resync') {
+                    pullChanges(payload, reloadApp);
+                }
+            }, signal);
+        } catch (error) {
+            if (signal.aborted) return;
+            console.warn('[SYNC] Поток изменений прерван:', error.message);
+            if (error.status === 403) return;
+        }
+        await new Promise(resolve => setTimeout(resolve, delay));
+        delay = Math.min(delay * 2, MAX_RECONNECT_DELAY_MS);
+    }
+}
+
+/**
+ * Забирает изменения с курсора store и применяет их. Вызовы во время загрузки
+ * схлопываются в одну повторную загрузку.
+ */
+async function pullChanges(payload, reloadApp) {
+    if (pulling) {
+        pullPending = true;
+        return;
+    }
+    pulling = true;
+    try {
+        do {
+            pullPending = false;
+            const appData = store.getAppData();
+            if (appData.changeCursor == null) return;
+            let changes;
+            do {
+                changes = await api.getBoardChanges(payload, appData.changeCursor);
+                // resyncRequired: часть журнала после курсора уже удалена, дельтой не догнать
+                if (changes.resyncRequired
+                    || changes.changedMemberProjectIds.length > 0 || changes.changedStageProjectIds.length > 0) {
+                    reloadApp();
+                    return;
+                }
+                applyTaskChanges(changes);
+                appData.changeCursor = changes.cursor;
+            } while (changes.hasMore);
+            renderIfIdle();
+        } while (pullPending);
+    } catch (error) {
+        console.warn('[SYNC] Не удалось загрузить изменения:', error.message);
+    } finally {
+        pulling = false;
+    }
+}
+
+function applyTaskChanges(changes) {
+    changes.deletedTaskIds.forEach(taskId => store.removeTask(taskId));
+    changes.tasks.forEach(task => {
+        const { task: existing } = store.findTask(task.id);
+        if (existing && String(existing.projectId) === String(task.projectId)) {
+            store.updateTask(task);
+        } else {
+            if (existing) store.removeTask(task.id);
+            store.addTask(task);
+        }
+    });
+}
+
+// Пока пользователь редактирует карточку, доску не перерисовываем: изменения уже в store
+function renderIfIdle() {
+    if (document.querySelector('.task-details.edit-mode')) return;
+    const appData = store.getAppData();
+    render.renderProjects(appData.projects, appData.userName, appData.userRole, uiUtils.getAccordionState(), store.getStageFilters());
+}
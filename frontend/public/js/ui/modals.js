@@ -26,7 +26,7 @@ export function openStageModal(activeTaskDetailsElement) {
 
     const activeStageIds = new Set(
         (store.getAppData().projectStages || [])
-            .filter(ps => ps.projectId == projectId && ps.isActive === 'TRUE')
+            .filter(ps => ps.projectId == projectId && ps.isActive === true)
             .map(ps => ps.stageId)
     );
 
@@ -93,7 +93,7 @@ export async function openUserModal(activeTaskDetailsElement, allUsers, userRole
 
     const projectMemberIds = new Set(
         (store.getAppData().projectMembers || [])
-            .filter(m => m.projectId == projectId && m.isActive === 'TRUE')
+            .filter(m => m.projectId == projectId && m.isActive === true)
             .map(m => m.userId)
     );
 
@@ -248,7 +248,7 @@ export function openAddTaskModal(allProjects, allUsers, userRole, userName) {
 
         const projectMemberIds = new Set(
             (store.getAppData().projectMembers || [])
-                .filter(m => String(m.projectId) === String(projectId) && m.isActive === 'TRUE') // Compare as strings
+                .filter(m => String(m.projectId) === String(projectId) && m.isActive === true) // Compare as strings
                 .map(m => m.userId) // This is correct
         );
         const projectMembers = allUsers.filter(emp => projectMemberIds.has(emp.userId));
@@ -266,7 +266,7 @@ export function openAddTaskModal(allProjects, allUsers, userRole, userName) {
 
         const activeStageIds = new Set(
             (store.getAppData().projectStages || [])
-                .filter(ps => String(ps.projectId) === String(projectId) && ps.isActive === 'TRUE') // Compare as strings
+                .filter(ps => String(ps.projectId) === String(projectId) && ps.isActive === true) // Compare as strings
                 .map(ps => ps.stageId) // This is correct
         );
         const allStages = store.getAppData().allStages || [];
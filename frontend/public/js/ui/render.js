@@ -1,5 +1,17 @@
 import * as store from '../store.js';
 
+/**
+ * Порядок задач внутри статуса: по рангу с сервера, задачи без ранга — в конце по приоритету.
+ */
+function compareTaskOrder(a, b) {
+    const rankA = a.rank ?? null;
+    const rankB = b.rank ?? null;
+    if (rankA !== null && rankB !== null) return rankA - rankB;
+    if (rankA !== null) return -1;
+    if (rankB !== null) return 1;
+    return (a.priority || 999) - (b.priority || 999);
+}
+
 function renderTaskCard(task, isUserView, statuses) {
     // --- ЛОГ: Проверяем, есть ли версия у задачи перед рендерингом ---
     console.log(`[RENDER] > renderTaskCard for task ID ${task.id}, version: ${task.version}`);
@@ -69,7 +81,7 @@ export function renderProjects(projects, userName, userRole, expandedState = {},
             const orderA = a.status ? a.status.order : 999;
             const orderB = b.status ? b.status.order : 999;
             if (orderA !== orderB) return orderA - orderB;
-            return (a.priority || 999) - (b.priority || 999);
+            return compareTaskOrder(a, b);
         });
 
         // Группируем задачи по статусу
@@ -267,7 +279,7 @@ export function renderTasksView(tasks, statuses, isMyTasksView = false) {
         const orderA = (a.status && statuses.find(s => s.name === a.status.name) || { order: 99 }).order;
         const orderB = (b.status && statuses.find(s => s.name === b.status.name) || { order: 99 }).order;
         if (orderA !== orderB) return orderA - orderB;
-        return (a.priority || 999) - (b.priority || 999);
+        return compareTaskOrder(a, b);
     });
 
     const tasksByStatus = tasks.reduce((acc, task) => {